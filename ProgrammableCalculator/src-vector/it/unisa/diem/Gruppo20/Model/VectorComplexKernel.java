@@ -0,0 +1,88 @@
+package it.unisa.diem.Gruppo20.Model;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implementation of ComplexKernel with the Vector API of the JDK. Every loop
+ * processes as many elements as the preferred vector shape of the platform,
+ * the remaining tail is processed by ScalarComplexKernel. This class must be
+ * loaded only if the module jdk.incubator.vector is available; it is compiled
+ * apart from the other classes, only when the build is run with
+ * -Dvector=true.
+ *
+ * @author Team 20
+ */
+final class VectorComplexKernel implements ComplexKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void add(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] outRe, double[] outIm, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector a = DoubleVector.fromArray(SPECIES, aRe, i);
+            DoubleVector b = DoubleVector.fromArray(SPECIES, aIm, i);
+            DoubleVector c = DoubleVector.fromArray(SPECIES, bRe, i);
+            DoubleVector d = DoubleVector.fromArray(SPECIES, bIm, i);
+            a.add(c).intoArray(outRe, i);
+            b.add(d).intoArray(outIm, i);
+        }
+        ScalarComplexKernel.add(aRe, aIm, bRe, bIm, outRe, outIm, i, n);
+    }
+
+    @Override
+    public void subtract(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] outRe, double[] outIm, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector a = DoubleVector.fromArray(SPECIES, aRe, i);
+            DoubleVector b = DoubleVector.fromArray(SPECIES, aIm, i);
+            DoubleVector c = DoubleVector.fromArray(SPECIES, bRe, i);
+            DoubleVector d = DoubleVector.fromArray(SPECIES, bIm, i);
+            a.sub(c).intoArray(outRe, i);
+            b.sub(d).intoArray(outIm, i);
+        }
+        ScalarComplexKernel.subtract(aRe, aIm, bRe, bIm, outRe, outIm, i, n);
+    }
+
+    @Override
+    public void multiply(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] outRe, double[] outIm, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector a = DoubleVector.fromArray(SPECIES, aRe, i);
+            DoubleVector b = DoubleVector.fromArray(SPECIES, aIm, i);
+            DoubleVector c = DoubleVector.fromArray(SPECIES, bRe, i);
+            DoubleVector d = DoubleVector.fromArray(SPECIES, bIm, i);
+            a.mul(c).sub(b.mul(d)).intoArray(outRe, i);
+            a.mul(d).add(b.mul(c)).intoArray(outIm, i);
+        }
+        ScalarComplexKernel.multiply(aRe, aIm, bRe, bIm, outRe, outIm, i, n);
+    }
+
+    @Override
+    public void divide(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] outRe, double[] outIm, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector a = DoubleVector.fromArray(SPECIES, aRe, i);
+            DoubleVector b = DoubleVector.fromArray(SPECIES, aIm, i);
+            DoubleVector c = DoubleVector.fromArray(SPECIES, bRe, i);
+            DoubleVector d = DoubleVector.fromArray(SPECIES, bIm, i);
+            DoubleVector div = c.mul(c).add(d.mul(d));
+            a.mul(c).add(b.mul(d)).div(div).intoArray(outRe, i);
+            b.mul(c).sub(a.mul(d)).div(div).intoArray(outIm, i);
+        }
+        ScalarComplexKernel.divide(aRe, aIm, bRe, bIm, outRe, outIm, i, n);
+    }
+
+    @Override
+    public void modulus(double[] aRe, double[] aIm, double[] out, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector a = DoubleVector.fromArray(SPECIES, aRe, i);
+            DoubleVector b = DoubleVector.fromArray(SPECIES, aIm, i);
+            a.mul(a).add(b.mul(b)).lanewise(VectorOperators.SQRT).intoArray(out, i);
+        }
+        ScalarComplexKernel.modulus(aRe, aIm, out, i, n);
+    }
+}
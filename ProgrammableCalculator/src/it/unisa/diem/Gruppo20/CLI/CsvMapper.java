@@ -0,0 +1,378 @@
+package it.unisa.diem.Gruppo20.CLI;
+
+import it.unisa.diem.Gruppo20.Model.Calculator;
+import it.unisa.diem.Gruppo20.Model.ComplexFormatter;
+import it.unisa.diem.Gruppo20.Model.ComplexScanner;
+import it.unisa.diem.Gruppo20.Model.Exception.ExecuteException;
+import it.unisa.diem.Gruppo20.Model.OperandStack;
+import it.unisa.diem.Gruppo20.Model.Operations;
+import it.unisa.diem.Gruppo20.Model.Variables;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Batch mode of the calculator: it applies one operation to each row of a CSV
+ * file of complex numbers. The cells of a row are pushed in order on an empty
+ * stack, the operation is executed and the stack, from the bottom, is written
+ * as the output row; the rows are independent, also the variables start empty
+ * for each one. Empty lines are skipped.
+ *
+ * The input is read in chunks of rows that are mapped in parallel by a
+ * ForkJoinPool: each thread of the pool has its own Calculator and a copy of
+ * the user-defined operations, so the chunks don't share any state. The
+ * output chunks are written in the order of the input, and only a few chunks
+ * for each thread are kept in memory, so the file can be larger than the
+ * heap. The mapping stops at the first row that fails.
+ *
+ * Usage: CsvMapper [-l library] [-o output] [-t threads] [-c rows] operation
+ * [input | -]
+ *
+ * @author Team 20
+ */
+public class CsvMapper {
+
+    /**
+     * The default number of rows of a chunk.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final String USAGE = "Usage: CsvMapper [-l library] [-o output] [-t threads] [-c rows] operation [input | -]";
+
+    private final Operations operations;
+    private final String operation;
+    private int chunkSize;
+
+    /**
+     * Creates a CsvMapper that executes the operation name of operations on
+     * each row.
+     *
+     * @param operations The user-defined operations; each mapping copies them
+     * when it starts, so the changes made later are used by the next mapping.
+     * @param name The name of a standard or user-defined operation.
+     * @throws ExecuteException if the operation doesn't exist.
+     */
+    public CsvMapper(Operations operations, String name) {
+        if (operations.getOperationsCommand(name) == null) {
+            throw new ExecuteException("Can't execute this operation, can't find operation with name " + name + ".");
+        }
+        this.operations = operations;
+        this.operation = name;
+        this.chunkSize = DEFAULT_CHUNK_SIZE;
+    }
+
+    /**
+     * Returns the number of rows mapped by a single task.
+     *
+     * @return A positive number of rows.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the number of rows mapped by a single task.
+     *
+     * @param chunkSize A positive number of rows.
+     * @throws IllegalArgumentException if chunkSize isn't positive.
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size must be positive.");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Maps the rows read from in on the common ForkJoinPool.
+     *
+     * @param in The CSV input.
+     * @param out Where the output rows are written.
+     * @throws IOException if in can't be read or out can't be written.
+     * @throws ExecuteException if a row fails, the message reports its line
+     * and the cause is the exception thrown by the row.
+     */
+    public void map(BufferedReader in, Writer out) throws IOException {
+        map(in, out, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Maps the rows read from in on pool and writes the output rows in the
+     * same order on out. The user-defined operations are copied when the
+     * mapping starts, and each thread of the pool that maps a chunk makes its
+     * own copy of them. If a row fails, the rows before its chunk are written
+     * and the other chunks are cancelled.
+     *
+     * @param in The CSV input.
+     * @param out Where the output rows are written.
+     * @param pool The pool that maps the chunks.
+     * @throws IOException if in can't be read or out can't be written.
+     * @throws ExecuteException if a row fails, the message reports its line
+     * and the cause is the exception thrown by the row.
+     */
+    public void map(BufferedReader in, Writer out, ForkJoinPool pool) throws IOException {
+        Operations definitions;
+        synchronized (operations) {
+            definitions = operations.copy(new Calculator());
+        }
+        ThreadLocal<Worker> workers = ThreadLocal.withInitial(() -> newWorker(definitions));
+        int maxPending = CHUNKS_PER_THREAD * pool.getParallelism();
+        Deque<Future<String>> pending = new ArrayDeque<>();
+        try {
+            int line = 1;
+            String[] rows;
+            while ((rows = readChunk(in)) != null) {
+                String[] chunk = rows;
+                int first = line;
+                pending.add(CompletableFuture.supplyAsync(() -> workers.get().map(chunk, first), pool));
+                line += rows.length;
+                if (pending.size() >= maxPending) {
+                    out.write(join(pending.poll()));
+                }
+            }
+            while (!pending.isEmpty()) {
+                out.write(join(pending.poll()));
+            }
+        } finally {
+            for (Future<String> f : pending) {
+                f.cancel(false);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Returns the next chunkSize lines of in, or less at the end of the
+     * input; null if there are no other lines.
+     */
+    private String[] readChunk(BufferedReader in) throws IOException {
+        String[] rows = new String[chunkSize];
+        int n = 0;
+        String line;
+        while (n < rows.length && (line = in.readLine()) != null) {
+            rows[n++] = line;
+        }
+        if (n == 0) {
+            return null;
+        }
+        return n == rows.length ? rows : Arrays.copyOf(rows, n);
+    }
+
+    /**
+     * Waits for a chunk and returns its output, rethrowing the exception of a
+     * row as it was thrown.
+     */
+    private static String join(Future<String> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Mapping interrupted.", ex);
+        }
+    }
+
+    /**
+     * Returns a Worker with its own copy of definitions, that is shared by
+     * the threads of a mapping and never changed.
+     */
+    private Worker newWorker(Operations definitions) {
+        Calculator calculator = new Calculator();
+        Operations copy;
+        synchronized (definitions) {
+            copy = definitions.copy(calculator);
+        }
+        return new Worker(calculator, copy);
+    }
+
+    /**
+     * The Calculator and the operations of a thread of the pool during a
+     * mapping.
+     */
+    private final class Worker {
+
+        private final Calculator calculator;
+        private final Operations operations;
+        private final ComplexScanner scanner;
+        private final ComplexFormatter formatter;
+        private final Variables.Snapshot empty;
+        private final StringBuilder sb;
+
+        private Worker(Calculator calculator, Operations operations) {
+            this.calculator = calculator;
+            this.operations = operations;
+            this.scanner = new ComplexScanner();
+            this.formatter = new ComplexFormatter(ComplexFormatter.DEFAULT_PRECISION, calculator.getSnapPolicy().snapsDisplay());
+            this.empty = calculator.getVariables().snapshot();
+            this.sb = new StringBuilder();
+        }
+
+        /**
+         * Returns the output rows of the chunk, whose first row is at line
+         * first of the input.
+         */
+        private String map(String[] rows, int first) {
+            sb.setLength(0);
+            OperandStack stack = calculator.getStack();
+            for (int i = 0; i < rows.length; i++) {
+                String row = rows[i];
+                if (row.isBlank()) {
+                    continue;
+                }
+                try {
+                    stack.clear();
+                    calculator.getVariables().restoreSnapshot(empty);
+                    push(row);
+                    operations.executeOperation(operation);
+                } catch (RuntimeException ex) {
+                    ExecuteException failure = new ExecuteException("Line " + (first + i) + ": " + ex.getMessage());
+                    failure.initCause(ex);
+                    throw failure;
+                }
+                for (int depth = stack.size() - 1; depth >= 0; depth--) {
+                    formatter.format(stack.re(depth), stack.im(depth), sb);
+                    if (depth > 0) {
+                        sb.append(',');
+                    }
+                }
+                sb.append('\n');
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Pushes the cells of row, separated by commas.
+         */
+        private void push(String row) {
+            int start = 0;
+            int length = row.length();
+            while (start <= length) {
+                int end = row.indexOf(',', start);
+                if (end == -1) {
+                    end = length;
+                }
+                try {
+                    scanner.scan(row, start, end);
+                } catch (NumberFormatException ex) {
+                    throw new NumberFormatException("'" + row.substring(start, end).strip() + "' isn't a number.");
+                }
+                calculator.insertNumber(scanner.getReal(), scanner.getImaginary());
+                start = end + 1;
+            }
+        }
+    }
+
+    /**
+     * Maps a CSV file from the command line. The exit status is 0 if all the
+     * rows were mapped, 1 if a row failed and 2 if the arguments or the files,
+     * also the definitions of the library, are wrong.
+     *
+     * @param args [-l library] [-o output] [-t threads] [-c rows] operation
+     * [input | -], the input is read from the standard input if it's missing
+     * or "-".
+     */
+    public static void main(String[] args) {
+        Operations operations = new Operations(new Calculator());
+        String name = null;
+        String input = "-";
+        String output = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int chunkSize = DEFAULT_CHUNK_SIZE;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-l" ->
+                        loadLibrary(operations, argument(args, ++i));
+                    case "-o" ->
+                        output = argument(args, ++i);
+                    case "-t" ->
+                        threads = number(argument(args, ++i));
+                    case "-c" ->
+                        chunkSize = number(argument(args, ++i));
+                    default -> {
+                        if (name == null) {
+                            name = args[i].toLowerCase();
+                        } else {
+                            input = args[i];
+                        }
+                    }
+                }
+            }
+            if (name == null) {
+                throw new IllegalArgumentException(USAGE);
+            }
+            CsvMapper mapper = new CsvMapper(operations, name);
+            mapper.setChunkSize(chunkSize);
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try (BufferedReader in = input.equals("-")
+                    ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                    : Files.newBufferedReader(Path.of(input));
+                    Writer out = output == null
+                            ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                            : Files.newBufferedWriter(Path.of(output))) {
+                mapper.map(in, out, pool);
+            } finally {
+                pool.shutdown();
+            }
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.exit(2);
+        } catch (IOException ex) {
+            System.err.println("I/O error: " + ex.getMessage());
+            System.exit(2);
+        } catch (RuntimeException ex) {
+            System.err.println(ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Loads a library from the command line; any failure, also a wrong
+     * definition, exits with status 2 since the library is an argument.
+     */
+    private static void loadLibrary(Operations operations, String library) {
+        try {
+            operations.loadFromFile(new File(library));
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Can't load the library " + library + ": " + ex.getMessage());
+            System.exit(2);
+        }
+    }
+
+    private static String argument(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException(USAGE);
+        }
+        return args[i];
+    }
+
+    private static int number(String arg) {
+        try {
+            int n = Integer.parseInt(arg);
+            if (n > 0) {
+                return n;
+            }
+        } catch (NumberFormatException ex) {
+            // reported below
+        }
+        throw new IllegalArgumentException("'" + arg + "' must be a positive number.");
+    }
+}
@@ -0,0 +1,209 @@
+package it.unisa.diem.Gruppo20.CLI;
+
+import it.unisa.diem.Gruppo20.Model.Calculator;
+import it.unisa.diem.Gruppo20.Model.ComplexFormatter;
+import it.unisa.diem.Gruppo20.Model.Exception.ExecuteException;
+import it.unisa.diem.Gruppo20.Model.OperandStack;
+import it.unisa.diem.Gruppo20.Model.Operations;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Headless entry point of the calculator: it executes an RPN script without
+ * starting JavaFX. The script is read one line at a time, so it can be as long
+ * as a pipeline produces it: each line is a definition of a user-defined
+ * operation ("name: op1 op2 ...") or a line of numbers and operations executed
+ * by Operations.executeLine; empty lines and lines starting with '#' are
+ * skipped.
+ *
+ * At the end the stack is written from the top, one number per line; with
+ * the per-line option the top of the stack is written after each executed
+ * line instead (an empty line if the stack is empty).
+ *
+ * Usage: ScriptRunner [-l library] [-o output] [-p] [script | -]
+ *
+ * @author Team 20
+ */
+public class ScriptRunner {
+
+    private final Calculator calculator;
+    private final Operations operations;
+    private final ComplexFormatter formatter;
+    private boolean perLine;
+
+    /**
+     * Creates a ScriptRunner that executes the scripts on a new Calculator.
+     */
+    public ScriptRunner() {
+        calculator = new Calculator();
+        operations = new Operations(calculator);
+        formatter = new ComplexFormatter(ComplexFormatter.DEFAULT_PRECISION, calculator.getSnapPolicy().snapsDisplay());
+    }
+
+    /**
+     * Returns the Calculator that executes the script.
+     *
+     * @return A Calculator.
+     */
+    public Calculator getCalculator() {
+        return calculator;
+    }
+
+    /**
+     * Returns the operations used by the script, also the ones it defines.
+     *
+     * @return An Operations.
+     */
+    public Operations getOperations() {
+        return operations;
+    }
+
+    /**
+     * Sets if the top of the stack is written after each line, instead of the
+     * whole stack at the end.
+     *
+     * @param perLine true to write a result for each line.
+     */
+    public void setPerLine(boolean perLine) {
+        this.perLine = perLine;
+    }
+
+    /**
+     * Loads the user-defined operations saved in a file, as the GUI does with
+     * functions.txt.
+     *
+     * @param library The file of the user-defined operations.
+     * @throws IOException if the file can't be read.
+     */
+    public void loadLibrary(File library) throws IOException {
+        operations.loadFromFile(library);
+    }
+
+    /**
+     * Executes the script read from in and writes the results on out. The
+     * script stops at the first line that fails.
+     *
+     * @param in The script.
+     * @param out Where the results are written.
+     * @throws IOException if in can't be read or out can't be written.
+     * @throws ExecuteException if a line fails, the message reports its
+     * number and the cause is the exception thrown by the line.
+     */
+    public void run(BufferedReader in, Writer out) throws IOException {
+        String line;
+        int number = 0;
+        while ((line = in.readLine()) != null) {
+            number++;
+            String trimmed = line.strip();
+            if (trimmed.isEmpty() || trimmed.charAt(0) == '#') {
+                continue;
+            }
+            try {
+                if (trimmed.indexOf(':') != -1) {
+                    operations.parseOperations(trimmed);
+                    continue;
+                }
+                operations.executeLine(trimmed);
+            } catch (RuntimeException ex) {
+                ExecuteException failure = new ExecuteException("Line " + number + ": " + ex.getMessage());
+                failure.initCause(ex);
+                throw failure;
+            }
+            if (perLine) {
+                OperandStack stack = calculator.getStack();
+                if (stack.size() > 0) {
+                    formatter.format(stack.re(0), stack.im(0), out);
+                }
+                out.write('\n');
+            }
+        }
+        if (!perLine) {
+            writeStack(out);
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the stack from the top, one number per line.
+     */
+    private void writeStack(Writer out) throws IOException {
+        OperandStack stack = calculator.getStack();
+        for (int depth = 0; depth < stack.size(); depth++) {
+            formatter.format(stack.re(depth), stack.im(depth), out);
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Runs a script from the command line. The exit status is 0 if the script
+     * was executed, 1 if a line failed and 2 if the arguments or the files,
+     * also the definitions of the library, are wrong.
+     *
+     * @param args [-l library] [-o output] [-p] [script | -], the script is
+     * read from the standard input if it's missing or "-".
+     */
+    public static void main(String[] args) {
+        ScriptRunner runner = new ScriptRunner();
+        String script = "-";
+        String output = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-l" ->
+                        loadLibrary(runner, argument(args, ++i));
+                    case "-o" ->
+                        output = argument(args, ++i);
+                    case "-p" ->
+                        runner.setPerLine(true);
+                    default ->
+                        script = args[i];
+                }
+            }
+            try (BufferedReader in = script.equals("-")
+                    ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                    : Files.newBufferedReader(Path.of(script));
+                    Writer out = output == null
+                            ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                            : Files.newBufferedWriter(Path.of(output))) {
+                runner.run(in, out);
+            }
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.exit(2);
+        } catch (IOException ex) {
+            System.err.println("I/O error: " + ex.getMessage());
+            System.exit(2);
+        } catch (RuntimeException ex) {
+            System.err.println(ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Loads a library from the command line; any failure, also a wrong
+     * definition, exits with status 2 since the library is an argument.
+     */
+    private static void loadLibrary(ScriptRunner runner, String library) {
+        try {
+            runner.loadLibrary(new File(library));
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Can't load the library " + library + ": " + ex.getMessage());
+            System.exit(2);
+        }
+    }
+
+    private static String argument(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Usage: ScriptRunner [-l library] [-o output] [-p] [script | -]");
+        }
+        return args[i];
+    }
+}
@@ -1,12 +1,16 @@
 package it.unisa.diem.Gruppo20.GUI;
 
 import it.unisa.diem.Gruppo20.Model.Calculator;
-import it.unisa.diem.Gruppo20.Model.Command;
 import it.unisa.diem.Gruppo20.Model.Complex;
+import it.unisa.diem.Gruppo20.Model.ComplexFormatter;
+import it.unisa.diem.Gruppo20.Model.Exception.LineExecutionException;
+import it.unisa.diem.Gruppo20.Model.ExecutionBudget;
 import it.unisa.diem.Gruppo20.Model.Operations;
+import it.unisa.diem.Gruppo20.Model.PersistentOperandStack;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.time.Duration;
 import java.util.ResourceBundle;
 import javafx.beans.property.SimpleListProperty;
 import javafx.collections.FXCollections;
@@ -17,6 +21,7 @@ import javafx.fxml.Initializable;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
+import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.TabPane;
@@ -56,13 +61,24 @@ public class GUI_FXMLController implements Initializable {
     private Button cancBtn1;
     @FXML
     private Button cancBtn2;
+    @FXML
+    private Button undoBtn;
+    @FXML
+    private Button redoBtn;
 
     private Operations operations;
     private ObservableList<Complex> stack;
     private ObservableList<String> functions;
 
-    private final Calculator calculator = new Calculator();
+    private final Calculator calculator = new Calculator(new PersistentOperandStack());
     private final File defaultFile = new File("media/functions.txt");
+    /**
+     * Limits of the user-defined operations, so that an operation that never
+     * ends can't block the interface. The operations run on the JavaFX thread
+     * and can't be cancelled by the user, so the deadline is the longest time
+     * the interface can stay frozen.
+     */
+    private final ExecutionBudget budget = new ExecutionBudget(Long.MAX_VALUE, 1_000_000, Duration.ofSeconds(2));
 
     /**
      * Initializes the controller class.
@@ -73,10 +89,13 @@ public class GUI_FXMLController implements Initializable {
     @Override
     public void initialize(URL url, ResourceBundle rb) {
         operations = new Operations(calculator);
+        operations.setBudget(budget);
         stack = FXCollections.observableArrayList();
         functions = FXCollections.observableArrayList();
 
         historyList.setItems(stack);
+        historyList.setCellFactory(list -> new ComplexCell(
+                new ComplexFormatter(ComplexFormatter.DEFAULT_PRECISION, calculator.getSnapPolicy().snapsDisplay())));
         functionsList.setItems(functions);
         SimpleListProperty functionsProperty = new SimpleListProperty(functions);
 
@@ -90,24 +109,27 @@ public class GUI_FXMLController implements Initializable {
         deleteMenu.disableProperty().bind(functionsProperty.emptyProperty());
         saveMenu.disableProperty().bind(functionsProperty.emptyProperty());
         tabPane.getStyleClass().add("floating");
+        updateHistoryButtons();
     }
 
     @FXML
     private void onInsertPressed(ActionEvent event) {
-        String input = inputText.getText().trim().toLowerCase(); //get input from textField
+        String input = inputText.getText(); //get input from textField, the tokens are lowercased while they are read
         try {
-            Command comm = operations.getOperationsCommand(input); //search for an user or standard operation Command
             if (functionBox.isSelected()) { //if check box is selected
                 operations.parseOperations(input);
                 functions.setAll(operations.userOperationsNames());
-            } else if (comm != null) {
-                comm.execute();
-            } else {
-                calculator.insertNumber(input);
+            } else { //a line of numbers and operations, executed as a single operation that can be undone if it succeeds
+                calculator.executeUndoable(() -> operations.executeLine(input));
             }
 
             inputText.clear();
 
+        } catch (LineExecutionException ex) {
+            showAlertWarning(ex.getMessage());
+            //the line is kept with the failing token selected, so that it can be corrected
+            inputText.selectRange(ex.getPosition(), ex.getPosition() + ex.getToken().length());
+
         } catch (RuntimeException ex) {
 
             if (ex instanceof NumberFormatException) {
@@ -126,6 +148,26 @@ public class GUI_FXMLController implements Initializable {
 
         functionBox.setSelected(false);
         stack.setAll(calculator.getData());
+        updateHistoryButtons();
+    }
+
+    @FXML
+    private void onUndoPressed(ActionEvent event) {
+        calculator.undo();
+        stack.setAll(calculator.getData());
+        updateHistoryButtons();
+    }
+
+    @FXML
+    private void onRedoPressed(ActionEvent event) {
+        calculator.redo();
+        stack.setAll(calculator.getData());
+        updateHistoryButtons();
+    }
+
+    private void updateHistoryButtons() {
+        undoBtn.setDisable(!calculator.canUndo());
+        redoBtn.setDisable(!calculator.canRedo());
     }
 
     @FXML
@@ -384,4 +426,29 @@ public class GUI_FXMLController implements Initializable {
         }
         return s != null ? s.charAt(0) : null;
     }
+
+    /**
+     * Cell of the history list, that formats the numbers in a StringBuilder
+     * reused for each update.
+     */
+    private static class ComplexCell extends ListCell<Complex> {
+
+        private final ComplexFormatter formatter;
+        private final StringBuilder text = new StringBuilder();
+
+        ComplexCell(ComplexFormatter formatter) {
+            this.formatter = formatter;
+        }
+
+        @Override
+        protected void updateItem(Complex item, boolean empty) {
+            super.updateItem(item, empty);
+            if (empty || item == null) {
+                setText(null);
+            } else {
+                text.setLength(0);
+                setText(formatter.format(item.getReal(), item.getImaginary(), text).toString());
+            }
+        }
+    }
 }
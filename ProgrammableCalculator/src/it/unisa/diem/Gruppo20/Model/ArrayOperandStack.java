@@ -0,0 +1,103 @@
+package it.unisa.diem.Gruppo20.Model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * This class implements the OperandStack with two growable arrays of doubles,
+ * one for the real parts and one for the imaginary parts. The bottom of the
+ * stack is at index 0, so push and drop don't move any element.
+ *
+ * @author Team 20
+ */
+public class ArrayOperandStack implements OperandStack {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private double[] re;
+    private double[] im;
+    private int size;
+
+    /**
+     * Creates an empty stack.
+     */
+    public ArrayOperandStack() {
+        re = new double[INITIAL_CAPACITY];
+        im = new double[INITIAL_CAPACITY];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public double re(int depth) {
+        return re[index(depth)];
+    }
+
+    @Override
+    public double im(int depth) {
+        return im[index(depth)];
+    }
+
+    @Override
+    public void push(double re, double im) {
+        if (size == this.re.length) {
+            grow();
+        }
+        this.re[size] = re;
+        this.im[size] = im;
+        size++;
+    }
+
+    @Override
+    public void set(int depth, double re, double im) {
+        int i = index(depth);
+        this.re[i] = re;
+        this.im[i] = im;
+    }
+
+    @Override
+    public void drop(int n) {
+        Objects.checkFromIndexSize(0, n, size);
+        size -= n;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+    }
+
+    @Override
+    public void insert(int depth, double re, double im) {
+        Objects.checkIndex(depth, size + 1);
+        if (size == this.re.length) {
+            grow();
+        }
+        int i = size - depth;
+        System.arraycopy(this.re, i, this.re, i + 1, depth);
+        System.arraycopy(this.im, i, this.im, i + 1, depth);
+        this.re[i] = re;
+        this.im[i] = im;
+        size++;
+    }
+
+    @Override
+    public void remove(int depth) {
+        int i = index(depth);
+        System.arraycopy(re, i + 1, re, i, depth);
+        System.arraycopy(im, i + 1, im, i, depth);
+        size--;
+    }
+
+    private int index(int depth) {
+        return size - 1 - Objects.checkIndex(depth, size);
+    }
+
+    private void grow() {
+        int capacity = re.length * 2;
+        re = Arrays.copyOf(re, capacity);
+        im = Arrays.copyOf(im, capacity);
+    }
+}
@@ -0,0 +1,78 @@
+package it.unisa.diem.Gruppo20.Model;
+
+/**
+ * Concrete class that implements Command. Represents a standard operation of
+ * the Calculator identified by its opcode, so that it can be compiled into the
+ * code of a UserCommand.
+ *
+ * @author Team 20
+ */
+final class BuiltinCommand implements Command {
+
+    private final Calculator calculator;
+    private final int opcode;
+    private final int operand;
+    private final double real;
+    private final double imaginary;
+
+    /**
+     * Creates a command that performs the operation opcode on calculator.
+     *
+     * @param calculator The Calculator where the operation is performed.
+     * @param opcode The opcode of the operation.
+     * @param operand The name of the variable for the operations on
+     * variables, otherwise 0.
+     */
+    BuiltinCommand(Calculator calculator, int opcode, int operand) {
+        this(calculator, opcode, operand, 0.0, 0.0);
+    }
+
+    /**
+     * Creates a command that pushes the number real + imaginary*j on the stack
+     * of calculator.
+     *
+     * @param calculator The Calculator where the number is pushed.
+     * @param real The real part.
+     * @param imaginary The imaginary part.
+     */
+    BuiltinCommand(Calculator calculator, double real, double imaginary) {
+        this(calculator, Opcode.NUMBER, 0, real, imaginary);
+    }
+
+    private BuiltinCommand(Calculator calculator, int opcode, int operand, double real, double imaginary) {
+        this.calculator = calculator;
+        this.opcode = opcode;
+        this.operand = operand;
+        this.real = real;
+        this.imaginary = imaginary;
+    }
+
+    Calculator getCalculator() {
+        return calculator;
+    }
+
+    int getOpcode() {
+        return opcode;
+    }
+
+    int getOperand() {
+        return operand;
+    }
+
+    double getReal() {
+        return real;
+    }
+
+    double getImaginary() {
+        return imaginary;
+    }
+
+    @Override
+    public void execute() {
+        if (opcode == Opcode.NUMBER) {
+            calculator.insertNumber(real, imaginary);
+        } else {
+            Interpreter.execute(calculator, opcode, operand);
+        }
+    }
+}
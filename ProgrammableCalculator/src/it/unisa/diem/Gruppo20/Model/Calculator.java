@@ -1,7 +1,9 @@
 package it.unisa.diem.Gruppo20.Model;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 /**
@@ -13,25 +15,210 @@ import java.util.NoSuchElementException;
  */
 public class Calculator {
 
+    /**
+     * The number of states kept by default for undo.
+     */
+    public static final int DEFAULT_HISTORY_LIMIT = 100;
+
+    private final JournaledOperandStack stack;
     private final Deque<Complex> data;
     private final Variables var;
+    private final ComplexScanner scanner;
+    private SnapPolicy snapPolicy;
+    private final Deque<State> undoHistory;
+    private final Deque<State> redoHistory;
+    private State pending; // state saved by executeUndoable while its command runs
+    private int historyLimit;
 
     /**
      * Initialize the Calculator with an empty stack and new Variables object.
+     * Trigonometric residues are snapped to zero while computing.
      */
     public Calculator() {
-        data = new ArrayDeque<>();
+        this(new ArrayOperandStack());
+    }
+
+    /**
+     * Initialize the Calculator with the stack passed as param, for example a
+     * SpillingOperandStack for very deep stacks, and new Variables object.
+     * Trigonometric residues are snapped to zero while computing.
+     *
+     * @param stack The OperandStack used by the Calculator.
+     */
+    public Calculator(OperandStack stack) {
+        this.stack = new JournaledOperandStack(stack);
+        data = new OperandStackDeque(this.stack);
         var = new Variables();
+        var.enableJournal();
+        scanner = new ComplexScanner();
+        snapPolicy = SnapPolicy.COMPUTE;
+        undoHistory = new ArrayDeque<>();
+        redoHistory = new ArrayDeque<>();
+        historyLimit = DEFAULT_HISTORY_LIMIT;
     }
 
+    /**
+     * Returns a live view of the stack, where the first element is the top.
+     * The elements are new Complex numbers, so modifying them doesn't change
+     * the stack.
+     *
+     * @return A Deque of Complex.
+     */
     public Deque<Complex> getData() {
         return data;
     }
 
+    /**
+     * Returns the stack used by the Calculator. The changes made through it
+     * are part of the operation executed by executeAtomically.
+     *
+     * @return An OperandStack, the top is at depth 0.
+     */
+    public OperandStack getStack() {
+        return stack;
+    }
+
     public Variables getVariables() {
         return var;
     }
 
+    public SnapPolicy getSnapPolicy() {
+        return snapPolicy;
+    }
+
+    /**
+     * Sets how the trigonometric residues are snapped to zero by the
+     * operations performed from now on.
+     *
+     * @param snapPolicy The new SnapPolicy.
+     * @throws NullPointerException if snapPolicy is null.
+     */
+    public void setSnapPolicy(SnapPolicy snapPolicy) {
+        if (snapPolicy == null) {
+            throw new NullPointerException();
+        }
+        this.snapPolicy = snapPolicy;
+    }
+
+    public int getHistoryLimit() {
+        return historyLimit;
+    }
+
+    /**
+     * Sets the maximum number of states kept for undo, the oldest ones are
+     * discarded.
+     *
+     * @param historyLimit The maximum number of states, 0 disables undo.
+     * @throws IllegalArgumentException if historyLimit is negative.
+     */
+    public void setHistoryLimit(int historyLimit) {
+        if (historyLimit < 0) {
+            throw new IllegalArgumentException("The history limit can't be negative.");
+        }
+        this.historyLimit = historyLimit;
+        while (undoHistory.size() > historyLimit) {
+            undoHistory.removeLast();
+        }
+        while (redoHistory.size() > historyLimit) {
+            redoHistory.removeLast();
+        }
+    }
+
+    /**
+     * Saves the current state of the stack and of the variables, so that it
+     * can be restored by undo, and discards the states that could be restored
+     * by redo. It must be called before each operation that can be undone.
+     * With a PersistentOperandStack it takes constant time and memory.
+     */
+    public void checkpoint() {
+        redoHistory.clear();
+        push(undoHistory, currentState());
+        trimJournal();
+    }
+
+    /**
+     * Executes the command passed as param atomically as an operation that
+     * can be undone: the state before the call is saved for undo, and the
+     * states that could be restored by redo are discarded, only if the command
+     * succeeds. If it throws an exception the history isn't changed.
+     *
+     * @param command The command to execute.
+     */
+    public void executeUndoable(Command command) {
+        State state = currentState();
+        pending = state;
+        try {
+            executeAtomically(command);
+        } finally {
+            pending = null;
+        }
+        redoHistory.clear();
+        push(undoHistory, state);
+        trimJournal();
+    }
+
+    /**
+     * Restores the state saved by the last checkpoint.
+     *
+     * @throws NoSuchElementException if there aren't operations to undo.
+     */
+    public void undo() throws NoSuchElementException {
+        if (undoHistory.isEmpty()) {
+            throw new NoSuchElementException("There aren't operations to undo.");
+        }
+        push(redoHistory, currentState());
+        restoreState(undoHistory.pop());
+    }
+
+    /**
+     * Restores the state replaced by the last undo.
+     *
+     * @throws NoSuchElementException if there aren't operations to redo.
+     */
+    public void redo() throws NoSuchElementException {
+        if (redoHistory.isEmpty()) {
+            throw new NoSuchElementException("There aren't operations to redo.");
+        }
+        push(undoHistory, currentState());
+        restoreState(redoHistory.pop());
+    }
+
+    public boolean canUndo() {
+        return !undoHistory.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redoHistory.isEmpty();
+    }
+
+    /**
+     * Executes the command passed as param as a single operation: if it throws
+     * an exception the stack and the variables are brought back to the state
+     * they had before the call. Only the elements of the stack and the
+     * variables modified by the command are saved, so the cost doesn't depend
+     * on the size of the stack. Nested calls are part of the outermost one.
+     *
+     * @param command The command to execute.
+     */
+    public void executeAtomically(Command command) {
+        if (stack.isActive()) {
+            command.execute();
+            return;
+        }
+        Variables.Snapshot variables = var.snapshot();
+        stack.begin();
+        try {
+            command.execute();
+            stack.commit();
+        } catch (RuntimeException | Error ex) {
+            stack.rollback();
+            var.restoreSnapshot(variables);
+            throw ex;
+        } finally {
+            trimJournal();
+        }
+    }
+
     /**
      * Executes the parsing of the string passed as param. String
      * that contains a command to be executed by Calculator. 
@@ -119,32 +306,6 @@ public class Calculator {
         }
     }
 
-    private double findImaginary(String input) {
-        switch (input) {
-            case "j", "+j" -> {
-                return 1.0;
-            }
-            case "-j" -> {
-                return -1.0;
-            }
-            default -> {
-                int jIndex = input.indexOf("j");
-                String number;
-
-                if (jIndex == 0) { // imaginary part inserted in form jb
-                    number = input.substring(1, input.length());
-                } else if (jIndex == 1 && (0 == input.indexOf("+") || 0 == input.indexOf("-"))) { // imaginary part inserted in form +jb or -jb
-                    number = input.substring(0, jIndex).concat(input.substring(jIndex + 1, input.length()));
-                } else if (jIndex == input.length() - 1) { // imaginary part inserted in form bj
-                    number = input.substring(0, jIndex);
-                } else {
-                    number = input;
-                }
-                return Double.parseDouble(number);
-            }
-        }
-    }
-
     /**
      * Extracts the real and imaginary part from a complex number passed as
      * param analysing all combinations of them.
@@ -155,30 +316,8 @@ public class Calculator {
      * number.
      */
     public Complex parseNumber(String number) {
-        Double real = 0.0;
-        Double imaginary = 0.0;
-        int jIndex = number.indexOf("j");
-
-        if (jIndex == -1) { // the string represent a real pure number
-            real = Double.parseDouble(number);
-        } else if (number.indexOf("+", 1) == number.indexOf("-", 1)) {// the string passed is an imaginary pure number
-            imaginary = findImaginary(number);
-        } else { // the case in which both real and imaginary part are present inside the string
-            int signIndex = number.indexOf("+", 1); //the first char of a string could be a sign +
-
-            if (signIndex == -1) {
-                signIndex = number.indexOf("-", 1); //the first char of a string could be a sign -
-            }
-            if (signIndex > jIndex) { // if there is the imaginary part first and real part later
-                real = Double.parseDouble(number.substring(signIndex, number.length()));
-                imaginary = findImaginary(number.substring(0, signIndex));
-            } else if (signIndex < jIndex) { // the number is inserted in format a+bj
-                real = Double.parseDouble(number.substring(0, signIndex));
-                imaginary = findImaginary(number.substring(signIndex, number.length()));
-            }
-        }
-
-        return new Complex(real, imaginary);
+        scanner.scan(number);
+        return Complex.of(scanner.getReal(), scanner.getImaginary());
     }
 
     /**
@@ -187,7 +326,17 @@ public class Calculator {
      * @param number The complex number that must be pushed onto the stack.
      */
     public void insertNumber(Complex number) {
-        data.push(number);
+        stack.push(number.getReal(), number.getImaginary());
+    }
+
+    /**
+     * Pushes the complex number real + imaginary*j onto the stack.
+     *
+     * @param real The real part of the number.
+     * @param imaginary The imaginary part of the number.
+     */
+    public void insertNumber(double real, double imaginary) {
+        stack.push(real, imaginary);
     }
 
     /**
@@ -197,7 +346,8 @@ public class Calculator {
      * @param input The complex number that must be pushed onto the stack.
      */
     public void insertNumber(String input) {
-        data.push(parseNumber(input.replaceAll("\\s+", "").toLowerCase()));
+        scanner.scan(input);
+        stack.push(scanner.getReal(), scanner.getImaginary());
     }
 
     /**
@@ -209,11 +359,17 @@ public class Calculator {
      */
     public void sum() {
         checkStackSize(2);
+        sumUnchecked();
+    }
 
-        Complex last = data.pop();
-        Complex secondLast = data.pop();
+    /**
+     * Performs sum() on a stack that has at least 2 elements.
+     */
+    void sumUnchecked() {
+        checkNumbers(2);
 
-        data.push(secondLast.plus(last));
+        stack.set(1, stack.re(1) + stack.re(0), stack.im(1) + stack.im(0));
+        stack.drop(1);
     }
 
     /**
@@ -225,11 +381,17 @@ public class Calculator {
      */
     public void subtract() {
         checkStackSize(2);
+        subtractUnchecked();
+    }
 
-        Complex last = data.pop();
-        Complex secondLast = data.pop();
+    /**
+     * Performs subtract() on a stack that has at least 2 elements.
+     */
+    void subtractUnchecked() {
+        checkNumbers(2);
 
-        data.push(secondLast.minus(last));
+        stack.set(1, stack.re(1) - stack.re(0), stack.im(1) - stack.im(0));
+        stack.drop(1);
     }
 
     /**
@@ -239,11 +401,22 @@ public class Calculator {
      */
     public void multiply() {
         checkStackSize(2);
+        multiplyUnchecked();
+    }
+
+    /**
+     * Performs multiply() on a stack that has at least 2 elements.
+     */
+    void multiplyUnchecked() {
+        checkNumbers(2);
 
-        Complex last = data.pop();
-        Complex secondLast = data.pop();
+        double a = stack.re(1);
+        double b = stack.im(1);
+        double c1 = stack.re(0);
+        double d = stack.im(0);
 
-        data.push(secondLast.multiply(last));
+        stack.set(1, a * c1 - b * d, a * d + b * c1);
+        stack.drop(1);
     }
 
     /**
@@ -253,11 +426,26 @@ public class Calculator {
      */
     public void division() {
         checkStackSize(2);
+        divisionUnchecked();
+    }
 
-        Complex last = data.pop();
-        Complex secondLast = data.pop();
+    /**
+     * Performs division() on a stack that has at least 2 elements.
+     */
+    void divisionUnchecked() {
+        checkNumbers(2);
 
-        data.push(secondLast.division(last));
+        double a = stack.re(1);
+        double b = stack.im(1);
+        double c1 = stack.re(0);
+        double d = stack.im(0);
+        if (c1 == 0 && d == 0) {
+            throw new ArithmeticException("Divider can't be 0.");
+        }
+
+        double div = c1 * c1 + d * d;
+        stack.set(1, (a * c1 + b * d) / div, (b * c1 - a * d) / div);
+        stack.drop(1);
     }
 
     /**
@@ -267,7 +455,7 @@ public class Calculator {
     public void sqrt() {
         checkStackSize(1);
 
-        data.push(data.pop().squareRoot());
+        setTop(stack.get(0).squareRoot(snapPolicy));
     }
 
     /**
@@ -275,15 +463,42 @@ public class Calculator {
      */
     public void invertSign() {
         checkStackSize(1);
+        invertSignUnchecked();
+    }
+
+    /**
+     * Performs invertSign() on a stack that has at least 1 element.
+     */
+    void invertSignUnchecked() {
+        checkNumbers(1);
+
+        stack.set(0, -stack.re(0), -stack.im(0));
+    }
+
+    /**
+     * Performs dup() and multiply() on a stack that has at least 1 element.
+     */
+    void squareUnchecked() {
+        checkNumbers(1);
 
-        data.push(data.pop().invert());
+        double a = stack.re(0);
+        double b = stack.im(0);
+        stack.set(0, a * a - b * b, a * b + b * a);
+    }
+
+    /**
+     * Performs the check of invertSign() on a stack that has at least 1
+     * element.
+     */
+    void checkNumberUnchecked() {
+        checkNumbers(1);
     }
 
     /**
      * Removes all elements from the stack.
      */
     public void clear() {
-        data.clear();
+        stack.clear();
     }
 
     /**
@@ -291,7 +506,14 @@ public class Calculator {
      */
     public void drop() {
         checkStackSize(1);
-        data.pop();
+        dropUnchecked();
+    }
+
+    /**
+     * Performs drop() on a stack that has at least 1 element.
+     */
+    void dropUnchecked() {
+        stack.drop(1);
     }
 
     /**
@@ -299,7 +521,14 @@ public class Calculator {
      */
     public void dup() {
         checkStackSize(1);
-        data.push(data.element());
+        dupUnchecked();
+    }
+
+    /**
+     * Performs dup() on a stack that has at least 1 element.
+     */
+    void dupUnchecked() {
+        stack.push(stack.re(0), stack.im(0));
     }
 
     /**
@@ -307,12 +536,17 @@ public class Calculator {
      */
     public void swap() {
         checkStackSize(2);
+        swapUnchecked();
+    }
 
-        Complex last = data.pop();
-        Complex secondLast = data.pop();
-
-        data.push(last);
-        data.push(secondLast);
+    /**
+     * Performs swap() on a stack that has at least 2 elements.
+     */
+    void swapUnchecked() {
+        double re = stack.re(0);
+        double im = stack.im(0);
+        stack.set(0, stack.re(1), stack.im(1));
+        stack.set(1, re, im);
     }
 
     /**
@@ -320,12 +554,14 @@ public class Calculator {
      */
     public void over() {
         checkStackSize(2);
+        overUnchecked();
+    }
 
-        Complex last = data.pop();
-        Complex secondLast = data.element();
-
-        data.push(last);
-        data.push(secondLast);
+    /**
+     * Performs over() on a stack that has at least 2 elements.
+     */
+    void overUnchecked() {
+        stack.push(stack.re(1), stack.im(1));
     }
 
     /**
@@ -336,7 +572,15 @@ public class Calculator {
      */
     public void pushVariable(char c) {
         checkStackSize(1);
-        var.setVariable(c, data.pop());
+        pushVariableUnchecked(c);
+    }
+
+    /**
+     * Performs pushVariable() on a stack that has at least 1 element.
+     */
+    void pushVariableUnchecked(char c) {
+        var.setVariable(c, stack.get(0));
+        stack.drop(1);
     }
 
     /**
@@ -357,7 +601,15 @@ public class Calculator {
      */
     public void sumVariable(char c) {
         checkStackSize(1);
-        var.sumVariable(c, data.pop());
+        sumVariableUnchecked(c);
+    }
+
+    /**
+     * Performs sumVariable() on a stack that has at least 1 element.
+     */
+    void sumVariableUnchecked(char c) {
+        var.sumVariable(c, stack.get(0));
+        stack.drop(1);
     }
 
     /**
@@ -368,7 +620,15 @@ public class Calculator {
      */
     public void subtractVariable(char c) {
         checkStackSize(1);
-        var.subVariable(c, data.pop());
+        subtractVariableUnchecked(c);
+    }
+
+    /**
+     * Performs subtractVariable() on a stack that has at least 1 element.
+     */
+    void subtractVariableUnchecked(char c) {
+        var.subVariable(c, stack.get(0));
+        stack.drop(1);
     }
 
     /**
@@ -391,7 +651,7 @@ public class Calculator {
      */
     public void mod() {
         checkStackSize(1);
-        data.push(new Complex(data.pop().mod(), 0.0));
+        stack.set(0, stack.get(0).mod(), 0.0);
     }
 
     /**
@@ -400,7 +660,7 @@ public class Calculator {
      */
     public void arg() {
         checkStackSize(1);
-        data.push(new Complex(data.pop().arg(), 0.0));
+        stack.set(0, stack.get(0).arg(), 0.0);
     }
 
     /**
@@ -409,7 +669,7 @@ public class Calculator {
      */
     public void cos() {
         checkStackSize(1);
-        data.push(data.pop().cos());
+        setTop(stack.get(0).cos(snapPolicy));
     }
 
     /**
@@ -418,7 +678,7 @@ public class Calculator {
      */
     public void arcCos() {
         checkStackSize(1);
-        data.push(data.pop().acos());
+        setTop(stack.get(0).acos(snapPolicy));
     }
 
     /**
@@ -427,7 +687,7 @@ public class Calculator {
      */
     public void sin() {
         checkStackSize(1);
-        data.push(data.pop().sin());
+        setTop(stack.get(0).sin(snapPolicy));
     }
 
     /**
@@ -436,7 +696,7 @@ public class Calculator {
      */
     public void arcSin() {
         checkStackSize(1);
-        data.push(data.pop().asin());
+        setTop(stack.get(0).asin(snapPolicy));
     }
 
     /**
@@ -445,7 +705,7 @@ public class Calculator {
      */
     public void tan() {
         checkStackSize(1);
-        data.push(data.pop().tan());
+        setTop(stack.get(0).tan(snapPolicy));
     }
 
     /**
@@ -454,7 +714,7 @@ public class Calculator {
      */
     public void arcTan() {
         checkStackSize(1);
-        data.push(data.pop().atan());
+        setTop(stack.get(0).atan());
     }
 
     /**
@@ -464,7 +724,7 @@ public class Calculator {
      */
     public void pow() {
         checkStackSize(1);
-        data.push(data.pop().pow(2));
+        setTop(stack.get(0).pow(2, snapPolicy));
     }
 
     /**
@@ -474,7 +734,7 @@ public class Calculator {
      */
     public void exp() {
         checkStackSize(1);
-        data.push(data.pop().exp());
+        setTop(stack.get(0).exp(snapPolicy));
     }
 
     /**
@@ -483,7 +743,104 @@ public class Calculator {
      */
     public void log() {
         checkStackSize(1);
-        data.push(data.pop().log());
+        setTop(stack.get(0).log());
+    }
+
+    /**
+     * Replaces the last two elements of the stack with 1 if they are equal,
+     * otherwise with 0.
+     */
+    public void equal() {
+        checkStackSize(2);
+        checkNumbers(2);
+        setComparison(stack.re(1) == stack.re(0) && stack.im(1) == stack.im(0));
+    }
+
+    /**
+     * Replaces the last two elements of the stack with 1 if they are
+     * different, otherwise with 0.
+     */
+    public void notEqual() {
+        checkStackSize(2);
+        checkNumbers(2);
+        setComparison(stack.re(1) != stack.re(0) || stack.im(1) != stack.im(0));
+    }
+
+    /**
+     * Replaces the last two elements of the stack with 1 if the second last is
+     * less than the last, otherwise with 0.
+     *
+     * @throws ArithmeticException if an operand isn't a real number.
+     */
+    public void lessThan() {
+        checkReals();
+        setComparison(stack.re(1) < stack.re(0));
+    }
+
+    /**
+     * Replaces the last two elements of the stack with 1 if the second last is
+     * greater than the last, otherwise with 0.
+     *
+     * @throws ArithmeticException if an operand isn't a real number.
+     */
+    public void greaterThan() {
+        checkReals();
+        setComparison(stack.re(1) > stack.re(0));
+    }
+
+    /**
+     * Replaces the last two elements of the stack with 1 if the second last is
+     * less than or equal to the last, otherwise with 0.
+     *
+     * @throws ArithmeticException if an operand isn't a real number.
+     */
+    public void lessOrEqual() {
+        checkReals();
+        setComparison(stack.re(1) <= stack.re(0));
+    }
+
+    /**
+     * Replaces the last two elements of the stack with 1 if the second last is
+     * greater than or equal to the last, otherwise with 0.
+     *
+     * @throws ArithmeticException if an operand isn't a real number.
+     */
+    public void greaterOrEqual() {
+        checkReals();
+        setComparison(stack.re(1) >= stack.re(0));
+    }
+
+    /**
+     * Removes the last element of the stack, it's the condition of if and
+     * while in a user-defined operation.
+     *
+     * @return true if the element isn't 0.
+     * @throws ArithmeticException if the element isn't a complex number.
+     */
+    boolean popCondition() {
+        checkStackSize(1);
+        checkNumbers(1);
+        boolean condition = stack.re(0) != 0 || stack.im(0) != 0;
+        stack.drop(1);
+        return condition;
+    }
+
+    /**
+     * Removes the last element of the stack, it's the number of repetitions
+     * of repeat in a user-defined operation.
+     *
+     * @return The number of repetitions.
+     * @throws ArithmeticException if the element isn't a non-negative
+     * integer.
+     */
+    long popRepetitions() {
+        checkStackSize(1);
+        double re = stack.re(0);
+        if (stack.im(0) != 0 || !(re >= 0) || re != Math.rint(re) || re > Long.MAX_VALUE) {
+            throw new ArithmeticException("The number of repetitions must be a non-negative integer.");
+        }
+        stack.drop(1);
+        return (long) re;
     }
 
     /**
@@ -493,8 +850,108 @@ public class Calculator {
      * @throws NoSuchElementException if there aren't enough elements.
      */
     private void checkStackSize(int k) throws NoSuchElementException {
-        if (data.size() < k) {
+        if (stack.size() < k) {
             throw new NoSuchElementException("To perform this operation you must have at least " + k + " numbers.");
         }
     }
+
+    /**
+     * Private method that checks that the last two elements of the stack are
+     * real numbers, so that they can be ordered.
+     *
+     * @throws ArithmeticException if an operand isn't a real number.
+     */
+    private void checkReals() throws ArithmeticException {
+        checkStackSize(2);
+        checkNumbers(2);
+        if (stack.im(1) != 0 || stack.im(0) != 0) {
+            throw new ArithmeticException("Only real numbers can be ordered.");
+        }
+    }
+
+    /**
+     * Replaces the last two elements of the stack with the result of a
+     * comparison.
+     */
+    private void setComparison(boolean result) {
+        stack.set(1, result ? 1.0 : 0.0, 0.0);
+        stack.drop(1);
+    }
+
+    /**
+     * Replaces the top of the stack with the number passed as param.
+     */
+    private void setTop(Complex c) {
+        stack.set(0, c.getReal(), c.getImaginary());
+    }
+
+    /**
+     * Private method that checks that the k elements on top of the stack are
+     * complex numbers, with the same messages of the operations of Complex.
+     *
+     * @param k Number of operands of the operation (1 or 2).
+     * @throws ArithmeticException if an operand is NaN.
+     */
+    private void checkNumbers(int k) throws ArithmeticException {
+        int first = k - 1;
+        if (Double.isNaN(stack.re(first)) || Double.isNaN(stack.im(first))) {
+            throw new ArithmeticException("This operand isn't a complex number.");
+        }
+        if (k == 2 && (Double.isNaN(stack.re(0)) || Double.isNaN(stack.im(0)))) {
+            throw new ArithmeticException("Second operand isn't a complex number.");
+        }
+    }
+
+    private State currentState() {
+        return new State(PersistentOperandStack.copyOf(stack.getStack()), var.snapshot());
+    }
+
+    private void restoreState(State state) {
+        state.stack.copyTo(stack.getStack());
+        var.restoreSnapshot(state.variables);
+    }
+
+    /**
+     * Discards the writes in the datasets of the variables that can't be
+     * restored by undo or redo anymore.
+     */
+    private void trimJournal() {
+        if (var.needsJournalTrim()) {
+            List<Variables.Snapshot> states = new ArrayList<>(undoHistory.size() + redoHistory.size() + 1);
+            if (pending != null) {
+                states.add(pending.variables);
+            }
+            for (State s : undoHistory) {
+                states.add(s.variables);
+            }
+            for (State s : redoHistory) {
+                states.add(s.variables);
+            }
+            var.trimJournal(states);
+        }
+    }
+
+    private void push(Deque<State> history, State state) {
+        if (historyLimit == 0) {
+            return;
+        }
+        if (history.size() == historyLimit) {
+            history.removeLast();
+        }
+        history.push(state);
+    }
+
+    /**
+     * State of the Calculator saved for undo and redo.
+     */
+    private static final class State {
+
+        private final PersistentOperandStack stack;
+        private final Variables.Snapshot variables;
+
+        private State(PersistentOperandStack stack, Variables.Snapshot variables) {
+            this.stack = stack;
+            this.variables = variables;
+        }
+    }
 }
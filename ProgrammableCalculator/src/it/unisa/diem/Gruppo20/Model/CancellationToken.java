@@ -0,0 +1,29 @@
+package it.unisa.diem.Gruppo20.Model;
+
+/**
+ * This class lets another thread stop the execution of a user-defined
+ * operation. The execution checks the token periodically and, once it's
+ * cancelled, throws an ExecutionAbortedException.
+ *
+ * @author Team 20
+ */
+public class CancellationToken {
+
+    private volatile boolean cancelled;
+
+    /**
+     * Requests to stop the executions that use this token.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns true if cancel() was called.
+     *
+     * @return A boolean.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
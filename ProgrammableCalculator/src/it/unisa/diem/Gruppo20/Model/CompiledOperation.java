@@ -0,0 +1,20 @@
+package it.unisa.diem.Gruppo20.Model;
+
+/**
+ * This interface represents a user-defined operation compiled to a class by
+ * the OperationCompiler.
+ *
+ * @author Team 20
+ */
+interface CompiledOperation {
+
+    /**
+     * Performs the operation on stack, if it can be performed without errors.
+     *
+     * @param stack The stack of the Calculator.
+     * @return true if the operation was performed, false if the stack has too
+     * few elements or an operation would throw an exception: in this case the
+     * stack isn't modified.
+     */
+    boolean execute(OperandStack stack);
+}
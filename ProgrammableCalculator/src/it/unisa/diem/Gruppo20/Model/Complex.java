@@ -1,21 +1,23 @@
 package it.unisa.diem.Gruppo20.Model;
 
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
-import java.util.Locale;
-import java.util.Objects;
-
 /**
  * This class is an abstraction of the Complex set numbers. It supports
- * arithmetic and trigonometic operations.
+ * arithmetic and trigonometic operations. Real and imaginary parts are stored
+ * as primitive doubles, so arithmetic never boxes its operands and every
+ * operation leaves them untouched.
  *
  * @author Team 20
  */
-public class Complex {
+public final class Complex {
 
     public static Complex ImaginaryUnit = new Complex(0d, 1d);
-    private Double real;
-    private Double imaginary;
+    private double real;
+    private double imaginary;
+    private static final double SNAP_ULPS = 4;
+    private static final double EXP_LIMIT = 709.0;
+    private static final int SIN = 0;
+    private static final int COS = 1;
+    private static final int TAN = 2;
 
     /**
      * Returns a new Complex object with 0 as real and imaginary values.
@@ -31,32 +33,54 @@ public class Complex {
      * @param real The real value of this new Complex.
      * @param imaginary The imaginary of this new Complex.
      */
-    public Complex(Double real, Double imaginary) {
+    public Complex(double real, double imaginary) {
         this.real = real;
         this.imaginary = imaginary;
     }
 
-    public Double getReal() {
+    /**
+     * Returns a Complex number with the given real and imaginary parts. This is
+     * the factory used by the model hot paths.
+     *
+     * @param real The real part.
+     * @param imaginary The imaginary part.
+     * @return A new Complex number.
+     */
+    public static Complex of(double real, double imaginary) {
+        return new Complex(real, imaginary);
+    }
+
+    /**
+     * Returns a pure real Complex number.
+     *
+     * @param real The real part.
+     * @return A new Complex number with imaginary part equals to 0.
+     */
+    public static Complex ofReal(double real) {
+        return new Complex(real, 0d);
+    }
+
+    public double getReal() {
         return real;
     }
 
-    public void setReal(Double real) {
+    public void setReal(double real) {
         this.real = real;
     }
 
-    public Double getImaginary() {
+    public double getImaginary() {
         return imaginary;
     }
 
-    public void setImaginary(Double imaginary) {
+    public void setImaginary(double imaginary) {
         this.imaginary = imaginary;
     }
 
     @Override
     public int hashCode() {
         int hash = 7;
-        hash = 59 * hash + Objects.hashCode(real);
-        hash = 59 * hash + Objects.hashCode(imaginary);
+        hash = 59 * hash + Double.hashCode(real);
+        hash = 59 * hash + Double.hashCode(imaginary);
         return hash;
     }
 
@@ -72,10 +96,10 @@ public class Complex {
             return false;
         }
         final Complex other = (Complex) obj;
-        if (!this.real.equals(other.real)) {
+        if (Double.doubleToLongBits(this.real) != Double.doubleToLongBits(other.real)) {
             return false;
         }
-        if (!this.imaginary.equals(other.imaginary)) {
+        if (Double.doubleToLongBits(this.imaginary) != Double.doubleToLongBits(other.imaginary)) {
             return false;
         }
         return true;
@@ -83,35 +107,7 @@ public class Complex {
 
     @Override
     public String toString() {
-        String s = "";
-        DecimalFormat format = new DecimalFormat("0.########");
-        format.setDecimalFormatSymbols(DecimalFormatSymbols.getInstance(Locale.US));
-
-        if (real == 0 && imaginary == 0) {
-            return "0";
-        }
-        
-        if(real.isNaN() && imaginary.isNaN())
-            return "Not A Number";
-        
-        if (real != 0 && !real.isNaN()) {
-            s = format.format(real);
-        }
-        
-        if (imaginary != 0 && !imaginary.isNaN()) {
-            if (imaginary > 0) {
-                s += "+";
-            }
-            s = s + format.format(imaginary) + "j";
-        }
-
-        s = s.replace("+", " + ");
-        s = s.replace("-", " - ");
-        if (s.charAt(0) == ' ') {
-            s = s.substring(1);
-        }
-
-        return s;
+        return ComplexFormatter.getDefault().format(this);
     }
 
     /**
@@ -125,7 +121,7 @@ public class Complex {
         double a = c.real;
         double b = c.imaginary;
 
-        return new Complex(a + real, b + imaginary);
+        return of(a + real, b + imaginary);
     }
 
     /**
@@ -139,7 +135,7 @@ public class Complex {
         double a = c.real;
         double b = c.imaginary;
 
-        return new Complex(real - a, imaginary - b);
+        return of(real - a, imaginary - b);
     }
 
     /**
@@ -158,7 +154,7 @@ public class Complex {
         double re = (a * c1 - b * d);
         double img = (a * d + b * c1);
 
-        return new Complex(re, img);
+        return of(re, img);
     }
 
     /**
@@ -182,7 +178,7 @@ public class Complex {
         double re = (a * c1 + b * d) / div;
         double img = (b * c1 - a * d) / div;
 
-        return new Complex(re, img);
+        return of(re, img);
     }
 
     /**
@@ -192,15 +188,22 @@ public class Complex {
      * @return A complex number.
      */
     public Complex squareRoot() {
+        return squareRoot(SnapPolicy.COMPUTE);
+    }
+
+    /**
+     * Implements the square root operation of a complex number, snapping the
+     * trigonometric residues as stated by policy.
+     *
+     * @param policy The SnapPolicy used for the computation.
+     * @return A complex number.
+     */
+    public Complex squareRoot(SnapPolicy policy) {
         notNaN(null);
         if(real == 0 && imaginary == 0)
             return new Complex();
         
-        double r = Math.sqrt(mod());
-        Complex phase = new Complex(arg() / 2, 0d);
-
-        //return new Complex(r * cosApproximation(phase / 2), r * sinApproximation(phase / 2));
-        return new Complex(r * phase.cos().real, r * phase.sin().real);
+        return polar(Math.sqrt(mod()), arg() / 2, policy.snapsComputation());
     }
 
     /**
@@ -210,7 +213,7 @@ public class Complex {
      */
     public Complex invert() {
         notNaN(null);
-        return new Complex(-1 * real, -1 * imaginary);
+        return of(-real, -imaginary);
     }
 
     /**
@@ -218,9 +221,9 @@ public class Complex {
      *
      * @return A double value that representing the module.
      */
-    public Double mod() {
+    public double mod() {
         notNaN(null);
-        return Math.sqrt(Math.pow(real, 2) + Math.pow(imaginary, 2));
+        return Math.sqrt(real * real + imaginary * imaginary);
     }
 
     /**
@@ -229,7 +232,7 @@ public class Complex {
      *
      * @return A double value that representing the phase.
      */
-    public Double arg() {
+    public double arg() {
         notNaN(null);
         if (real == 0 && imaginary > 0) {
             return Math.PI / 2;
@@ -252,12 +255,19 @@ public class Complex {
      * @return A Complex number represent the cos of this Complex number.
      */
     public Complex cos() {
-        notNaN(null);
+        return cos(SnapPolicy.COMPUTE);
+    }
 
-        Complex cos = new Complex();
-        cos.setReal(cosApproximation(real) * Math.cosh(imaginary));
-        cos.setImaginary(-1 * sinApproximation(real) * Math.sinh(imaginary));
-        return cos;
+    /**
+     * Performs the cos of this Complex number, snapping the residues as stated
+     * by policy.
+     *
+     * @param policy The SnapPolicy used for the computation.
+     * @return A Complex number represent the cos of this Complex number.
+     */
+    public Complex cos(SnapPolicy policy) {
+        notNaN(null);
+        return circular(real, imaginary, policy.snapsComputation(), COS);
     }
 
     /**
@@ -266,10 +276,21 @@ public class Complex {
      * @return A Complex number represent the acos of this Complex number.
      */
     public Complex acos() {
+        return acos(SnapPolicy.COMPUTE);
+    }
+
+    /**
+     * Performs the arccos of this Complex number, snapping the residues as
+     * stated by policy.
+     *
+     * @param policy The SnapPolicy used for the computation.
+     * @return A Complex number represent the acos of this Complex number.
+     */
+    public Complex acos(SnapPolicy policy) {
         notNaN(null);
         //acos(z) = pi/2 - asin(z)
         Complex halfPi = new Complex(Math.PI / 2, 0d);
-        return halfPi.minus(asin());
+        return halfPi.minus(asin(policy));
     }
 
     /**
@@ -278,12 +299,19 @@ public class Complex {
      * @return A Complex number represent the sin of this Complex number.
      */
     public Complex sin() {
-        notNaN(null);
+        return sin(SnapPolicy.COMPUTE);
+    }
 
-        Complex sin = new Complex();
-        sin.setReal(sinApproximation(real) * Math.cosh(imaginary));
-        sin.setImaginary(cosApproximation(real) * Math.sinh(imaginary));
-        return sin;
+    /**
+     * Performs the sin of this Complex number, snapping the residues as stated
+     * by policy.
+     *
+     * @param policy The SnapPolicy used for the computation.
+     * @return A Complex number represent the sin of this Complex number.
+     */
+    public Complex sin(SnapPolicy policy) {
+        notNaN(null);
+        return circular(real, imaginary, policy.snapsComputation(), SIN);
     }
 
     /**
@@ -292,10 +320,21 @@ public class Complex {
      * @return A Complex number represent the asin of this Complex number.
      */
     public Complex asin() {
+        return asin(SnapPolicy.COMPUTE);
+    }
+
+    /**
+     * Performs the arcsin of this Complex number, snapping the residues as
+     * stated by policy.
+     *
+     * @param policy The SnapPolicy used for the computation.
+     * @return A Complex number represent the asin of this Complex number.
+     */
+    public Complex asin(SnapPolicy policy) {
         notNaN(null);
         //asin(z) = j*ln(sqrt(1-z^2) - j*z)
         Complex one = new Complex(1d, 0d);
-        Complex square = (one.minus(pow(2))).squareRoot();
+        Complex square = (one.minus(pow(2, policy))).squareRoot(policy);
         Complex log = (square.minus(multiply(ImaginaryUnit))).log();
         return ImaginaryUnit.multiply(log);
     }
@@ -306,8 +345,19 @@ public class Complex {
      * @return A Complex number represent the tan of this Complex number.
      */
     public Complex tan() {
+        return tan(SnapPolicy.COMPUTE);
+    }
+
+    /**
+     * Performs the tan of this Complex number, snapping the residues as stated
+     * by policy.
+     *
+     * @param policy The SnapPolicy used for the computation.
+     * @return A Complex number represent the tan of this Complex number.
+     */
+    public Complex tan(SnapPolicy policy) {
         notNaN(null);
-        return sin().division(cos());
+        return circular(real, imaginary, policy.snapsComputation(), TAN);
     }
 
     /**
@@ -331,6 +381,18 @@ public class Complex {
      * @return A complex number.
      */
     public Complex pow(double grade) {
+        return pow(grade, SnapPolicy.COMPUTE);
+    }
+
+    /**
+     * Calculates the power of a specific degree 'n' of the complex number,
+     * snapping the trigonometric residues as stated by policy.
+     *
+     * @param grade The degree of the exponent of the power.
+     * @param policy The SnapPolicy used for the computation.
+     * @return A complex number.
+     */
+    public Complex pow(double grade, SnapPolicy policy) {
         notNaN(null);
         if (real == 0 && imaginary == 0) {
             if (grade == 0) {
@@ -340,18 +402,15 @@ public class Complex {
         }
 
         if (grade == 0) {
-            return new Complex(1d, 0d);
+            return ofReal(1d);
         }
         if (grade == 1) {
             return this;
         }
         if (imaginary == 0) {
-            return new Complex(Math.pow(real, grade), 0d);
+            return ofReal(Math.pow(real, grade));
         }
-        double r = Math.pow(mod(), grade);
-        Complex arg = new Complex(grade * arg(), 0d);
-
-        return new Complex(r * arg.cos().real, r * arg.sin().real);
+        return polar(Math.pow(mod(), grade), grade * arg(), policy.snapsComputation());
     }
 
     /**
@@ -360,16 +419,26 @@ public class Complex {
      * @return a Complex Number.
      */
     public Complex exp() {
+        return exp(SnapPolicy.COMPUTE);
+    }
+
+    /**
+     * Performs the exponential of a complex number z, snapping the
+     * trigonometric residues as stated by policy.
+     *
+     * @param policy The SnapPolicy used for the computation.
+     * @return a Complex Number.
+     */
+    public Complex exp(SnapPolicy policy) {
         notNaN(null);
         //exp(z)=e^x(cos(y)+jsen(y)) where z = x + jy
         double r = Math.exp(real);
 
         if (imaginary == 0) {
-            return new Complex(r, 0d);
+            return ofReal(r);
         }
 
-        Complex img = new Complex(imaginary, 0d);
-        return new Complex(r * img.cos().real, r * img.sin().real);
+        return polar(r, imaginary, policy.snapsComputation());
     }
 
     /**
@@ -383,41 +452,114 @@ public class Complex {
         if (real == 0 && imaginary == 0) {
             throw new ArithmeticException("Impossible to perform the log on this complex number.");
         }
-        return new Complex(Math.log(mod()), arg());
+        return of(Math.log(mod()), arg());
+    }
+
+    /**
+     * Returns the Complex number with modulus r and phase theta, that is
+     * r*(cos(theta)+jsin(theta)). It's the kernel shared by squareRoot, pow
+     * and exp.
+     *
+     * @param r The modulus.
+     * @param theta The phase, in radians.
+     * @param snap If the trigonometric residues must be snapped to zero.
+     * @return A new Complex number.
+     */
+    private static Complex polar(double r, double theta, boolean snap) {
+        return of(r * cosApproximation(theta, snap), r * sinApproximation(theta, snap));
+    }
+
+    /**
+     * Fused kernel of sin, cos and tan of x+jy. The sin and cos of x and the
+     * sinh and cosh of y are computed once, the hyperbolic ones from a single
+     * exponential, and then combined as requested by function:
+     * sin(z) = sin(x)cosh(y) + jcos(x)sinh(y),
+     * cos(z) = cos(x)cosh(y) - jsin(x)sinh(y), tan(z) = sin(z)/cos(z).
+     *
+     * @param x The real part of the argument.
+     * @param y The imaginary part of the argument.
+     * @param snap If the trigonometric residues must be snapped to zero.
+     * @param function One of SIN, COS or TAN.
+     * @return A new Complex number.
+     */
+    private static Complex circular(double x, double y, boolean snap, int function) {
+        double sin = sinApproximation(x, snap);
+        double cos = cosApproximation(x, snap);
+        double ay = Math.abs(y);
+        double cosh;
+        double sinh;
+
+        if (ay == 0) {
+            cosh = 1.0;
+            sinh = 0.0;
+        } else if (ay < EXP_LIMIT) {
+            // expm1 keeps sinh accurate when y is close to 0
+            double m = Math.expm1(ay);
+            double e = m + 1;
+            cosh = (e + 1 / e) / 2;
+            sinh = Math.copySign((m + m / e) / 2, y);
+        } else {
+            cosh = Math.cosh(y);
+            sinh = Math.sinh(y);
+        }
+
+        switch (function) {
+            case SIN:
+                return of(sin * cosh, cos * sinh);
+            case COS:
+                return of(cos * cosh, -sin * sinh);
+            default:
+                return of(sin * cosh, cos * sinh).division(of(cos * cosh, -sin * sinh));
+        }
     }
 
     /**
      * Returns the approximated cos of num, normally the Math.cos(pi/2) or
      * Math.cos(-pi/2) will return a very low floating point but not zero;
-     * instead this method returns 0.
+     * instead this method returns 0 when snap is true.
      *
      * @param num An angle, in radians.
-     * @return A Double represents the approximated cos of num.
+     * @param snap If the residue must be snapped to zero.
+     * @return A double represents the approximated cos of num.
      */
-    private Double cosApproximation(double num) {
-        DecimalFormat f = new DecimalFormat("0.##############E0");
-        f.setDecimalFormatSymbols(DecimalFormatSymbols.getInstance(Locale.US));
-        return (Double.valueOf(f.format((Math.cos(num) + 1))) - 1);
+    static double cosApproximation(double num, boolean snap) {
+        double cos = Math.cos(num);
+        return snap ? snapToZero(cos, num) : cos;
     }
 
     /**
      * Returns the approximated sin of num, normally the Math.sin(x * pi) with
      * x=1,2,3 ecc will return a very low floating point but not zero; instead
-     * this method returns 0.
+     * this method returns 0 when snap is true.
      *
      * @param num An angle, in radians.
-     * @return A Double represents the approximated sin of num.
+     * @param snap If the residue must be snapped to zero.
+     * @return A double represents the approximated sin of num.
+     */
+    static double sinApproximation(double num, boolean snap) {
+        double sin = Math.sin(num);
+        return snap ? snapToZero(sin, num) : sin;
+    }
+
+    /**
+     * Returns 0 if value is within the rounding error that Math.sin and
+     * Math.cos can make on angle, otherwise value itself. The error grows
+     * with the magnitude of the angle, so the tolerance is a few ulps of the
+     * angle (never less than a few ulps of 1).
+     *
+     * @param value The value computed by a trigonometric function.
+     * @param angle The argument of that function, in radians.
+     * @return The snapped value.
      */
-    private Double sinApproximation(double num) {
-        DecimalFormat f = new DecimalFormat("0.##############E0");
-        f.setDecimalFormatSymbols(DecimalFormatSymbols.getInstance(Locale.US));
-        return (Double.valueOf(f.format((Math.sin(num) + 1))) - 1);
+    private static double snapToZero(double value, double angle) {
+        double tolerance = SNAP_ULPS * Math.ulp(Math.max(1.0, Math.abs(angle)));
+        return Math.abs(value) <= tolerance ? 0.0 : value;
     }
     
     private void notNaN(Complex c) {
-        if(real.isNaN() || imaginary.isNaN())
+        if(Double.isNaN(real) || Double.isNaN(imaginary))
             throw new ArithmeticException("This operand isn't a complex number.");
-        if(c != null && (c.real.isNaN() || c.imaginary.isNaN()))
+        if(c != null && (Double.isNaN(c.real) || Double.isNaN(c.imaginary)))
             throw new ArithmeticException("Second operand isn't a complex number.");
     }
 
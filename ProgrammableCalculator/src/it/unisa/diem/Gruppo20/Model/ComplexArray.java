@@ -0,0 +1,279 @@
+package it.unisa.diem.Gruppo20.Model;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+
+/**
+ * This class represents an array of Complex numbers stored as two parallel
+ * arrays of doubles, one for the real parts and one for the imaginary parts.
+ * The bulk operations are tight loops over primitive arrays (see
+ * ComplexBatch), so they don't allocate a Complex per element and can be
+ * vectorized.
+ *
+ * @author Team 20
+ */
+public class ComplexArray {
+
+    private final double[] re;
+    private final double[] im;
+
+    /**
+     * Creates a new ComplexArray of length numbers, all equals to 0.
+     *
+     * @param length The number of elements.
+     */
+    public ComplexArray(int length) {
+        this.re = new double[length];
+        this.im = new double[length];
+    }
+
+    /**
+     * Creates a new ComplexArray backed by the two arrays passed as params,
+     * without copying them.
+     *
+     * @param re The real parts.
+     * @param im The imaginary parts.
+     * @throws IllegalArgumentException if the arrays have different length.
+     */
+    public ComplexArray(double[] re, double[] im) {
+        if (re.length != im.length) {
+            throw new IllegalArgumentException("Real and imaginary parts must have the same length.");
+        }
+        this.re = re;
+        this.im = im;
+    }
+
+    /**
+     * Returns a new ComplexArray that contains the numbers of c in iteration
+     * order. Passing Calculator.getData() the element 0 is the top of the
+     * stack.
+     *
+     * @param c The Complex numbers to copy.
+     * @return A new ComplexArray.
+     */
+    public static ComplexArray from(Collection<Complex> c) {
+        ComplexArray array = new ComplexArray(c.size());
+        int i = 0;
+        for (Complex number : c) {
+            array.re[i] = number.getReal();
+            array.im[i] = number.getImaginary();
+            i++;
+        }
+        return array;
+    }
+
+    /**
+     * Appends all the numbers of this array at the end of deque, in order.
+     *
+     * @param deque The Deque where the numbers are added.
+     */
+    public void copyTo(Deque<Complex> deque) {
+        for (int i = 0; i < re.length; i++) {
+            deque.addLast(Complex.of(re[i], im[i]));
+        }
+    }
+
+    /**
+     * Returns a new Deque that contains the numbers of this array, the element
+     * 0 is the first of the Deque.
+     *
+     * @return A new Deque of Complex.
+     */
+    public Deque<Complex> toDeque() {
+        Deque<Complex> deque = new ArrayDeque<>(re.length);
+        copyTo(deque);
+        return deque;
+    }
+
+    public int length() {
+        return re.length;
+    }
+
+    public double[] getReal() {
+        return re;
+    }
+
+    public double[] getImaginary() {
+        return im;
+    }
+
+    /**
+     * Returns the element i of this array.
+     *
+     * @param i The index of the element.
+     * @return A new Complex number.
+     */
+    public Complex get(int i) {
+        return Complex.of(re[i], im[i]);
+    }
+
+    /**
+     * Sets the element i of this array.
+     *
+     * @param i The index of the element.
+     * @param c The new value.
+     */
+    public void set(int i, Complex c) {
+        re[i] = c.getReal();
+        im[i] = c.getImaginary();
+    }
+
+    /**
+     * Implements the sum element by element between this array and c.
+     *
+     * @param c The other operand.
+     * @return A new ComplexArray with the results.
+     */
+    public ComplexArray plus(ComplexArray c) {
+        checkOperand(c);
+        ComplexArray result = new ComplexArray(re.length);
+        ComplexBatch.add(re, im, c.re, c.im, result.re, result.im, re.length);
+        return result;
+    }
+
+    /**
+     * Implements the subtraction element by element between this array and c.
+     *
+     * @param c The operand to subtract.
+     * @return A new ComplexArray with the results.
+     */
+    public ComplexArray minus(ComplexArray c) {
+        checkOperand(c);
+        ComplexArray result = new ComplexArray(re.length);
+        ComplexBatch.subtract(re, im, c.re, c.im, result.re, result.im, re.length);
+        return result;
+    }
+
+    /**
+     * Implements the multiplication element by element between this array and
+     * c.
+     *
+     * @param c The other operand.
+     * @return A new ComplexArray with the results.
+     */
+    public ComplexArray multiply(ComplexArray c) {
+        checkOperand(c);
+        ComplexArray result = new ComplexArray(re.length);
+        ComplexBatch.multiply(re, im, c.re, c.im, result.re, result.im, re.length);
+        return result;
+    }
+
+    /**
+     * Implements the division element by element between this array and c.
+     *
+     * @param c The dividends.
+     * @return A new ComplexArray with the results.
+     * @throws ArithmeticException if an element of c is 0.
+     */
+    public ComplexArray division(ComplexArray c) {
+        checkOperand(c);
+        for (int i = 0; i < re.length; i++) {
+            if (c.re[i] == 0 && c.im[i] == 0) {
+                throw new ArithmeticException("Divider can't be 0.");
+            }
+        }
+        ComplexArray result = new ComplexArray(re.length);
+        ComplexBatch.divide(re, im, c.re, c.im, result.re, result.im, re.length);
+        return result;
+    }
+
+    /**
+     * Calculates the module of every element of this array.
+     *
+     * @return An array of double with the modules.
+     */
+    public double[] mod() {
+        checkNumbers(this, "This operand isn't a complex number.");
+        double[] result = new double[re.length];
+        ComplexBatch.modulus(re, im, result, re.length);
+        return result;
+    }
+
+    /**
+     * Returns the phase in (-pi, pi] of every element of this array.
+     *
+     * @return An array of double with the phases.
+     * @throws ArithmeticException if an element is 0.
+     */
+    public double[] arg() {
+        checkNumbers(this, "This operand isn't a complex number.");
+        double[] result = new double[re.length];
+        for (int i = 0; i < re.length; i++) {
+            if (re[i] == 0 && im[i] == 0) {
+                throw new ArithmeticException("The phase is undefined.");
+            }
+            // adding 0.0 turns -0.0 into 0.0, so the phase of negative reals is pi
+            result[i] = Math.atan2(im[i] + 0.0, re[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Performs the exponential of every element of this array.
+     *
+     * @return A new ComplexArray with the results.
+     */
+    public ComplexArray exp() {
+        return exp(SnapPolicy.COMPUTE);
+    }
+
+    /**
+     * Performs the exponential of every element of this array, snapping the
+     * trigonometric residues as stated by policy.
+     *
+     * @param policy The SnapPolicy used for the computation.
+     * @return A new ComplexArray with the results.
+     */
+    public ComplexArray exp(SnapPolicy policy) {
+        checkNumbers(this, "This operand isn't a complex number.");
+        boolean snap = policy.snapsComputation();
+        ComplexArray result = new ComplexArray(re.length);
+        double[] rre = result.re;
+        double[] rim = result.im;
+        for (int i = 0; i < re.length; i++) {
+            double r = Math.exp(re[i]);
+            double y = im[i];
+            if (y == 0) {
+                rre[i] = r;
+            } else {
+                rre[i] = r * Complex.cosApproximation(y, snap);
+                rim[i] = r * Complex.sinApproximation(y, snap);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Performs the natural logarithm of every element of this array.
+     *
+     * @return A new ComplexArray with the results.
+     * @throws ArithmeticException if an element is 0.
+     */
+    public ComplexArray log() {
+        double[] phase = arg();
+        double[] module = mod();
+        for (int i = 0; i < module.length; i++) {
+            module[i] = Math.log(module[i]);
+        }
+        return new ComplexArray(module, phase);
+    }
+
+    private void checkOperand(ComplexArray c) {
+        if (c.re.length != re.length) {
+            throw new IllegalArgumentException("The operands must have the same length.");
+        }
+        checkNumbers(this, "This operand isn't a complex number.");
+        checkNumbers(c, "Second operand isn't a complex number.");
+    }
+
+    private static void checkNumbers(ComplexArray c, String message) {
+        boolean nan = false;
+        for (int i = 0; i < c.re.length; i++) {
+            nan |= Double.isNaN(c.re[i]) | Double.isNaN(c.im[i]);
+        }
+        if (nan) {
+            throw new ArithmeticException(message);
+        }
+    }
+}
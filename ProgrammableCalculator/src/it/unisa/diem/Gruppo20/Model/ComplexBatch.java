@@ -0,0 +1,146 @@
+package it.unisa.diem.Gruppo20.Model;
+
+import java.util.Objects;
+
+/**
+ * This class provides the batch operations on Complex numbers stored as split
+ * arrays of real and imaginary parts. When VectorComplexKernel has been
+ * compiled (it is in src-vector, built with -Dvector=true) and the module
+ * jdk.incubator.vector is available at runtime (--add-modules
+ * jdk.incubator.vector) the operations are performed with the Vector API,
+ * otherwise with scalar loops. The operations follow the IEEE 754 semantics
+ * (for example a division by 0 gives infinity or NaN), the checks on the
+ * operands are left to the caller.
+ *
+ * @author Team 20
+ */
+public final class ComplexBatch {
+
+    private static final ComplexKernel KERNEL = selectKernel();
+
+    private ComplexBatch() {
+    }
+
+    /**
+     * Returns true if the operations are performed with the Vector API.
+     *
+     * @return A boolean.
+     */
+    public static boolean isVectorized() {
+        return !(KERNEL instanceof ScalarComplexKernel);
+    }
+
+    /**
+     * Computes the sum of the first n elements of a and b, storing the results
+     * in out.
+     *
+     * @param aRe The real parts of the first operand.
+     * @param aIm The imaginary parts of the first operand.
+     * @param bRe The real parts of the second operand.
+     * @param bIm The imaginary parts of the second operand.
+     * @param outRe The array where the real parts of the results are stored.
+     * @param outIm The array where the imaginary parts of the results are
+     * stored.
+     * @param n The number of elements.
+     * @throws IndexOutOfBoundsException if an array has less than n elements.
+     */
+    public static void add(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] outRe, double[] outIm, int n) {
+        checkLength(n, aRe, aIm, bRe, bIm, outRe, outIm);
+        KERNEL.add(aRe, aIm, bRe, bIm, outRe, outIm, n);
+    }
+
+    /**
+     * Computes the subtraction a - b of the first n elements, storing the
+     * results in out.
+     *
+     * @param aRe The real parts of the first operand.
+     * @param aIm The imaginary parts of the first operand.
+     * @param bRe The real parts of the second operand.
+     * @param bIm The imaginary parts of the second operand.
+     * @param outRe The array where the real parts of the results are stored.
+     * @param outIm The array where the imaginary parts of the results are
+     * stored.
+     * @param n The number of elements.
+     * @throws IndexOutOfBoundsException if an array has less than n elements.
+     */
+    public static void subtract(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] outRe, double[] outIm, int n) {
+        checkLength(n, aRe, aIm, bRe, bIm, outRe, outIm);
+        KERNEL.subtract(aRe, aIm, bRe, bIm, outRe, outIm, n);
+    }
+
+    /**
+     * Computes the multiplication of the first n elements of a and b, storing
+     * the results in out.
+     *
+     * @param aRe The real parts of the first operand.
+     * @param aIm The imaginary parts of the first operand.
+     * @param bRe The real parts of the second operand.
+     * @param bIm The imaginary parts of the second operand.
+     * @param outRe The array where the real parts of the results are stored.
+     * @param outIm The array where the imaginary parts of the results are
+     * stored.
+     * @param n The number of elements.
+     * @throws IndexOutOfBoundsException if an array has less than n elements.
+     */
+    public static void multiply(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] outRe, double[] outIm, int n) {
+        checkLength(n, aRe, aIm, bRe, bIm, outRe, outIm);
+        KERNEL.multiply(aRe, aIm, bRe, bIm, outRe, outIm, n);
+    }
+
+    /**
+     * Computes the division a / b of the first n elements, storing the results
+     * in out.
+     *
+     * @param aRe The real parts of the dividend.
+     * @param aIm The imaginary parts of the dividend.
+     * @param bRe The real parts of the divider.
+     * @param bIm The imaginary parts of the divider.
+     * @param outRe The array where the real parts of the results are stored.
+     * @param outIm The array where the imaginary parts of the results are
+     * stored.
+     * @param n The number of elements.
+     * @throws IndexOutOfBoundsException if an array has less than n elements.
+     */
+    public static void divide(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] outRe, double[] outIm, int n) {
+        checkLength(n, aRe, aIm, bRe, bIm, outRe, outIm);
+        KERNEL.divide(aRe, aIm, bRe, bIm, outRe, outIm, n);
+    }
+
+    /**
+     * Computes the modulus of the first n elements of a, storing the results in
+     * out.
+     *
+     * @param aRe The real parts of the operand.
+     * @param aIm The imaginary parts of the operand.
+     * @param out The array where the results are stored.
+     * @param n The number of elements.
+     * @throws IndexOutOfBoundsException if an array has less than n elements.
+     */
+    public static void modulus(double[] aRe, double[] aIm, double[] out, int n) {
+        checkLength(n, aRe, aIm, out);
+        KERNEL.modulus(aRe, aIm, out, n);
+    }
+
+    private static void checkLength(int n, double[]... arrays) {
+        for (double[] array : arrays) {
+            Objects.checkFromIndexSize(0, n, array.length);
+        }
+    }
+
+    /**
+     * Returns the Vector API kernel if the module jdk.incubator.vector is in
+     * the boot layer, otherwise the scalar one. The vector kernel is loaded by
+     * name, so its class is never resolved when the module is missing.
+     */
+    private static ComplexKernel selectKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (ComplexKernel) Class.forName("it.unisa.diem.Gruppo20.Model.VectorComplexKernel")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError ex) {
+                // falls back to the scalar loops
+            }
+        }
+        return new ScalarComplexKernel();
+    }
+}
@@ -0,0 +1,205 @@
+package it.unisa.diem.Gruppo20.Model;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.FieldPosition;
+import java.util.Locale;
+
+/**
+ * This class formats Complex numbers as "a + bj", with at most precision
+ * decimal digits for each part. The numbers are written directly into a
+ * StringBuilder or an Appendable supplied by the caller; the common values are
+ * formatted with integer arithmetic, only the very large ones use a
+ * DecimalFormat that is cached for each thread. Objects of this class are
+ * immutable and can be shared between threads.
+ *
+ * @author Team 20
+ */
+public class ComplexFormatter {
+
+    /**
+     * The precision used by Complex.toString.
+     */
+    public static final int DEFAULT_PRECISION = 8;
+    /**
+     * The maximum precision supported.
+     */
+    public static final int MAX_PRECISION = 15;
+    private static final double FAST_LIMIT = 1e15;
+    private static final ComplexFormatter DEFAULT = new ComplexFormatter(DEFAULT_PRECISION, false);
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(StringBuilder::new);
+
+    private final int precision;
+    private final boolean hideResidues;
+    private final long pow10;
+    private final ThreadLocal<DecimalFormat> format;
+    private final ThreadLocal<StringBuffer> buffer;
+
+    /**
+     * Creates a ComplexFormatter that writes at most precision decimal digits.
+     *
+     * @param precision The maximum number of decimal digits, in [0,
+     * MAX_PRECISION].
+     * @param hideResidues If true, a part that is rounded to 0 is not written
+     * at all (for example "3" instead of "3 + 0j" or "- 0 + 1j"), as stated by
+     * SnapPolicy.snapsDisplay().
+     * @throws IllegalArgumentException if precision is out of range.
+     */
+    public ComplexFormatter(int precision, boolean hideResidues) {
+        if (precision < 0 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be in [0, " + MAX_PRECISION + "].");
+        }
+        this.precision = precision;
+        this.hideResidues = hideResidues;
+        long p = 1;
+        for (int i = 0; i < precision; i++) {
+            p *= 10;
+        }
+        this.pow10 = p;
+        this.format = ThreadLocal.withInitial(() -> {
+            DecimalFormat f = new DecimalFormat(precision == 0 ? "0" : "0." + "#".repeat(precision));
+            f.setDecimalFormatSymbols(DecimalFormatSymbols.getInstance(Locale.US));
+            return f;
+        });
+        this.buffer = ThreadLocal.withInitial(StringBuffer::new);
+    }
+
+    /**
+     * Returns the formatter used by Complex.toString.
+     *
+     * @return The default ComplexFormatter.
+     */
+    public static ComplexFormatter getDefault() {
+        return DEFAULT;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public boolean isHidingResidues() {
+        return hideResidues;
+    }
+
+    /**
+     * Returns the string that represents c.
+     *
+     * @param c The Complex number to format.
+     * @return A String.
+     */
+    public String format(Complex c) {
+        StringBuilder sb = BUILDER.get();
+        sb.setLength(0);
+        return format(c.getReal(), c.getImaginary(), sb).toString();
+    }
+
+    /**
+     * Appends to out the Complex number real + imaginary*j.
+     *
+     * @param real The real part.
+     * @param imaginary The imaginary part.
+     * @param out The Appendable where the number is written.
+     * @throws IOException if out fails to append.
+     */
+    public void format(double real, double imaginary, Appendable out) throws IOException {
+        if (out instanceof StringBuilder) {
+            format(real, imaginary, (StringBuilder) out);
+            return;
+        }
+        StringBuilder sb = BUILDER.get();
+        sb.setLength(0);
+        out.append(format(real, imaginary, sb));
+    }
+
+    /**
+     * Appends to sb the Complex number real + imaginary*j.
+     *
+     * @param real The real part.
+     * @param imaginary The imaginary part.
+     * @param sb The StringBuilder where the number is written.
+     * @return sb.
+     */
+    public StringBuilder format(double real, double imaginary, StringBuilder sb) {
+        if (hideResidues) {
+            real = isResidue(real) ? 0 : real;
+            imaginary = isResidue(imaginary) ? 0 : imaginary;
+        }
+        if (real == 0 && imaginary == 0) {
+            return sb.append('0');
+        }
+        boolean showReal = real != 0 && !Double.isNaN(real);
+        boolean showImaginary = imaginary != 0 && !Double.isNaN(imaginary);
+        if (!showReal && !showImaginary) {
+            return sb.append("Not A Number");
+        }
+
+        if (showReal) {
+            if (real < 0) {
+                sb.append("- ");
+            }
+            appendAbs(real, sb);
+        }
+        if (showImaginary) {
+            if (showReal) {
+                sb.append(' ');
+            }
+            sb.append(imaginary > 0 ? "+ " : "- ");
+            appendAbs(imaginary, sb);
+            sb.append('j');
+        }
+        return sb;
+    }
+
+    /**
+     * Returns true if value is written as 0 with this precision.
+     */
+    private boolean isResidue(double value) {
+        return Math.abs(value) * pow10 < 0.5;
+    }
+
+    /**
+     * Appends the absolute value of value with at most precision decimal
+     * digits and without trailing zeros.
+     */
+    private void appendAbs(double value, StringBuilder sb) {
+        double abs = Math.abs(value);
+        double scaled = abs * pow10;
+        if (!(scaled < FAST_LIMIT)) { // also infinity
+            StringBuffer b = buffer.get();
+            b.setLength(0);
+            sb.append(format.get().format(abs, b, new FieldPosition(0)));
+            return;
+        }
+
+        // abs * pow10 is exactly scaled + error, so the rounding (half even
+        // like DecimalFormat) is decided on the exact value: the fraction of
+        // scaled is exact, and error is smaller than the distance between 0.5
+        // and any other fraction, so it only matters on a tie
+        double error = Math.fma(abs, pow10, -scaled);
+        long digits = (long) scaled;
+        double rest = scaled - digits;
+        if (rest > 0.5 || (rest == 0.5 && (error > 0 || (error == 0 && (digits & 1) == 1)))) {
+            digits++;
+        }
+        sb.append(digits / pow10);
+        long fraction = digits % pow10;
+        if (fraction == 0) {
+            return;
+        }
+        int length = precision;
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            length--;
+        }
+        sb.append('.');
+        int fractionDigits = 1;
+        for (long f = fraction; f >= 10; f /= 10) {
+            fractionDigits++;
+        }
+        for (int i = fractionDigits; i < length; i++) { // leading zeros
+            sb.append('0');
+        }
+        sb.append(fraction);
+    }
+}
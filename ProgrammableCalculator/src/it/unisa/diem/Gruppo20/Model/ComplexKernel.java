@@ -0,0 +1,37 @@
+package it.unisa.diem.Gruppo20.Model;
+
+/**
+ * This interface represents an implementation of the bulk operations on
+ * Complex numbers stored as split arrays of real and imaginary parts. Every
+ * operation works on the first n elements of the arrays, the output arrays
+ * can be the same as the input ones.
+ *
+ * @author Team 20
+ */
+interface ComplexKernel {
+
+    /**
+     * Computes out = a + b.
+     */
+    public void add(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] outRe, double[] outIm, int n);
+
+    /**
+     * Computes out = a - b.
+     */
+    public void subtract(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] outRe, double[] outIm, int n);
+
+    /**
+     * Computes out = a * b.
+     */
+    public void multiply(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] outRe, double[] outIm, int n);
+
+    /**
+     * Computes out = a / b.
+     */
+    public void divide(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] outRe, double[] outIm, int n);
+
+    /**
+     * Computes out = |a|.
+     */
+    public void modulus(double[] aRe, double[] aIm, double[] out, int n);
+}
@@ -0,0 +1,249 @@
+package it.unisa.diem.Gruppo20.Model;
+
+/**
+ * This class parses the literals of Complex numbers accepted by the
+ * Calculator: a real part "a", an imaginary part "bj" or "jb" (also "j", "+j"
+ * and "-j"), or both of them in any order ("a+bj", "a-jb", "bj+a", ...). Each
+ * number can have a decimal point and an exponent ("1.5e-3"); blanks between
+ * the terms are ignored, the letters 'j' and 'e' can also be upper case.
+ *
+ * The literal is read in a single pass over a range of a CharSequence without
+ * creating intermediate strings: the parts are available as doubles after a
+ * call to scan. A ComplexScanner can be reused, but it can't be shared
+ * between threads.
+ *
+ * @author Team 20
+ */
+public class ComplexScanner {
+
+    /**
+     * Powers of ten exactly representable as double.
+     */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_DIGITS = 18;
+    private static final int MAX_EXPONENT = 9999;
+
+    private CharSequence input;
+    private int pos;
+    private int end;
+    private double real;
+    private double imaginary;
+    private boolean hasReal;
+    private boolean hasImaginary;
+
+    public double getReal() {
+        return real;
+    }
+
+    public double getImaginary() {
+        return imaginary;
+    }
+
+    /**
+     * Parses the whole string passed as param.
+     *
+     * @param input The literal to parse.
+     * @throws NumberFormatException if input isn't a valid Complex number.
+     */
+    public void scan(CharSequence input) {
+        scan(input, 0, input.length());
+    }
+
+    /**
+     * Parses the characters of input from start (inclusive) to end
+     * (exclusive). After the call the parts are returned by getReal and
+     * getImaginary.
+     *
+     * @param input The sequence that contains the literal.
+     * @param start The index of the first character of the literal.
+     * @param end The index after the last character of the literal.
+     * @throws NumberFormatException if the range isn't a valid Complex number.
+     * @throws IndexOutOfBoundsException if the range is out of input.
+     */
+    public void scan(CharSequence input, int start, int end) {
+        if (start < 0 || start > end || end > input.length()) {
+            throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") out of length " + input.length());
+        }
+        this.input = input;
+        this.pos = start;
+        this.end = end;
+        real = 0.0;
+        imaginary = 0.0;
+        hasReal = false;
+        hasImaginary = false;
+        try {
+            skipBlanks();
+            if (pos == end) {
+                throw error(start);
+            }
+            term(true, start);
+            skipBlanks();
+            if (pos < end) {
+                term(false, start);
+                skipBlanks();
+                if (pos < end) {
+                    throw error(start);
+                }
+            }
+        } finally {
+            this.input = null;
+        }
+    }
+
+    /**
+     * Reads a signed term, that is a real number or an imaginary number. The
+     * sign is optional only for the first term.
+     */
+    private void term(boolean first, int start) {
+        boolean negative = false;
+        char c = input.charAt(pos);
+        if (c == '+' || c == '-') {
+            negative = c == '-';
+            pos++;
+            skipBlanks();
+        } else if (!first) {
+            throw error(start);
+        }
+
+        boolean imaginaryTerm = false;
+        if (pos < end && isJ(input.charAt(pos))) { // jb, or j alone
+            imaginaryTerm = true;
+            pos++;
+        }
+        double value;
+        if (pos < end && isNumberStart(input.charAt(pos))) {
+            value = number(negative, start);
+            if (!imaginaryTerm && pos < end && isJ(input.charAt(pos))) { // bj
+                imaginaryTerm = true;
+                pos++;
+            }
+        } else if (imaginaryTerm) {
+            value = negative ? -1.0 : 1.0;
+        } else {
+            throw error(start);
+        }
+
+        if (imaginaryTerm) {
+            if (hasImaginary) {
+                throw error(start);
+            }
+            hasImaginary = true;
+            imaginary = value;
+        } else {
+            if (hasReal) {
+                throw error(start);
+            }
+            hasReal = true;
+            real = value;
+        }
+    }
+
+    /**
+     * Reads an unsigned decimal number with optional fraction and exponent.
+     * The first MAX_DIGITS significant digits are accumulated in a long: when
+     * the mantissa and the power of ten are both exactly representable the
+     * result is a single correctly rounded multiplication or division
+     * (Clinger's fast path), otherwise the digits are converted by
+     * Double.parseDouble.
+     */
+    private double number(boolean negative, int start) {
+        int numberStart = pos;
+        long mantissa = 0;
+        int digits = 0; // significant digits stored in mantissa
+        int exponent = 0;
+        boolean truncated = false;
+        boolean anyDigit = false;
+
+        char c;
+        while (pos < end && isDigit(c = input.charAt(pos))) {
+            anyDigit = true;
+            if (digits < MAX_DIGITS) {
+                if (mantissa != 0 || c != '0') {
+                    mantissa = mantissa * 10 + (c - '0');
+                    digits++;
+                }
+            } else {
+                exponent++;
+                truncated |= c != '0';
+            }
+            pos++;
+        }
+        if (pos < end && input.charAt(pos) == '.') {
+            pos++;
+            while (pos < end && isDigit(c = input.charAt(pos))) {
+                anyDigit = true;
+                if (digits < MAX_DIGITS) {
+                    if (mantissa != 0 || c != '0') {
+                        mantissa = mantissa * 10 + (c - '0');
+                        digits++;
+                    }
+                    exponent--;
+                } else {
+                    truncated |= c != '0';
+                }
+                pos++;
+            }
+        }
+        if (!anyDigit) {
+            throw error(start);
+        }
+        if (pos < end && (input.charAt(pos) == 'e' || input.charAt(pos) == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < end && (input.charAt(pos) == '+' || input.charAt(pos) == '-')) {
+                negativeExponent = input.charAt(pos) == '-';
+                pos++;
+            }
+            if (pos == end || !isDigit(input.charAt(pos))) {
+                throw error(start);
+            }
+            int e = 0;
+            while (pos < end && isDigit(c = input.charAt(pos))) {
+                if (e < MAX_EXPONENT) {
+                    e = e * 10 + (c - '0');
+                }
+                pos++;
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+
+        double value;
+        if (mantissa == 0) {
+            value = 0.0;
+        } else if (!truncated && mantissa <= MAX_EXACT_MANTISSA
+                && exponent >= -22 && exponent <= 22) {
+            value = exponent < 0
+                    ? mantissa / POWERS_OF_TEN[-exponent]
+                    : mantissa * POWERS_OF_TEN[exponent];
+        } else {
+            value = Double.parseDouble(input.subSequence(numberStart, pos).toString());
+        }
+        return negative ? -value : value;
+    }
+
+    private void skipBlanks() {
+        while (pos < end && Character.isWhitespace(input.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private static boolean isJ(char c) {
+        return c == 'j' || c == 'J';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isNumberStart(char c) {
+        return isDigit(c) || c == '.';
+    }
+
+    private NumberFormatException error(int start) {
+        return new NumberFormatException("Can't parse \"" + input.subSequence(start, end) + "\", try to reinsert it.");
+    }
+}
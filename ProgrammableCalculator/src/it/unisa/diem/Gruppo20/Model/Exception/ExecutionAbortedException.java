@@ -0,0 +1,27 @@
+package it.unisa.diem.Gruppo20.Model.Exception;
+
+/**
+ * Thrown when a user-defined operation is stopped because it exceeded its
+ * ExecutionBudget or because it was cancelled.
+ *
+ * @author Team 20
+ */
+public class ExecutionAbortedException extends ExecuteException {
+
+    /**
+     * Creates a new instance of <code>ExecutionAbortedException</code> without
+     * detail message.
+     */
+    public ExecutionAbortedException() {
+    }
+
+    /**
+     * Constructs an instance of <code>ExecutionAbortedException</code> with
+     * the specified detail message.
+     *
+     * @param msg the detail message.
+     */
+    public ExecutionAbortedException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,60 @@
+package it.unisa.diem.Gruppo20.Model.Exception;
+
+/**
+ * Thrown when a token of a line of operations can't be executed. It reports
+ * the position of the token in the line, the cause is the exception thrown by
+ * the token.
+ *
+ * @author Team 20
+ */
+public class LineExecutionException extends ExecuteException {
+
+    private final int index;
+    private final int position;
+    private final String token;
+
+    /**
+     * Constructs an instance of <code>LineExecutionException</code> for the
+     * token that failed.
+     *
+     * @param msg the detail message of the failure.
+     * @param index the index of the token in the line, from 0.
+     * @param position the index of the first character of the token.
+     * @param token the token.
+     * @param cause the exception thrown by the token.
+     */
+    public LineExecutionException(String msg, int index, int position, String token, RuntimeException cause) {
+        super("Token " + (index + 1) + " '" + token + "': " + msg);
+        initCause(cause);
+        this.index = index;
+        this.position = position;
+        this.token = token;
+    }
+
+    /**
+     * Returns the index of the token in the line, from 0.
+     *
+     * @return An index.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the index of the first character of the token in the line.
+     *
+     * @return An index.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns the token that failed.
+     *
+     * @return A String.
+     */
+    public String getToken() {
+        return token;
+    }
+}
@@ -0,0 +1,53 @@
+package it.unisa.diem.Gruppo20.Model;
+
+import java.time.Duration;
+
+/**
+ * This class represents the limits of a single execution of a user-defined
+ * operation: the number of steps of the Interpreter, the size of the stack and
+ * the time. When one of them is exceeded the execution throws an
+ * ExecutionAbortedException.
+ *
+ * @author Team 20
+ */
+public final class ExecutionBudget {
+
+    /**
+     * The budget without limits.
+     */
+    public static final ExecutionBudget UNLIMITED = new ExecutionBudget(Long.MAX_VALUE, Integer.MAX_VALUE, null);
+
+    private final long maxSteps;
+    private final int maxStackSize;
+    private final Duration timeout;
+
+    /**
+     * Creates a new ExecutionBudget.
+     *
+     * @param maxSteps Maximum number of instructions executed.
+     * @param maxStackSize Maximum number of elements on the stack.
+     * @param timeout Maximum duration of the execution, null if it isn't
+     * limited.
+     * @throws IllegalArgumentException if a limit is negative.
+     */
+    public ExecutionBudget(long maxSteps, int maxStackSize, Duration timeout) {
+        if (maxSteps < 0 || maxStackSize < 0 || timeout != null && timeout.isNegative()) {
+            throw new IllegalArgumentException("The limits of a budget can't be negative.");
+        }
+        this.maxSteps = maxSteps;
+        this.maxStackSize = maxStackSize;
+        this.timeout = timeout;
+    }
+
+    public long getMaxSteps() {
+        return maxSteps;
+    }
+
+    public int getMaxStackSize() {
+        return maxStackSize;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+}
@@ -0,0 +1,341 @@
+package it.unisa.diem.Gruppo20.Model;
+
+import it.unisa.diem.Gruppo20.Model.Exception.ExecuteException;
+import it.unisa.diem.Gruppo20.Model.Exception.ExecutionAbortedException;
+import java.util.Arrays;
+
+/**
+ * This class executes the code of the compiled UserCommand objects with a
+ * single loop that dispatches each instruction with a switch on its opcode.
+ * The calls to other user-defined operations don't use the Java stack: the
+ * caller is saved on an explicit call stack whose arrays are reused, so a step
+ * of the loop doesn't allocate memory.
+ *
+ * When the stack effect of the program is known, the size of the stack is
+ * checked once at the beginning; if it's large enough, the optimized code of
+ * the programs is executed and the standard operations are performed without
+ * checking it again, otherwise the original code is executed, so that it
+ * fails as the sequence of operations would do.
+ *
+ * Each thread has its own Interpreter. A run is reentrant: a Command executed
+ * by the loop can execute another UserCommand, that uses the call stack above
+ * the frames of the current run. The counters of the repeat loops and the
+ * registers used to execute a RegisterCode are reused too.
+ *
+ * A run can be limited by an ExecutionBudget and a CancellationToken: each
+ * step decrements a counter and checks the size of the stack, while the clock
+ * and the token are read every CHECK_INTERVAL steps. The limits are shared by
+ * the runs nested in the limited one.
+ *
+ * @author Team 20
+ */
+final class Interpreter {
+
+    /**
+     * Maximum number of nested calls of a run, it stops the user-defined
+     * operations that call themselves.
+     */
+    static final int MAX_CALL_DEPTH = 10_000;
+    /**
+     * Number of steps between two checks of the time and of the token.
+     */
+    static final int CHECK_INTERVAL = 1024;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final ThreadLocal<Interpreter> INTERPRETERS = ThreadLocal.withInitial(Interpreter::new);
+
+    private UserCommand.Program[] programs; // caller of each frame
+    private int[] pcs; // return address of each frame
+    private int depth;
+    private long[] repetitions; // repetitions left of each repeat being executed
+    private int loops;
+    private double[] re; // real parts of the registers
+    private double[] im;
+    private Limits limits; // null if the current run isn't limited
+
+    private Interpreter() {
+        programs = new UserCommand.Program[INITIAL_CAPACITY];
+        pcs = new int[INITIAL_CAPACITY];
+        repetitions = new long[INITIAL_CAPACITY];
+        re = new double[INITIAL_CAPACITY];
+        im = new double[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Executes command with the Interpreter of the current thread.
+     *
+     * @param command An executable UserCommand.
+     * @throws ExecuteException if command calls a user-defined operation that
+     * was deleted, or if the calls are nested too deeply.
+     */
+    static void run(UserCommand command) throws ExecuteException {
+        INTERPRETERS.get().execute(command);
+    }
+
+    /**
+     * Executes command with the Interpreter of the current thread, within
+     * budget. The runs nested in this one share its limits.
+     *
+     * @param command An executable UserCommand.
+     * @param budget The limits of the execution.
+     * @param token The token that cancels the execution, or null.
+     * @throws ExecuteException if command calls a user-defined operation that
+     * was deleted, or if the calls are nested too deeply.
+     * @throws ExecutionAbortedException if the budget is exceeded or token is
+     * cancelled.
+     */
+    static void run(UserCommand command, ExecutionBudget budget, CancellationToken token) throws ExecuteException {
+        Interpreter interpreter = INTERPRETERS.get();
+        Limits outer = interpreter.limits;
+        interpreter.limits = new Limits(budget, token);
+        try {
+            interpreter.limits.check();
+            interpreter.execute(command);
+        } finally {
+            interpreter.limits = outer;
+        }
+    }
+
+    /**
+     * Executes code on stack with the registers of the current thread.
+     *
+     * @param code The register form of a program.
+     * @param stack The stack of the Calculator of the program.
+     * @return false if the program must be executed by run(UserCommand), the
+     * stack isn't modified.
+     */
+    static boolean run(RegisterCode code, OperandStack stack) {
+        Interpreter interpreter = INTERPRETERS.get();
+        if (interpreter.re.length < code.registers) {
+            interpreter.re = new double[code.registers];
+            interpreter.im = new double[code.registers];
+        }
+        return code.execute(stack, interpreter.re, interpreter.im);
+    }
+
+    /**
+     * Performs the standard operation opcode on c.
+     *
+     * @param c The Calculator where the operation is performed.
+     * @param opcode The opcode of the operation, it can't be NUMBER, CALL or
+     * EXTERNAL.
+     * @param operand The name of the variable for the operations on variables.
+     */
+    static void execute(Calculator c, int opcode, int operand) {
+        switch (opcode) {
+            case Opcode.SUM -> c.sum();
+            case Opcode.SUBTRACT -> c.subtract();
+            case Opcode.MULTIPLY -> c.multiply();
+            case Opcode.DIVISION -> c.division();
+            case Opcode.INVERT_SIGN -> c.invertSign();
+            case Opcode.SQRT -> c.sqrt();
+            case Opcode.CLEAR -> c.clear();
+            case Opcode.DROP -> c.drop();
+            case Opcode.DUP -> c.dup();
+            case Opcode.SWAP -> c.swap();
+            case Opcode.OVER -> c.over();
+            case Opcode.PUSH_VARIABLE -> c.pushVariable((char) operand);
+            case Opcode.PULL_VARIABLE -> c.pullVariable((char) operand);
+            case Opcode.SUM_VARIABLE -> c.sumVariable((char) operand);
+            case Opcode.SUBTRACT_VARIABLE -> c.subtractVariable((char) operand);
+            case Opcode.SAVE_VARIABLES -> c.saveVariables();
+            case Opcode.RESTORE_VARIABLES -> c.restoreVariables();
+            case Opcode.MOD -> c.mod();
+            case Opcode.ARG -> c.arg();
+            case Opcode.COS -> c.cos();
+            case Opcode.ARC_COS -> c.arcCos();
+            case Opcode.SIN -> c.sin();
+            case Opcode.ARC_SIN -> c.arcSin();
+            case Opcode.TAN -> c.tan();
+            case Opcode.ARC_TAN -> c.arcTan();
+            case Opcode.POW -> c.pow();
+            case Opcode.EXP -> c.exp();
+            case Opcode.LOG -> c.log();
+            case Opcode.EQUAL -> c.equal();
+            case Opcode.NOT_EQUAL -> c.notEqual();
+            case Opcode.LESS_THAN -> c.lessThan();
+            case Opcode.GREATER_THAN -> c.greaterThan();
+            case Opcode.LESS_OR_EQUAL -> c.lessOrEqual();
+            case Opcode.GREATER_OR_EQUAL -> c.greaterOrEqual();
+            case Opcode.IF, Opcode.ELSE, Opcode.END, Opcode.REPEAT, Opcode.WHILE ->
+                throw new ExecuteException("This operation can be used only in a user-defined operation.");
+            default -> throw new IllegalArgumentException("Unknown opcode " + opcode + ".");
+        }
+    }
+
+    /**
+     * Performs the standard operation opcode on c, whose stack has enough
+     * elements for it. The operations whose cost is dominated by the
+     * computation still check the stack.
+     *
+     * @param c The Calculator where the operation is performed.
+     * @param opcode The opcode of the operation, it can't be NUMBER, CALL or
+     * EXTERNAL.
+     * @param operand The name of the variable for the operations on variables.
+     */
+    static void executeUnchecked(Calculator c, int opcode, int operand) {
+        switch (opcode) {
+            case Opcode.SUM -> c.sumUnchecked();
+            case Opcode.SUBTRACT -> c.subtractUnchecked();
+            case Opcode.MULTIPLY -> c.multiplyUnchecked();
+            case Opcode.DIVISION -> c.divisionUnchecked();
+            case Opcode.INVERT_SIGN -> c.invertSignUnchecked();
+            case Opcode.DROP -> c.dropUnchecked();
+            case Opcode.DUP -> c.dupUnchecked();
+            case Opcode.SWAP -> c.swapUnchecked();
+            case Opcode.OVER -> c.overUnchecked();
+            case Opcode.PUSH_VARIABLE -> c.pushVariableUnchecked((char) operand);
+            case Opcode.SUM_VARIABLE -> c.sumVariableUnchecked((char) operand);
+            case Opcode.SUBTRACT_VARIABLE -> c.subtractVariableUnchecked((char) operand);
+            case Opcode.SQUARE -> c.squareUnchecked();
+            case Opcode.CHECK_NUMBER -> c.checkNumberUnchecked();
+            default -> execute(c, opcode, operand);
+        }
+    }
+
+    private void execute(UserCommand command) {
+        int base = depth;
+        int loopBase = loops;
+        Limits limits = this.limits;
+        UserCommand.Program p = command.getProgram();
+        // the calls of a verified program are verified too
+        boolean unchecked = p.verified && p.calculator.getStack().size() >= p.required;
+        int[] code = unchecked ? p.fastCode : p.code;
+        int pc = 0;
+        try {
+            for (;;) {
+                if (pc == code.length) {
+                    if (depth == base) {
+                        return;
+                    }
+                    depth--;
+                    p = programs[depth];
+                    pc = pcs[depth];
+                    programs[depth] = null;
+                    code = unchecked ? p.fastCode : p.code;
+                    continue;
+                }
+                if (limits != null) {
+                    limits.step(p.calculator);
+                }
+                int opcode = code[pc];
+                int operand = code[pc + 1];
+                pc += 2;
+                switch (opcode) {
+                    case Opcode.NUMBER ->
+                        p.calculator.insertNumber(p.constants[operand], p.constants[operand + 1]);
+                    case Opcode.CALL -> {
+                        UserCommand callee = (UserCommand) p.targets[operand];
+                        if (!callee.isExecutable()) {
+                            throw new ExecuteException("This user-defined operation is trying to use a deleted user-defined operation.");
+                        }
+                        if (depth - base == MAX_CALL_DEPTH) {
+                            throw new ExecuteException("Too many nested user-defined operations, an operation may be calling itself.");
+                        }
+                        if (depth == programs.length) {
+                            programs = Arrays.copyOf(programs, depth * 2);
+                            pcs = Arrays.copyOf(pcs, depth * 2);
+                        }
+                        programs[depth] = p;
+                        pcs[depth] = pc;
+                        depth++;
+                        p = callee.getProgram();
+                        code = unchecked ? p.fastCode : p.code;
+                        pc = 0;
+                    }
+                    case Opcode.EXTERNAL ->
+                        p.targets[operand].execute();
+                    case Opcode.JUMP ->
+                        pc = operand;
+                    case Opcode.JUMP_IF_ZERO -> {
+                        if (!p.calculator.popCondition()) {
+                            pc = operand;
+                        }
+                    }
+                    case Opcode.REPEAT -> {
+                        long n = p.calculator.popRepetitions();
+                        if (n == 0) {
+                            pc = operand;
+                        } else {
+                            if (loops == repetitions.length) {
+                                repetitions = Arrays.copyOf(repetitions, loops * 2);
+                            }
+                            repetitions[loops++] = n;
+                        }
+                    }
+                    case Opcode.LOOP -> {
+                        if (--repetitions[loops - 1] > 0) {
+                            pc = operand;
+                        } else {
+                            loops--;
+                        }
+                    }
+                    default -> {
+                        if (unchecked) {
+                            executeUnchecked(p.calculator, opcode, operand);
+                        } else {
+                            execute(p.calculator, opcode, operand);
+                        }
+                    }
+                }
+            }
+        } finally {
+            Arrays.fill(programs, base, depth, null);
+            depth = base;
+            loops = loopBase;
+        }
+    }
+
+    /**
+     * The counters of a limited run.
+     */
+    private static final class Limits {
+
+        private final ExecutionBudget budget;
+        private final CancellationToken token;
+        private final long start;
+        private final long timeout; // in nanoseconds, or -1
+        private long steps;
+
+        private Limits(ExecutionBudget budget, CancellationToken token) {
+            this.budget = budget;
+            this.token = token;
+            this.start = System.nanoTime();
+            this.timeout = budget.getTimeout() == null ? -1 : saturatedNanos(budget);
+        }
+
+        private static long saturatedNanos(ExecutionBudget budget) {
+            try {
+                return budget.getTimeout().toNanos();
+            } catch (ArithmeticException ex) {
+                return Long.MAX_VALUE;
+            }
+        }
+
+        /**
+         * Counts a step executed on the stack of c.
+         */
+        private void step(Calculator c) throws ExecutionAbortedException {
+            if (++steps > budget.getMaxSteps()) {
+                throw new ExecutionAbortedException("The operation was stopped after " + budget.getMaxSteps() + " steps.");
+            }
+            if (c != null && c.getStack().size() > budget.getMaxStackSize()) {
+                throw new ExecutionAbortedException("The operation was stopped because the stack exceeded " + budget.getMaxStackSize() + " numbers.");
+            }
+            if (steps % CHECK_INTERVAL == 0) {
+                check();
+            }
+        }
+
+        /**
+         * Checks the token and the time.
+         */
+        private void check() throws ExecutionAbortedException {
+            if (token != null && token.isCancelled()) {
+                throw new ExecutionAbortedException("The operation was cancelled.");
+            }
+            if (timeout >= 0 && System.nanoTime() - start > timeout) {
+                throw new ExecutionAbortedException("The operation was stopped after " + budget.getTimeout().toMillis() + " ms.");
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package it.unisa.diem.Gruppo20.Model;
+
+import java.util.Arrays;
+
+/**
+ * This class is an OperandStack that forwards the operations to another stack
+ * and that, during a transaction, keeps a journal of the original elements
+ * that are overwritten or removed, so that the transaction can be rolled
+ * back.
+ *
+ * The elements of a stack are modified from the top, so the journal keeps the
+ * low-water mark: the elements below it were never touched by the
+ * transaction, while the original values of the elements between it and the
+ * size at the beginning of the transaction are saved the first time they are
+ * touched. The cost of a transaction is proportional to the number of touched
+ * elements, not to the size of the stack.
+ *
+ * @author Team 20
+ */
+class JournaledOperandStack implements OperandStack {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final OperandStack stack;
+    private boolean active;
+    private int base; // size of the stack when the transaction began
+    private int lowWater; // the elements below it are untouched, lowWater <= size()
+    private double[] savedRe; // original element at index i is at base - 1 - i
+    private double[] savedIm;
+
+    JournaledOperandStack(OperandStack stack) {
+        this.stack = stack;
+        savedRe = new double[INITIAL_CAPACITY];
+        savedIm = new double[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Returns the stack where the operations are forwarded.
+     */
+    OperandStack getStack() {
+        return stack;
+    }
+
+    boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Starts a transaction.
+     *
+     * @throws IllegalStateException if a transaction is already active.
+     */
+    void begin() {
+        if (active) {
+            throw new IllegalStateException("A transaction is already active.");
+        }
+        active = true;
+        base = stack.size();
+        lowWater = base;
+    }
+
+    /**
+     * Ends the transaction keeping all its changes.
+     */
+    void commit() {
+        active = false;
+    }
+
+    /**
+     * Ends the transaction restoring the stack as it was when it began.
+     */
+    void rollback() {
+        if (!active) {
+            throw new IllegalStateException("There isn't an active transaction.");
+        }
+        stack.drop(stack.size() - lowWater);
+        for (int i = lowWater; i < base; i++) {
+            stack.push(savedRe[base - 1 - i], savedIm[base - 1 - i]);
+        }
+        active = false;
+    }
+
+    @Override
+    public int size() {
+        return stack.size();
+    }
+
+    @Override
+    public double re(int depth) {
+        return stack.re(depth);
+    }
+
+    @Override
+    public double im(int depth) {
+        return stack.im(depth);
+    }
+
+    @Override
+    public void read(int depth, int n, double[] re, double[] im) {
+        stack.read(depth, n, re, im);
+    }
+
+    @Override
+    public void push(double re, double im) {
+        stack.push(re, im);
+    }
+
+    @Override
+    public void set(int depth, double re, double im) {
+        touch(stack.size() - 1 - depth);
+        stack.set(depth, re, im);
+    }
+
+    @Override
+    public void drop(int n) {
+        touch(stack.size() - n);
+        stack.drop(n);
+    }
+
+    @Override
+    public void clear() {
+        touch(0);
+        stack.clear();
+    }
+
+    @Override
+    public void insert(int depth, double re, double im) {
+        touch(stack.size() - depth);
+        stack.insert(depth, re, im);
+    }
+
+    @Override
+    public void remove(int depth) {
+        touch(stack.size() - 1 - depth);
+        stack.remove(depth);
+    }
+
+    /**
+     * Saves the original elements from index (counted from the bottom) to the
+     * low-water mark, before they are modified.
+     */
+    private void touch(int index) {
+        if (!active || index >= lowWater || index < 0) {
+            return;
+        }
+        int n = base - index;
+        if (n > savedRe.length) {
+            int capacity = Math.max(n, savedRe.length * 2);
+            savedRe = Arrays.copyOf(savedRe, capacity);
+            savedIm = Arrays.copyOf(savedIm, capacity);
+        }
+        int size = stack.size();
+        for (int i = lowWater - 1; i >= index; i--) {
+            savedRe[base - 1 - i] = stack.re(size - 1 - i);
+            savedIm[base - 1 - i] = stack.im(size - 1 - i);
+        }
+        lowWater = index;
+    }
+}
@@ -0,0 +1,214 @@
+package it.unisa.diem.Gruppo20.Model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * This class splits an input in tokens separated by whitespaces, scanning it
+ * once. Each token is lowercased only if it has uppercase letters, and it's
+ * classified while it's read: a standard operation has its opcode, found by a
+ * switch on the token (that the compiler turns in a lookup on the hash of the
+ * string), and the 104 operations on variables are recognized by their two
+ * characters; any other token is a word, that is the name of a user-defined
+ * operation or a number.
+ *
+ * @author Team 20
+ */
+final class Lexer {
+
+    /**
+     * The names of the standard operations, except the operations on
+     * variables.
+     */
+    static final List<String> STANDARD_OPERATIONS = List.of(
+            "+", "-", "*", "/", "+-", "sqrt", "clear", "dup", "drop", "swap", "over",
+            "mod", "arg", "cos", "sin", "tan", "acos", "asin", "atan", "pow", "exp", "log",
+            "save", "restore", "==", "!=", "<", ">", "<=", ">=",
+            "if", "else", "end", "repeat", "while");
+    /**
+     * Opcode of a word.
+     */
+    static final int WORD = -1;
+    /**
+     * Number of operations on variables: 4 operations for each variable.
+     */
+    static final int VARIABLE_OPERATIONS = 4 * ('z' - 'a' + 1);
+
+    private final String input;
+    private int position;
+    private int start;
+    private String token;
+    private int opcode;
+
+    /**
+     * Creates a Lexer for the characters of input from start.
+     *
+     * @param input The text to split.
+     * @param start The index of the first character.
+     */
+    Lexer(String input, int start) {
+        this.input = input;
+        this.position = start;
+    }
+
+    /**
+     * Moves to the next token.
+     *
+     * @return false if there are no other tokens.
+     */
+    boolean next() {
+        int length = input.length();
+        while (position < length && Character.isWhitespace(input.charAt(position))) {
+            position++;
+        }
+        if (position == length) {
+            token = null;
+            opcode = WORD;
+            return false;
+        }
+        start = position;
+        boolean upperCase = false;
+        for (char ch; position < length && !Character.isWhitespace(ch = input.charAt(position)); position++) {
+            upperCase |= Character.isUpperCase(ch);
+        }
+        token = input.substring(start, position);
+        if (upperCase) {
+            token = token.toLowerCase(Locale.ROOT);
+        }
+        opcode = opcode(token);
+        return true;
+    }
+
+    /**
+     * Returns the current token, lowercase.
+     *
+     * @return A String.
+     */
+    String token() {
+        return token;
+    }
+
+    /**
+     * Returns the index of the first character of the current token in the
+     * input.
+     *
+     * @return An index.
+     */
+    int start() {
+        return start;
+    }
+
+    /**
+     * Returns the opcode of the current token.
+     *
+     * @return The opcode of a standard operation, or WORD.
+     */
+    int opcode() {
+        return opcode;
+    }
+
+    /**
+     * Returns the opcode of the standard operation token.
+     *
+     * @param token A lowercase token.
+     * @return The opcode, or WORD if token isn't a standard operation.
+     */
+    static int opcode(String token) {
+        if (token.length() == 2 && token.charAt(1) >= 'a' && token.charAt(1) <= 'z') {
+            switch (token.charAt(0)) {
+                case '>' -> {
+                    return Opcode.PUSH_VARIABLE;
+                }
+                case '<' -> {
+                    return Opcode.PULL_VARIABLE;
+                }
+                case '+' -> {
+                    return Opcode.SUM_VARIABLE;
+                }
+                case '-' -> {
+                    return Opcode.SUBTRACT_VARIABLE;
+                }
+                default -> {
+                    // "if"
+                }
+            }
+        }
+        return switch (token) {
+            case "+" -> Opcode.SUM;
+            case "-" -> Opcode.SUBTRACT;
+            case "*" -> Opcode.MULTIPLY;
+            case "/" -> Opcode.DIVISION;
+            case "+-" -> Opcode.INVERT_SIGN;
+            case "sqrt" -> Opcode.SQRT;
+            case "clear" -> Opcode.CLEAR;
+            case "dup" -> Opcode.DUP;
+            case "drop" -> Opcode.DROP;
+            case "swap" -> Opcode.SWAP;
+            case "over" -> Opcode.OVER;
+            case "mod" -> Opcode.MOD;
+            case "arg" -> Opcode.ARG;
+            case "cos" -> Opcode.COS;
+            case "sin" -> Opcode.SIN;
+            case "tan" -> Opcode.TAN;
+            case "acos" -> Opcode.ARC_COS;
+            case "asin" -> Opcode.ARC_SIN;
+            case "atan" -> Opcode.ARC_TAN;
+            case "pow" -> Opcode.POW;
+            case "exp" -> Opcode.EXP;
+            case "log" -> Opcode.LOG;
+            case "save" -> Opcode.SAVE_VARIABLES;
+            case "restore" -> Opcode.RESTORE_VARIABLES;
+            case "==" -> Opcode.EQUAL;
+            case "!=" -> Opcode.NOT_EQUAL;
+            case "<" -> Opcode.LESS_THAN;
+            case ">" -> Opcode.GREATER_THAN;
+            case "<=" -> Opcode.LESS_OR_EQUAL;
+            case ">=" -> Opcode.GREATER_OR_EQUAL;
+            case "if" -> Opcode.IF;
+            case "else" -> Opcode.ELSE;
+            case "end" -> Opcode.END;
+            case "repeat" -> Opcode.REPEAT;
+            case "while" -> Opcode.WHILE;
+            default -> WORD;
+        };
+    }
+
+    /**
+     * Returns the index of the operation on a variable token among the
+     * VARIABLE_OPERATIONS ones.
+     *
+     * @param opcode The opcode of token, an operation on variables.
+     * @param token The token.
+     * @return An index from 0 to VARIABLE_OPERATIONS - 1.
+     */
+    static int variableIndex(int opcode, String token) {
+        return (opcode - Opcode.PUSH_VARIABLE) * ('z' - 'a' + 1) + token.charAt(1) - 'a';
+    }
+
+    /**
+     * Returns true if opcode is an operation on a variable.
+     *
+     * @param opcode An opcode.
+     * @return A boolean.
+     */
+    static boolean isVariableOperation(int opcode) {
+        return opcode >= Opcode.PUSH_VARIABLE && opcode <= Opcode.SUBTRACT_VARIABLE;
+    }
+
+    /**
+     * Returns the tokens of input.
+     *
+     * @param input The text to split.
+     * @param start The index of the first character.
+     * @return A List of lowercase String.
+     */
+    static List<String> tokens(String input, int start) {
+        Lexer lexer = new Lexer(input, start);
+        List<String> tokens = new ArrayList<>();
+        while (lexer.next()) {
+            tokens.add(lexer.token());
+        }
+        return tokens;
+    }
+}
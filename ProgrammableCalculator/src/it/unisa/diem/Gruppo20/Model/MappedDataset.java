@@ -0,0 +1,242 @@
+package it.unisa.diem.Gruppo20.Model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * This class is a sequence of Complex numbers stored in a binary file as
+ * interleaved doubles (real part, imaginary part) in little-endian order, as
+ * written for example by numpy's complex128. The file is mapped in memory with
+ * FileChannel.map in chunks, and the elements are read and written directly in
+ * the mapped buffers: the data is never copied on the heap, so a dataset can be
+ * larger than the heap. A dataset can be bound to a variable (see
+ * Variables.bind) to be read and written by the operations on variables.
+ *
+ * An object of this class can't be shared between threads that write it.
+ *
+ * @author Team 20
+ */
+public class MappedDataset implements Closeable {
+
+    /**
+     * Number of elements of a mapped chunk of the file, a power of 2.
+     */
+    private static final int CHUNK = 1 << 24;
+    private static final int SHIFT = Integer.numberOfTrailingZeros(CHUNK);
+    private static final long ELEMENT_BYTES = 2L * Double.BYTES;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] buffers;
+    private final DoubleBuffer[] chunks; // views of buffers
+    private final long length;
+    private final boolean writable;
+    private boolean closed;
+
+    private MappedDataset(FileChannel channel, long length, boolean writable) throws IOException {
+        this.channel = channel;
+        this.length = length;
+        this.writable = writable;
+        FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        buffers = new MappedByteBuffer[(int) ((length + CHUNK - 1) >>> SHIFT)];
+        chunks = new DoubleBuffer[buffers.length];
+        for (int i = 0; i < chunks.length; i++) {
+            long first = (long) i << SHIFT;
+            long size = Math.min(CHUNK, length - first) * ELEMENT_BYTES;
+            buffers[i] = channel.map(mode, first * ELEMENT_BYTES, size);
+            chunks[i] = buffers[i].order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        }
+    }
+
+    /**
+     * Maps an existing file of interleaved doubles.
+     *
+     * @param file The file of the dataset.
+     * @param writable true if the elements can be modified, the changes are
+     * written in the file.
+     * @return A MappedDataset with an element for each pair of doubles.
+     * @throws IOException if the file can't be opened or its size isn't a
+     * multiple of 16 bytes.
+     */
+    public static MappedDataset open(Path file, boolean writable) throws IOException {
+        FileChannel channel = writable
+                ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size % ELEMENT_BYTES != 0) {
+                throw new IOException("The size of " + file + " isn't a multiple of " + ELEMENT_BYTES + " bytes.");
+            }
+            return new MappedDataset(channel, size / ELEMENT_BYTES, writable);
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Creates a writable dataset of length elements equal to 0, replacing
+     * the file if it exists.
+     *
+     * @param file The file of the dataset.
+     * @param length The number of elements.
+     * @return A writable MappedDataset.
+     * @throws IOException if the file can't be created.
+     * @throws IllegalArgumentException if length is negative.
+     */
+    public static MappedDataset create(Path file, long length) throws IOException {
+        if (length < 0 || length > Long.MAX_VALUE / ELEMENT_BYTES) {
+            throw new IllegalArgumentException("Invalid length " + length + ".");
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            return new MappedDataset(channel, length, true); // the mapping extends the file
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public boolean isWritable() {
+        return writable;
+    }
+
+    /**
+     * Returns true if the dataset hasn't been closed.
+     *
+     * @return A boolean.
+     */
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * Returns the real part of the element at index i.
+     *
+     * @param i An index in [0, length()).
+     * @return A double.
+     * @throws IndexOutOfBoundsException if i is out of range.
+     * @throws IllegalStateException if the dataset has been closed.
+     */
+    public double re(long i) {
+        return chunk(i).get(offset(i));
+    }
+
+    /**
+     * Returns the imaginary part of the element at index i.
+     *
+     * @param i An index in [0, length()).
+     * @return A double.
+     * @throws IndexOutOfBoundsException if i is out of range.
+     * @throws IllegalStateException if the dataset has been closed.
+     */
+    public double im(long i) {
+        return chunk(i).get(offset(i) + 1);
+    }
+
+    /**
+     * Returns the element at index i.
+     *
+     * @param i An index in [0, length()).
+     * @return A Complex number.
+     * @throws IndexOutOfBoundsException if i is out of range.
+     * @throws IllegalStateException if the dataset has been closed.
+     */
+    public Complex get(long i) {
+        DoubleBuffer chunk = chunk(i);
+        int offset = offset(i);
+        return Complex.of(chunk.get(offset), chunk.get(offset + 1));
+    }
+
+    /**
+     * Replaces the element at index i with re + im*j.
+     *
+     * @param i An index in [0, length()).
+     * @param re The real part.
+     * @param im The imaginary part.
+     * @throws IndexOutOfBoundsException if i is out of range.
+     * @throws java.nio.ReadOnlyBufferException if the dataset isn't writable.
+     * @throws IllegalStateException if the dataset has been closed.
+     */
+    public void set(long i, double re, double im) {
+        DoubleBuffer chunk = chunk(i);
+        int offset = offset(i);
+        chunk.put(offset, re);
+        chunk.put(offset + 1, im);
+    }
+
+    /**
+     * Returns the sum of all the elements, reading the file sequentially.
+     *
+     * @return A Complex number, 0 if the dataset is empty.
+     * @throws IllegalStateException if the dataset has been closed.
+     */
+    public Complex sum() {
+        checkOpen();
+        double re = 0;
+        double im = 0;
+        for (DoubleBuffer chunk : chunks) {
+            int n = chunk.limit();
+            for (int k = 0; k < n; k += 2) {
+                re += chunk.get(k);
+                im += chunk.get(k + 1);
+            }
+        }
+        return Complex.of(re, im);
+    }
+
+    /**
+     * Writes the changes on the storage device, if the dataset is writable.
+     * Each mapped chunk is forced, since FileChannel.force doesn't guarantee
+     * to write the changes made through a mapped buffer.
+     *
+     * @throws java.io.UncheckedIOException if the file can't be written.
+     * @throws IllegalStateException if the dataset has been closed.
+     */
+    public void force() {
+        checkOpen();
+        if (writable) {
+            for (MappedByteBuffer buffer : buffers) {
+                buffer.force();
+            }
+        }
+    }
+
+    /**
+     * Closes the file. The mapped memory is released by the garbage collector,
+     * but the dataset can't be used anymore.
+     *
+     * @throws IOException if the file can't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+
+    private DoubleBuffer chunk(long i) {
+        checkOpen();
+        return chunks[(int) (Objects.checkIndex(i, length) >>> SHIFT)];
+    }
+
+    private static int offset(long i) {
+        return 2 * (int) (i & (CHUNK - 1));
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The dataset has been closed.");
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package it.unisa.diem.Gruppo20.Model;
+
+/**
+ * This class contains the opcodes of the instructions executed by the
+ * Interpreter. Each instruction is a pair (opcode, operand) in the code of a
+ * compiled UserCommand; the operand is used only by some opcodes.
+ *
+ * @author Team 20
+ */
+final class Opcode {
+
+    /**
+     * Pushes a number; the operand is the index of its real part in the
+     * constants, the imaginary part follows it.
+     */
+    static final int NUMBER = 0;
+    static final int SUM = 1;
+    static final int SUBTRACT = 2;
+    static final int MULTIPLY = 3;
+    static final int DIVISION = 4;
+    static final int INVERT_SIGN = 5;
+    static final int SQRT = 6;
+    static final int CLEAR = 7;
+    static final int DROP = 8;
+    static final int DUP = 9;
+    static final int SWAP = 10;
+    static final int OVER = 11;
+    /**
+     * Operations on variables, the operand is the name of the variable.
+     */
+    static final int PUSH_VARIABLE = 12;
+    static final int PULL_VARIABLE = 13;
+    static final int SUM_VARIABLE = 14;
+    static final int SUBTRACT_VARIABLE = 15;
+    static final int SAVE_VARIABLES = 16;
+    static final int RESTORE_VARIABLES = 17;
+    static final int MOD = 18;
+    static final int ARG = 19;
+    static final int COS = 20;
+    static final int ARC_COS = 21;
+    static final int SIN = 22;
+    static final int ARC_SIN = 23;
+    static final int TAN = 24;
+    static final int ARC_TAN = 25;
+    static final int POW = 26;
+    static final int EXP = 27;
+    static final int LOG = 28;
+    /**
+     * Calls a UserCommand; the operand is its index in the targets.
+     */
+    static final int CALL = 29;
+    /**
+     * Executes any other Command; the operand is its index in the targets.
+     */
+    static final int EXTERNAL = 30;
+    /**
+     * Instructions generated by the Optimizer: dup *, and the check of the
+     * top of the stack made by +- +-.
+     */
+    static final int SQUARE = 31;
+    static final int CHECK_NUMBER = 32;
+    /**
+     * Comparisons, they replace two operands with 1 if the comparison is
+     * true, otherwise with 0.
+     */
+    static final int EQUAL = 33;
+    static final int NOT_EQUAL = 34;
+    static final int LESS_THAN = 35;
+    static final int GREATER_THAN = 36;
+    static final int LESS_OR_EQUAL = 37;
+    static final int GREATER_OR_EQUAL = 38;
+    /**
+     * Control operations of a user-defined operation. They are compiled to
+     * jumps, only REPEAT is also an instruction of the code: it removes the
+     * number of repetitions and, if it's 0, jumps to the operand.
+     */
+    static final int IF = 39;
+    static final int ELSE = 40;
+    static final int END = 41;
+    static final int REPEAT = 42;
+    static final int WHILE = 43;
+    /**
+     * Jumps to the operand, that is the index of an instruction in the code.
+     */
+    static final int JUMP = 44;
+    /**
+     * Removes the top of the stack and jumps to the operand if it's 0.
+     */
+    static final int JUMP_IF_ZERO = 45;
+    /**
+     * End of the body of a REPEAT: jumps to the operand if there are other
+     * repetitions.
+     */
+    static final int LOOP = 46;
+
+    private Opcode() {
+    }
+
+    /**
+     * Returns true if opcode is a control operation or an instruction that
+     * jumps.
+     *
+     * @param opcode An opcode.
+     * @return true for IF, ELSE, END, REPEAT, WHILE and the jumps.
+     */
+    static boolean isControl(int opcode) {
+        return opcode >= IF && opcode <= LOOP;
+    }
+
+    /**
+     * Returns the number of elements that must be on the stack to execute the
+     * standard operation opcode.
+     *
+     * @param opcode The opcode of a standard operation.
+     * @return The number of operands.
+     */
+    static int required(int opcode) {
+        return switch (opcode) {
+            case NUMBER, CLEAR, PULL_VARIABLE, SAVE_VARIABLES, RESTORE_VARIABLES -> 0;
+            case SUM, SUBTRACT, MULTIPLY, DIVISION, SWAP, OVER,
+                    EQUAL, NOT_EQUAL, LESS_THAN, GREATER_THAN, LESS_OR_EQUAL, GREATER_OR_EQUAL -> 2;
+            case CALL, EXTERNAL, IF, ELSE, END, REPEAT, WHILE, JUMP, JUMP_IF_ZERO, LOOP -> throw new IllegalArgumentException("Opcode " + opcode + " hasn't a fixed stack effect.");
+            default -> 1;
+        };
+    }
+
+    /**
+     * Returns the change of the size of the stack after the standard
+     * operation opcode. After CLEAR the size is 0.
+     *
+     * @param opcode The opcode of a standard operation.
+     * @return The number of elements pushed minus the number of elements
+     * removed.
+     */
+    static int effect(int opcode) {
+        return switch (opcode) {
+            case NUMBER, DUP, OVER, PULL_VARIABLE -> 1;
+            case SUM, SUBTRACT, MULTIPLY, DIVISION, DROP, PUSH_VARIABLE, SUM_VARIABLE, SUBTRACT_VARIABLE,
+                    EQUAL, NOT_EQUAL, LESS_THAN, GREATER_THAN, LESS_OR_EQUAL, GREATER_OR_EQUAL -> -1;
+            case CALL, EXTERNAL, IF, ELSE, END, REPEAT, WHILE, JUMP, JUMP_IF_ZERO, LOOP -> throw new IllegalArgumentException("Opcode " + opcode + " hasn't a fixed stack effect.");
+            default -> 0;
+        };
+    }
+}
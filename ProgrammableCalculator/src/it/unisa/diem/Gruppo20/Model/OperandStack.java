@@ -0,0 +1,124 @@
+package it.unisa.diem.Gruppo20.Model;
+
+import java.util.Objects;
+
+/**
+ * This interface represents the stack of operands of the Calculator. The
+ * numbers are read and written as pairs of doubles (real and imaginary part)
+ * addressed by their depth, where 0 is the top of the stack, so that the
+ * operations can work in place without creating Complex objects.
+ *
+ * @author Team 20
+ */
+public interface OperandStack {
+
+    /**
+     * Returns the number of elements in the stack.
+     *
+     * @return An int.
+     */
+    int size();
+
+    /**
+     * Returns the real part of the element at the given depth.
+     *
+     * @param depth The depth of the element, 0 is the top.
+     * @return A double.
+     * @throws IndexOutOfBoundsException if depth is not in [0, size()).
+     */
+    double re(int depth);
+
+    /**
+     * Returns the imaginary part of the element at the given depth.
+     *
+     * @param depth The depth of the element, 0 is the top.
+     * @return A double.
+     * @throws IndexOutOfBoundsException if depth is not in [0, size()).
+     */
+    double im(int depth);
+
+    /**
+     * Pushes the number re + im*j on top of the stack.
+     *
+     * @param re The real part.
+     * @param im The imaginary part.
+     */
+    void push(double re, double im);
+
+    /**
+     * Replaces the element at the given depth with re + im*j.
+     *
+     * @param depth The depth of the element, 0 is the top.
+     * @param re The new real part.
+     * @param im The new imaginary part.
+     * @throws IndexOutOfBoundsException if depth is not in [0, size()).
+     */
+    void set(int depth, double re, double im);
+
+    /**
+     * Removes the n elements on top of the stack.
+     *
+     * @param n The number of elements to remove.
+     * @throws IndexOutOfBoundsException if n is not in [0, size()].
+     */
+    void drop(int n);
+
+    /**
+     * Removes all the elements from the stack.
+     */
+    void clear();
+
+    /**
+     * Inserts the number re + im*j at the given depth, the elements below it
+     * are moved one position down. insert(size(), ...) adds the number at the
+     * bottom of the stack.
+     *
+     * @param depth The depth of the new element, in [0, size()].
+     * @param re The real part.
+     * @param im The imaginary part.
+     * @throws IndexOutOfBoundsException if depth is not in [0, size()].
+     */
+    void insert(int depth, double re, double im);
+
+    /**
+     * Removes the element at the given depth, the elements below it are moved
+     * one position up.
+     *
+     * @param depth The depth of the element, 0 is the top.
+     * @throws IndexOutOfBoundsException if depth is not in [0, size()).
+     */
+    void remove(int depth);
+
+    /**
+     * Returns a new Complex number equal to the element at the given depth.
+     *
+     * @param depth The depth of the element, 0 is the top.
+     * @return A new Complex.
+     * @throws IndexOutOfBoundsException if depth is not in [0, size()).
+     */
+    default Complex get(int depth) {
+        return Complex.of(re(depth), im(depth));
+    }
+
+    /**
+     * Copies n elements, from the given depth downwards, in re and im from
+     * index 0. The default implementation reads each element with re and im;
+     * the stacks where they don't take constant time read the elements in a
+     * single pass.
+     *
+     * @param depth The depth of the first element, 0 is the top.
+     * @param n The number of elements.
+     * @param re The array where the real parts are stored.
+     * @param im The array where the imaginary parts are stored.
+     * @throws IndexOutOfBoundsException if [depth, depth + n) is not in [0,
+     * size()] or an array has less than n elements.
+     */
+    default void read(int depth, int n, double[] re, double[] im) {
+        Objects.checkFromIndexSize(depth, n, size());
+        Objects.checkFromIndexSize(0, n, Math.min(re.length, im.length));
+        for (int i = 0; i < n; i++) {
+            re[i] = re(depth + i);
+            im[i] = im(depth + i);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package it.unisa.diem.Gruppo20.Model;
+
+import java.util.AbstractCollection;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * This class is a live Deque view of an OperandStack: the first element is the
+ * top of the stack. The elements returned are new Complex numbers, so
+ * modifying them doesn't change the stack; null elements aren't permitted, as
+ * in ArrayDeque.
+ *
+ * @author Team 20
+ */
+class OperandStackDeque extends AbstractCollection<Complex> implements Deque<Complex> {
+
+    private final OperandStack stack;
+
+    OperandStackDeque(OperandStack stack) {
+        this.stack = stack;
+    }
+
+    @Override
+    public int size() {
+        return stack.size();
+    }
+
+    @Override
+    public void clear() {
+        stack.clear();
+    }
+
+    @Override
+    public void addFirst(Complex c) {
+        stack.push(c.getReal(), c.getImaginary());
+    }
+
+    @Override
+    public void addLast(Complex c) {
+        Objects.requireNonNull(c);
+        stack.insert(stack.size(), c.getReal(), c.getImaginary());
+    }
+
+    @Override
+    public boolean offerFirst(Complex c) {
+        addFirst(c);
+        return true;
+    }
+
+    @Override
+    public boolean offerLast(Complex c) {
+        addLast(c);
+        return true;
+    }
+
+    @Override
+    public Complex removeFirst() {
+        Complex c = getFirst();
+        stack.drop(1);
+        return c;
+    }
+
+    @Override
+    public Complex removeLast() {
+        Complex c = getLast();
+        stack.remove(stack.size() - 1);
+        return c;
+    }
+
+    @Override
+    public Complex pollFirst() {
+        return stack.size() == 0 ? null : removeFirst();
+    }
+
+    @Override
+    public Complex pollLast() {
+        return stack.size() == 0 ? null : removeLast();
+    }
+
+    @Override
+    public Complex getFirst() {
+        if (stack.size() == 0) {
+            throw new NoSuchElementException();
+        }
+        return stack.get(0);
+    }
+
+    @Override
+    public Complex getLast() {
+        if (stack.size() == 0) {
+            throw new NoSuchElementException();
+        }
+        return stack.get(stack.size() - 1);
+    }
+
+    @Override
+    public Complex peekFirst() {
+        return stack.size() == 0 ? null : stack.get(0);
+    }
+
+    @Override
+    public Complex peekLast() {
+        return stack.size() == 0 ? null : stack.get(stack.size() - 1);
+    }
+
+    @Override
+    public boolean removeFirstOccurrence(Object o) {
+        return removeOccurrence(iterator(), o);
+    }
+
+    @Override
+    public boolean removeLastOccurrence(Object o) {
+        return removeOccurrence(descendingIterator(), o);
+    }
+
+    private static boolean removeOccurrence(Iterator<Complex> it, Object o) {
+        while (it.hasNext()) {
+            if (it.next().equals(o)) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean add(Complex c) {
+        addLast(c);
+        return true;
+    }
+
+    @Override
+    public boolean offer(Complex c) {
+        return offerLast(c);
+    }
+
+    @Override
+    public Complex remove() {
+        return removeFirst();
+    }
+
+    @Override
+    public Complex poll() {
+        return pollFirst();
+    }
+
+    @Override
+    public Complex element() {
+        return getFirst();
+    }
+
+    @Override
+    public Complex peek() {
+        return peekFirst();
+    }
+
+    @Override
+    public void push(Complex c) {
+        addFirst(c);
+    }
+
+    @Override
+    public Complex pop() {
+        return removeFirst();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return removeFirstOccurrence(o);
+    }
+
+    @Override
+    public Iterator<Complex> iterator() {
+        return new StackIterator(false);
+    }
+
+    @Override
+    public Iterator<Complex> descendingIterator() {
+        return new StackIterator(true);
+    }
+
+    /**
+     * Iterator from the top to the bottom of the stack, or the opposite if
+     * descending. A change of the stack not made by the iterator itself is
+     * detected when it changes the size. The elements are read with
+     * OperandStack.read in blocks that double at each read, so iterating a
+     * stack whose elements are read in sequence, as PersistentOperandStack,
+     * takes linear time.
+     */
+    private class StackIterator implements Iterator<Complex> {
+
+        private static final int FIRST_BLOCK = 16;
+
+        private final boolean descending;
+        private int next; // number of elements returned and still in the stack
+        private int last = -1; // depth of the last element returned
+        private int expectedSize = stack.size();
+        private double[] re = new double[0]; // block of elements read from the stack
+        private double[] im = new double[0];
+        private int blockDepth; // depth of the first element of the block
+        private int blockLength;
+
+        StackIterator(boolean descending) {
+            this.descending = descending;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < expectedSize;
+        }
+
+        @Override
+        public Complex next() {
+            if (stack.size() != expectedSize) {
+                throw new ConcurrentModificationException();
+            }
+            if (next >= expectedSize) {
+                throw new NoSuchElementException();
+            }
+            last = descending ? expectedSize - 1 - next : next;
+            next++;
+            if (last < blockDepth || last >= blockDepth + blockLength) {
+                readBlock(last);
+            }
+            return Complex.of(re[last - blockDepth], im[last - blockDepth]);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            stack.remove(last);
+            next--;
+            expectedSize--;
+            last = -1;
+            blockLength = 0; // the elements of the block may have moved
+        }
+
+        /**
+         * Reads the block that starts from the element at depth, in the
+         * direction of the iteration.
+         */
+        private void readBlock(int depth) {
+            int size = Math.max(FIRST_BLOCK, 2 * re.length);
+            blockLength = Math.min(size, descending ? depth + 1 : expectedSize - depth);
+            blockDepth = descending ? depth - blockLength + 1 : depth;
+            if (re.length < blockLength) {
+                re = new double[size];
+                im = new double[size];
+            }
+            stack.read(blockDepth, blockLength, re, im);
+        }
+    }
+}
@@ -0,0 +1,554 @@
+package it.unisa.diem.Gruppo20.Model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class compiles the RegisterCode of a user-defined operation to a hidden
+ * class that implements CompiledOperation, so that the JIT can optimize the
+ * whole operation as a single method.
+ *
+ * Each virtual register is stored in two local variables of the generated
+ * method, so the intermediate values never touch the stack of the Calculator.
+ * If a check fails the method returns false before any change, so the
+ * interpreter can perform the operation with its usual errors.
+ *
+ * The hidden classes aren't strongly bound to their loader, so they are
+ * unloaded when the Program is discarded.
+ *
+ * @author Team 20
+ */
+final class OperationCompiler {
+
+    /**
+     * Maximum number of instructions of a compiled program.
+     */
+    static final int MAX_SIZE = 256;
+
+    private static final String CLASS_NAME = "it/unisa/diem/Gruppo20/Model/GeneratedOperation";
+    private static final String INTERFACE_NAME = "it/unisa/diem/Gruppo20/Model/CompiledOperation";
+    private static final String STACK_NAME = "it/unisa/diem/Gruppo20/Model/OperandStack";
+    private static final int MAX_STACK = 8;
+
+    // opcodes of the JVM
+    private static final int ICONST_0 = 0x03;
+    private static final int DCONST_0 = 0x0e;
+    private static final int DCONST_1 = 0x0f;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC2_W = 0x14;
+    private static final int DLOAD = 0x18;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int DSTORE = 0x39;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DDIV = 0x6f;
+    private static final int DNEG = 0x77;
+    private static final int DCMPL = 0x97;
+    private static final int IFEQ = 0x99;
+    private static final int IFNE = 0x9a;
+    private static final int IF_ICMPLT = 0xa1;
+    private static final int IRETURN = 0xac;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int INVOKEINTERFACE = 0xb9;
+    private static final int WIDE = 0xc4;
+
+    private final RegisterCode registers;
+    private final ConstantPool pool;
+    private final Code code;
+    private final List<Integer> failJumps; // offsets of the jumps to the end
+    private final int temp; // local variable for the divisor
+
+    private OperationCompiler(RegisterCode registers) {
+        this.registers = registers;
+        this.pool = new ConstantPool();
+        this.code = new Code();
+        this.failJumps = new ArrayList<>();
+        this.temp = re(registers.registers);
+    }
+
+    /**
+     * Compiles the register form of program to a new hidden class.
+     *
+     * @param program The program of a user-defined operation.
+     * @return The compiled operation, or null if program can't be compiled.
+     */
+    static CompiledOperation compile(UserCommand.Program program) {
+        if (program.registers == null || program.fastCode.length / 2 > MAX_SIZE) {
+            return null;
+        }
+        byte[] bytes = new OperationCompiler(program.registers).generate();
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            Class<?> c = MethodHandles.lookup().defineHiddenClass(bytes, true).lookupClass();
+            return (CompiledOperation) c.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the bytes of the class, or null if the method is too long for
+     * the 16-bit offsets of the jumps.
+     */
+    private byte[] generate() {
+        byte[] execute = generateExecute();
+        if (execute == null) {
+            return null;
+        }
+        byte[] init = generateInit();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            int thisClass = pool.classRef(CLASS_NAME);
+            int superClass = pool.classRef("java/lang/Object");
+            int interfaceClass = pool.classRef(INTERFACE_NAME);
+            int initName = pool.utf8("<init>");
+            int initType = pool.utf8("()V");
+            int executeName = pool.utf8("execute");
+            int executeType = pool.utf8("(L" + STACK_NAME + ";)Z");
+
+            out.writeInt(0xcafebabe);
+            out.writeShort(0);
+            out.writeShort(61); // Java 17
+            pool.writeTo(out);
+            out.writeShort(0x1030); // final, super, synthetic
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(interfaceClass);
+            out.writeShort(0); // fields
+            out.writeShort(2); // methods
+            out.writeShort(0x0001); // public
+            out.writeShort(initName);
+            out.writeShort(initType);
+            out.writeShort(1);
+            out.write(init);
+            out.writeShort(0x0001); // public
+            out.writeShort(executeName);
+            out.writeShort(executeType);
+            out.writeShort(1);
+            out.write(execute);
+            out.writeShort(0); // attributes
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] generateInit() {
+        Code init = new Code();
+        init.u1(ALOAD_0);
+        init.u1(INVOKESPECIAL);
+        init.u2(pool.methodRef("java/lang/Object", "<init>", "()V"));
+        init.u1(RETURN);
+        return codeAttribute(init, 1, 1, -1);
+    }
+
+    /**
+     * Generates the method execute(OperandStack), that performs the same
+     * steps of RegisterCode.execute.
+     */
+    private byte[] generateExecute() {
+        // if (stack.size() < required) return false;
+        code.u1(ALOAD_1);
+        invokeStack("size", "()I", 1);
+        pushInt(registers.required);
+        failIf(IF_ICMPLT);
+
+        int[] instructions = registers.code;
+        double[] constants = registers.constants;
+        for (int pc = 0; pc < instructions.length; pc += RegisterCode.WIDTH) {
+            int d = instructions[pc + 1];
+            int a = instructions[pc + 2];
+            int b = instructions[pc + 3];
+            switch (instructions[pc]) {
+                case RegisterCode.LOAD -> {
+                    code.u1(ALOAD_1);
+                    pushInt(a);
+                    invokeStack("re", "(I)D", 2);
+                    store(re(d));
+                    code.u1(ALOAD_1);
+                    pushInt(a);
+                    invokeStack("im", "(I)D", 2);
+                    store(im(d));
+                }
+                case RegisterCode.CONST -> {
+                    loadConstant(constants[a]);
+                    store(re(d));
+                    loadConstant(constants[a + 1]);
+                    store(im(d));
+                }
+                case RegisterCode.ADD ->
+                    componentwise(DADD, d, a, b);
+                case RegisterCode.SUB ->
+                    componentwise(DSUB, d, a, b);
+                case RegisterCode.MUL ->
+                    multiply(d, a, b);
+                case RegisterCode.DIV ->
+                    divide(d, a, b);
+                case RegisterCode.NEG -> {
+                    dload(re(a));
+                    code.u1(DNEG);
+                    store(re(d));
+                    dload(im(a));
+                    code.u1(DNEG);
+                    store(im(d));
+                }
+                case RegisterCode.SQUARE ->
+                    multiply(d, a, a);
+                case RegisterCode.CHECK -> {
+                    // if (re != re || im != im) return false;
+                    dload(re(a));
+                    dload(re(a));
+                    code.u1(DCMPL);
+                    failIf(IFNE);
+                    dload(im(a));
+                    dload(im(a));
+                    code.u1(DCMPL);
+                    failIf(IFNE);
+                }
+                case RegisterCode.NONZERO -> {
+                    // if (Math.abs(re) + Math.abs(im) == 0) return false;
+                    int abs = pool.methodRef("java/lang/Math", "abs", "(D)D");
+                    dload(re(a));
+                    code.u1(INVOKESTATIC);
+                    code.u2(abs);
+                    dload(im(a));
+                    code.u1(INVOKESTATIC);
+                    code.u2(abs);
+                    code.u1(DADD);
+                    code.u1(DCONST_0);
+                    code.u1(DCMPL);
+                    failIf(IFEQ);
+                }
+                default ->
+                    throw new IllegalStateException("Unknown instruction " + instructions[pc] + ".");
+            }
+        }
+
+        if (registers.drop > 0) {
+            code.u1(ALOAD_1);
+            pushInt(registers.drop);
+            invokeStack("drop", "(I)V", 2);
+        }
+        for (int r : registers.outputs) {
+            code.u1(ALOAD_1);
+            dload(re(r));
+            dload(im(r));
+            invokeStack("push", "(DD)V", 5);
+        }
+
+        // return true; fail: return false;
+        code.u1(ICONST_0 + 1);
+        code.u1(IRETURN);
+        int failOffset = code.size();
+        if (failOffset > Short.MAX_VALUE) {
+            return null;
+        }
+        for (int jump : failJumps) {
+            code.patch(jump + 1, failOffset - jump);
+        }
+        code.u1(ICONST_0);
+        code.u1(IRETURN);
+        return codeAttribute(code, MAX_STACK, temp + 2, failOffset);
+    }
+
+    private void componentwise(int opcode, int d, int a, int b) {
+        dload(re(a));
+        dload(re(b));
+        code.u1(opcode);
+        store(re(d));
+        dload(im(a));
+        dload(im(b));
+        code.u1(opcode);
+        store(im(d));
+    }
+
+    private void multiply(int d, int a, int b) {
+        // x * c - y * e
+        dload(re(a));
+        dload(re(b));
+        code.u1(DMUL);
+        dload(im(a));
+        dload(im(b));
+        code.u1(DMUL);
+        code.u1(DSUB);
+        store(re(d));
+        // x * e + y * c
+        dload(re(a));
+        dload(im(b));
+        code.u1(DMUL);
+        dload(im(a));
+        dload(re(b));
+        code.u1(DMUL);
+        code.u1(DADD);
+        store(im(d));
+    }
+
+    private void divide(int d, int a, int b) {
+        // div = c * c + e * e
+        dload(re(b));
+        dload(re(b));
+        code.u1(DMUL);
+        dload(im(b));
+        dload(im(b));
+        code.u1(DMUL);
+        code.u1(DADD);
+        store(temp);
+        // (x * c + y * e) / div
+        dload(re(a));
+        dload(re(b));
+        code.u1(DMUL);
+        dload(im(a));
+        dload(im(b));
+        code.u1(DMUL);
+        code.u1(DADD);
+        dload(temp);
+        code.u1(DDIV);
+        store(re(d));
+        // (y * c - x * e) / div
+        dload(im(a));
+        dload(re(b));
+        code.u1(DMUL);
+        dload(re(a));
+        dload(im(b));
+        code.u1(DMUL);
+        code.u1(DSUB);
+        dload(temp);
+        code.u1(DDIV);
+        store(im(d));
+    }
+
+    /**
+     * Returns the local variable of the real part of register r, the
+     * imaginary part follows it. The locals 0 and 1 are this and the stack.
+     */
+    private static int re(int r) {
+        return 2 + 4 * r;
+    }
+
+    private static int im(int r) {
+        return 4 + 4 * r;
+    }
+
+    private void loadConstant(double value) {
+        if (Double.doubleToRawLongBits(value) == 0L) {
+            code.u1(DCONST_0);
+        } else if (value == 1.0) {
+            code.u1(DCONST_1);
+        } else {
+            code.u1(LDC2_W);
+            code.u2(pool.doubleConstant(value));
+        }
+    }
+
+    private void dload(int local) {
+        localInstruction(DLOAD, local);
+    }
+
+    private void store(int local) {
+        localInstruction(DSTORE, local);
+    }
+
+    private void localInstruction(int opcode, int local) {
+        if (local <= 0xff) {
+            code.u1(opcode);
+            code.u1(local);
+        } else {
+            code.u1(WIDE);
+            code.u1(opcode);
+            code.u2(local);
+        }
+    }
+
+    private void pushInt(int value) {
+        if (value <= 5) {
+            code.u1(ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            code.u1(BIPUSH);
+            code.u1(value);
+        } else {
+            code.u1(SIPUSH);
+            code.u2(value);
+        }
+    }
+
+    private void invokeStack(String name, String type, int count) {
+        code.u1(INVOKEINTERFACE);
+        code.u2(pool.interfaceMethodRef(STACK_NAME, name, type));
+        code.u1(count);
+        code.u1(0);
+    }
+
+    /**
+     * Generates a jump to the code that returns false.
+     */
+    private void failIf(int opcode) {
+        failJumps.add(code.size());
+        code.u1(opcode);
+        code.u2(0);
+    }
+
+    /**
+     * Returns the Code attribute of a method. If frameOffset isn't negative,
+     * it's the only target of the jumps and its frame has the locals of the
+     * beginning of the method.
+     */
+    private byte[] codeAttribute(Code body, int maxStack, int maxLocals, int frameOffset) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            int codeName = pool.utf8("Code");
+            int frames = frameOffset < 0 ? 0 : pool.utf8("StackMapTable");
+            out.writeShort(codeName);
+            out.writeInt(12 + body.size() + (frameOffset < 0 ? 0 : 11));
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(body.size());
+            out.write(body.bytes, 0, body.size());
+            out.writeShort(0); // exception table
+            if (frameOffset < 0) {
+                out.writeShort(0);
+            } else {
+                out.writeShort(1);
+                out.writeShort(frames);
+                out.writeInt(5);
+                out.writeShort(1);
+                out.writeByte(251); // same_frame_extended
+                out.writeShort(frameOffset);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Growable array of the bytes of a method.
+     */
+    private static final class Code {
+
+        private byte[] bytes = new byte[256];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        void u1(int b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+            bytes[size++] = (byte) b;
+        }
+
+        void u2(int s) {
+            u1(s >>> 8);
+            u1(s);
+        }
+
+        void patch(int offset, int s) {
+            bytes[offset] = (byte) (s >>> 8);
+            bytes[offset + 1] = (byte) s;
+        }
+    }
+
+    /**
+     * The constant pool of the generated class, each constant is added once.
+     */
+    private static final class ConstantPool {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private int count = 1;
+
+        int utf8(String s) {
+            Integer index = indexes.get("U" + s);
+            if (index != null) {
+                return index;
+            }
+            try {
+                out.writeByte(1);
+                out.writeUTF(s);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            indexes.put("U" + s, count);
+            return count++;
+        }
+
+        int classRef(String name) {
+            return entry("C" + name, 7, utf8(name), -1);
+        }
+
+        int methodRef(String owner, String name, String type) {
+            return entry("M" + owner + "." + name + type, 10, classRef(owner), nameAndType(name, type));
+        }
+
+        int interfaceMethodRef(String owner, String name, String type) {
+            return entry("I" + owner + "." + name + type, 11, classRef(owner), nameAndType(name, type));
+        }
+
+        int doubleConstant(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            String key = "D" + bits;
+            Integer index = indexes.get(key);
+            if (index != null) {
+                return index;
+            }
+            try {
+                out.writeByte(6);
+                out.writeLong(bits);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            indexes.put(key, count);
+            count += 2; // a double takes two entries
+            return count - 2;
+        }
+
+        private int nameAndType(String name, String type) {
+            return entry("N" + name + ":" + type, 12, utf8(name), utf8(type));
+        }
+
+        private int entry(String key, int tag, int first, int second) {
+            Integer index = indexes.get(key);
+            if (index != null) {
+                return index;
+            }
+            try {
+                out.writeByte(tag);
+                out.writeShort(first);
+                if (second >= 0) {
+                    out.writeShort(second);
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            indexes.put(key, count);
+            return count++;
+        }
+
+        void writeTo(DataOutputStream target) throws IOException {
+            target.writeShort(count);
+            bytes.writeTo(target);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package it.unisa.diem.Gruppo20.Model;
 
 import it.unisa.diem.Gruppo20.Model.Exception.ExecuteException;
+import it.unisa.diem.Gruppo20.Model.Exception.ExecutionAbortedException;
+import it.unisa.diem.Gruppo20.Model.Exception.LineExecutionException;
 import it.unisa.diem.Gruppo20.Model.Exception.ParseException;
 import it.unisa.diem.Gruppo20.Model.Exception.UserOperationNameException;
 import java.io.BufferedReader;
@@ -10,6 +12,7 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -26,8 +29,10 @@ import java.util.Set;
 public class Operations {
 
     private final Map<String, Command> userOperations;
+    private final Calculator calculator;
     private final StandardOperations standardOperations;
     private final Set<String> userOpNames;
+    private ExecutionBudget budget;
 
     /**
      * Creates an object of this class, using c for operation execution. An
@@ -38,7 +43,32 @@ public class Operations {
     public Operations(Calculator c) {
         userOperations = new LinkedHashMap<>();
         userOpNames = new LinkedHashSet<>();
+        calculator = c;
         standardOperations = new StandardOperations(c);
+        budget = ExecutionBudget.UNLIMITED;
+    }
+
+    /**
+     * Returns the limits of each execution of a user-defined operation.
+     *
+     * @return An ExecutionBudget, UNLIMITED by default.
+     */
+    public ExecutionBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * Sets the limits of the executions of the user-defined operations
+     * performed from now on.
+     *
+     * @param budget The new ExecutionBudget.
+     * @throws NullPointerException if budget is null.
+     */
+    public void setBudget(ExecutionBudget budget) {
+        if (budget == null) {
+            throw new NullPointerException();
+        }
+        this.budget = budget;
     }
 
     /**
@@ -60,36 +90,85 @@ public class Operations {
             throw new UserOperationNameException("You can't assign this name '" + name + "' to an user-defined operation.");
         }
 
-        s = s.substring(index + 1).trim();
-        if (s.isEmpty()) { //check if is a valid definition, can't be empty
+        List<String> names = new ArrayList<>();
+        List<Command> commands = new ArrayList<>();
+        Lexer lexer = new Lexer(s, index + 1);
+        while (lexer.next()) { //analyzing list of operation
+            names.add(lexer.token());
+            commands.add(resolve(lexer.opcode(), lexer.token()));
+        }
+        if (names.isEmpty()) { //check if is a valid definition, can't be empty
             throw new ParseException("Impossible to insert user-operation: Definition is empty!");
         }
 
         UserCommand opCommand = (UserCommand) userOperations.get(name); //check if already exists a user-defined operation with same name
         if (opCommand == null) {
             opCommand = new UserCommand(); //if it's a new operation then create the UserCommand object
-        } else {
-            opCommand.reset(); //if already exists perform a overwrite(or edit) on the same object
-        }
-
-        String[] seq = s.split("\\s+");
-        for (String input : seq) { //analyzing list of operation
-            input = input.toLowerCase();
-            Command comm = userOperations.get(input); //checking if it's an already user-defined operation
-            if (comm == null) {
-                comm = standardOperations.getCommand(input); //checking if it's a basic operation
-            }
-            if (comm != null) {
-                opCommand.add(input, comm);
-            } else {
-                opCommand.add(input, standardOperations.insertNumberCommand(input));
-            }
         }
+        opCommand.define(names, commands); //if already exists perform a overwrite(or edit) on the same object
 
         userOperations.put(name, opCommand);
         userOpNames.add(name);
     }
 
+    /**
+     * Returns the Command of a token of a definition: a standard operation, an
+     * already user-defined operation or a number.
+     */
+    private Command resolve(int opcode, String token) {
+        if (opcode != Lexer.WORD) {
+            return standardOperations.getCommand(opcode, token); //it's a basic operation
+        }
+        Command comm = userOperations.get(token); //checking if it's an already user-defined operation
+        if (comm == null) {
+            comm = standardOperations.insertNumberCommand(token);
+        }
+        return comm;
+    }
+
+    /**
+     * Returns a new Operations that executes on c the same user-defined
+     * operations of this object, within the same budget. The operations are
+     * defined again on c, so the copy doesn't share any state with this
+     * object and can be used by another thread.
+     *
+     * @param c The Calculator of the copy.
+     * @return A new Operations.
+     */
+    public Operations copy(Calculator c) {
+        Operations copy = new Operations(c);
+        copy.budget = budget;
+        for (String name : userOperations.keySet()) {
+            copy.userOperations.put(name, new UserCommand());
+        }
+        for (String name : userOperations.keySet()) {
+            copy.copyDefinition(name, this);
+        }
+        copy.userOpNames.addAll(userOpNames);
+        return copy;
+    }
+
+    /**
+     * Defines the operation name as in source, after the user-defined
+     * operations it calls, so that each one is compiled knowing its callees.
+     */
+    private void copyDefinition(String name, Operations source) {
+        UserCommand command = (UserCommand) userOperations.get(name);
+        List<String> names = source.getOperationsNames(name);
+        if (command.isExecutable() || names.isEmpty()) {
+            return;
+        }
+        List<Command> commands = new ArrayList<>(names.size());
+        for (String token : names) {
+            int opcode = Lexer.opcode(token);
+            if (opcode == Lexer.WORD && userOperations.containsKey(token)) {
+                copyDefinition(token, source);
+            }
+            commands.add(resolve(opcode, token));
+        }
+        command.define(names, commands);
+    }
+
     /**
      * Returns the Command object that performs the operation with the name
      * passed as a parameter.
@@ -123,18 +202,38 @@ public class Operations {
     }
 
     /**
-     * Executes the user-defined operation that has the name passed as a
-     * parameter.
+     * Executes the operation that has the name passed as a parameter. A
+     * user-defined operation is executed atomically: if one of its operations
+     * fails, the stack and the variables are restored as they were before the
+     * call.
      *
-     * @param name The user-defined operation name.
+     * @param name The operation name.
+     * @throws ExecuteException if the operation doesn't exist or its
+     * implementation has been deleted.
+     * @throws ExecutionAbortedException if a user-defined operation exceeds
+     * the budget.
      */
     public void executeOperation(String name) {
+        executeOperation(name, null);
+    }
+
+    /**
+     * Executes the operation that has the name passed as a parameter, as
+     * executeOperation(name). A user-defined operation is executed within the
+     * budget and can be stopped by another thread through token; in both
+     * cases the stack and the variables are restored.
+     *
+     * @param name The operation name.
+     * @param token The token that cancels the execution, or null.
+     * @throws ExecuteException if the operation doesn't exist or its
+     * implementation has been deleted.
+     * @throws ExecutionAbortedException if a user-defined operation exceeds
+     * the budget or it's cancelled.
+     */
+    public void executeOperation(String name, CancellationToken token) {
         UserCommand command = (UserCommand) userOperations.get(name);
         if (command != null) {
-            if (!command.isExecutable()) {
-                throw new ExecuteException("The implementation of function '" + name + "' has been deleted.");
-            }
-            command.execute();
+            execute(command, name, token);
             return;
         }
 
@@ -146,6 +245,140 @@ public class Operations {
         }
     }
 
+    /**
+     * Executes a line of operations and numbers separated by whitespaces, as
+     * a single operation: if a token fails, the stack and the variables are
+     * restored as they were before the line.
+     *
+     * @param line The tokens to execute.
+     * @throws LineExecutionException if a token can't be executed, its cause
+     * is the exception thrown by the token.
+     * @throws ExecutionAbortedException if a user-defined operation exceeds
+     * the budget.
+     */
+    public void executeLine(String line) {
+        executeLine(line, null);
+    }
+
+    /**
+     * Executes a line of operations and numbers, as executeLine(line). The
+     * user-defined operations are executed as by executeOperation(name,
+     * token).
+     *
+     * @param line The tokens to execute.
+     * @param token The token that cancels the execution, or null.
+     * @throws LineExecutionException if a token can't be executed, its cause
+     * is the exception thrown by the token.
+     * @throws ExecutionAbortedException if a user-defined operation exceeds
+     * the budget or it's cancelled; it isn't wrapped, so that it can be told
+     * apart from an invalid token.
+     */
+    public void executeLine(String line, CancellationToken token) {
+        calculator.executeAtomically(() -> {
+            Lexer lexer = new Lexer(line, 0);
+            for (int index = 0; lexer.next(); index++) {
+                String input = lexer.token();
+                try {
+                    if (lexer.opcode() != Lexer.WORD) {
+                        standardOperations.getCommand(lexer.opcode(), input).execute();
+                    } else if (userOperations.containsKey(input)) {
+                        execute((UserCommand) userOperations.get(input), input, token);
+                    } else {
+                        calculator.insertNumber(input);
+                    }
+                } catch (NumberFormatException ex) {
+                    throw new LineExecutionException("it isn't a number or an operation.", index, lexer.start(), input, ex);
+                } catch (ExecutionAbortedException ex) {
+                    throw ex;
+                } catch (RuntimeException ex) {
+                    throw new LineExecutionException(ex.getMessage(), index, lexer.start(), input, ex);
+                }
+            }
+        });
+    }
+
+    /**
+     * Executes the operation name on each element of in, and writes the
+     * results in out at the same index, streaming through the mapped files.
+     *
+     * @param name The operation, that must replace the element pushed on the
+     * stack with one result.
+     * @param in The dataset of the operands.
+     * @param out A writable dataset at least as long as in, it can be in.
+     * @throws ExecuteException if the operation doesn't exist or it fails on
+     * an element, the message reports its index and the cause is the
+     * exception thrown by the operation; the previous results are kept.
+     */
+    public void mapDataset(String name, MappedDataset in, MappedDataset out) {
+        mapDataset(name, in, out, null);
+    }
+
+    /**
+     * Executes the operation name on each element of in, as mapDataset(name,
+     * in, out). The user-defined operations are executed as by
+     * executeOperation(name, token), and token is checked before each
+     * element.
+     *
+     * @param name The operation, that must replace the element pushed on the
+     * stack with one result.
+     * @param in The dataset of the operands.
+     * @param out A writable dataset at least as long as in, it can be in.
+     * @param token The token that cancels the execution, or null.
+     * @throws ExecuteException if the operation doesn't exist or it fails on
+     * an element, the message reports its index and the cause is the
+     * exception thrown by the operation; the previous results are kept.
+     * @throws ExecutionAbortedException if the execution is cancelled or a
+     * user-defined operation exceeds the budget.
+     */
+    public void mapDataset(String name, MappedDataset in, MappedDataset out, CancellationToken token) {
+        if (getOperationsCommand(name) == null) {
+            throw new ExecuteException("Can't execute this operation, can't find operation with name " + name + ".");
+        }
+        if (!out.isWritable() || out.length() < in.length()) {
+            throw new ExecuteException("The results of '" + name + "' need a writable dataset of " + in.length() + " elements.");
+        }
+        OperandStack stack = calculator.getStack();
+        for (long i = 0; i < in.length(); i++) {
+            if (token != null && token.isCancelled()) {
+                throw new ExecutionAbortedException("The operation was cancelled.");
+            }
+            long index = i;
+            try {
+                calculator.executeAtomically(() -> {
+                    int size = stack.size();
+                    stack.push(in.re(index), in.im(index));
+                    executeOperation(name, token);
+                    if (stack.size() != size + 1) {
+                        throw new ExecuteException("'" + name + "' must replace the element with one result.");
+                    }
+                    out.set(index, stack.re(0), stack.im(0));
+                    stack.drop(1);
+                });
+            } catch (ExecutionAbortedException ex) {
+                throw ex;
+            } catch (RuntimeException ex) {
+                ExecuteException failure = new ExecuteException("Element " + i + ": " + ex.getMessage());
+                failure.initCause(ex);
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Executes atomically the user-defined operation command, within the
+     * budget.
+     */
+    private void execute(UserCommand command, String name, CancellationToken token) {
+        if (!command.isExecutable()) {
+            throw new ExecuteException("The implementation of function '" + name + "' has been deleted.");
+        }
+        if (budget == ExecutionBudget.UNLIMITED && token == null) {
+            calculator.executeAtomically(command);
+        } else {
+            calculator.executeAtomically(() -> Interpreter.run(command, budget, token));
+        }
+    }
+
     /**
      * Returns the names of all user-defined operations.
      *
@@ -180,15 +413,23 @@ public class Operations {
      * @return A string of name and all the commands separated by two points.
      */
     public String operationToString(String name) {
+        return appendOperation(name, new StringBuilder()).toString();
+    }
+
+    /**
+     * Appends to sb the definition of a user-defined operation, in the same
+     * format of operationToString.
+     */
+    private StringBuilder appendOperation(String name, StringBuilder sb) {
         UserCommand comm = (UserCommand) userOperations.get(name);
-        String str = name + ":";
+        sb.append(name).append(':');
 
         if (comm != null) {
             for (String op : comm.getCommandName()) {
-                str += " " + op;
+                sb.append(' ').append(op);
             }
         }
-        return str;
+        return sb;
     }
 
     /**
@@ -200,21 +441,29 @@ public class Operations {
      */
     public void saveOnFile(File f) throws IOException {
         try (PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(f)))) {
+            StringBuilder line = new StringBuilder();
             for (String key : userOperations.keySet()) {
-                out.write(operationToString(key) + "\n");
+                line.setLength(0);
+                out.append(appendOperation(key, line).append('\n'));
             }
         }
     }
 
     /**
-     * Reloads the previuses user-defined operations from the default file.
+     * Reloads the previuses user-defined operations from the default file. The
+     * operations are updated incrementally: an operation whose definition in
+     * the file is the same as the current one keeps its UserCommand and its
+     * compiled program, the other ones are defined again, so only their
+     * dependents are compiled again. The operations that aren't in the file
+     * are deleted.
      *
      * @param f The file where re-load the user-defined operations (default =
      * "functions.txt").
      * @throws java.io.IOException
      */
     public void loadFromFile(File f) throws IOException {
-        userOperations.clear(); // overwrite the operations inserted before
+        Map<String, Command> old = new LinkedHashMap<>(userOperations);
+        userOperations.clear(); // the order of the file replaces the previous one
         userOpNames.clear();
         try (Scanner in = new Scanner(new BufferedReader(new FileReader(f)))) {
             in.useDelimiter("\n+|\n\r+");
@@ -223,14 +472,28 @@ public class Operations {
             while (in.hasNext()) {
                 s = in.next();
                 int index = s.indexOf(":");
+                String name = index == -1 ? null : s.substring(0, index).trim().toLowerCase();
+                UserCommand command = name == null ? null : (UserCommand) old.remove(name);
+                if (command != null) {
+                    userOperations.put(name, command);
+                }
                 if (index != -1 && (s.substring(index + 1).isBlank() || (s.length() - 1) == index)) {
-                    String name = s.substring(0, index);
-                    userOperations.put(name, new UserCommand());
+                    if (command == null) {
+                        userOperations.put(name, new UserCommand());
+                    } else if (command.isExecutable()) {
+                        command.reset();
+                    }
                     userOpNames.add(name);
+                } else if (command != null && command.getCommandName().equals(Lexer.tokens(s, index + 1))) {
+                    userOpNames.add(name); // unchanged
                 } else {
                     parseOperations(s);
                 }
             }
+        } finally {
+            for (Command removed : old.values()) {
+                ((UserCommand) removed).reset();
+            }
         }
     }
 
@@ -0,0 +1,239 @@
+package it.unisa.diem.Gruppo20.Model;
+
+import java.util.Arrays;
+
+/**
+ * This class optimizes the code of a Program whose stack effect is verified,
+ * so that it's executed only when the stack has enough elements for all its
+ * operations. The instructions are copied one at a time and, after each one,
+ * the last instructions copied are rewritten while it's possible:
+ * <ul>
+ * <li>the arithmetic operations on numbers are replaced by their result
+ * (2 3 * becomes 6), unless the operation would throw an exception;</li>
+ * <li>the pairs without effect are removed (swap swap, dup drop, over drop, a
+ * number followed by drop), while +- +- becomes the check of the operand made
+ * by +-;</li>
+ * <li>dup * becomes SQUARE, and the stack operations on numbers push the
+ * numbers in the new order.</li>
+ * </ul>
+ * The operations that depend on the SnapPolicy of the Calculator aren't
+ * folded. The result of each folding is computed exactly as the Calculator
+ * does, so it's the same number.
+ *
+ * @author Team 20
+ */
+final class Optimizer {
+
+    private int[] code;
+    private int size;
+    private double[] constants;
+    private int nConstants;
+
+    /**
+     * Creates an Optimizer for a code that uses the constants passed as param.
+     *
+     * @param constants The constants of the code, the new numbers are added
+     * after them.
+     */
+    Optimizer(double[] constants) {
+        this.code = new int[16];
+        this.constants = Arrays.copyOf(constants, Math.max(4, constants.length));
+        this.nConstants = constants.length;
+    }
+
+    /**
+     * Returns the optimized code.
+     *
+     * @param source The code of a Program with a verified stack effect.
+     * @return The optimized code, that uses the constants returned by
+     * getConstants().
+     */
+    int[] optimize(int[] source) {
+        for (int pc = 0; pc < source.length; pc += 2) {
+            append(source[pc], source[pc + 1]);
+            while (rewrite()) {
+                // rewrite the new tail
+            }
+        }
+        return Arrays.copyOf(code, size);
+    }
+
+    /**
+     * Returns the constants of the code, the ones of the source followed by
+     * the numbers computed by the Optimizer.
+     *
+     * @return An array of pairs (real part, imaginary part).
+     */
+    double[] getConstants() {
+        return Arrays.copyOf(constants, nConstants);
+    }
+
+    /**
+     * Rewrites the last instructions.
+     *
+     * @return true if the code was changed.
+     */
+    private boolean rewrite() {
+        int n = size / 2;
+        if (n >= 3 && opcode(n - 3) == Opcode.NUMBER && opcode(n - 2) == Opcode.NUMBER) {
+            int a = operand(n - 3);
+            int b = operand(n - 2);
+            switch (opcode(n - 1)) {
+                case Opcode.SUM, Opcode.SUBTRACT, Opcode.MULTIPLY, Opcode.DIVISION -> {
+                    return fold(opcode(n - 1), a, b);
+                }
+                case Opcode.SWAP -> {
+                    size -= 6;
+                    append(Opcode.NUMBER, b);
+                    append(Opcode.NUMBER, a);
+                    return true;
+                }
+                case Opcode.OVER -> {
+                    size -= 2;
+                    append(Opcode.NUMBER, a);
+                    return true;
+                }
+                default -> {
+                }
+            }
+        }
+        if (n < 2) {
+            return false;
+        }
+        int first = opcode(n - 2);
+        int second = opcode(n - 1);
+        if (first == Opcode.NUMBER) {
+            int a = operand(n - 2);
+            switch (second) {
+                case Opcode.INVERT_SIGN, Opcode.SQUARE -> {
+                    return fold(second, a, -1);
+                }
+                case Opcode.CHECK_NUMBER -> {
+                    if (isNaN(a)) {
+                        return false;
+                    }
+                    size -= 2;
+                    return true;
+                }
+                case Opcode.DUP -> {
+                    size -= 2;
+                    append(Opcode.NUMBER, a);
+                    return true;
+                }
+                case Opcode.DROP -> {
+                    size -= 4;
+                    return true;
+                }
+                default -> {
+                    return false;
+                }
+            }
+        }
+        if (first == Opcode.DUP && second == Opcode.DROP
+                || first == Opcode.OVER && second == Opcode.DROP
+                || first == Opcode.SWAP && second == Opcode.SWAP) {
+            size -= 4;
+            return true;
+        }
+        if (first == Opcode.INVERT_SIGN && second == Opcode.INVERT_SIGN) {
+            size -= 4;
+            append(Opcode.CHECK_NUMBER, 0);
+            return true;
+        }
+        if (first == Opcode.CHECK_NUMBER && second == Opcode.CHECK_NUMBER) {
+            size -= 2;
+            return true;
+        }
+        if (first == Opcode.DUP && second == Opcode.MULTIPLY) {
+            size -= 4;
+            append(Opcode.SQUARE, 0);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Replaces the last instructions, that perform opcode on the numbers a and
+     * b (b is -1 for the unary operations), with their result.
+     *
+     * @return false if the operation would throw an exception.
+     */
+    private boolean fold(int opcode, int a, int b) {
+        if (isNaN(a) || b >= 0 && isNaN(b)) {
+            return false;
+        }
+        double x = constants[a];
+        double y = constants[a + 1];
+        double re;
+        double im;
+        switch (opcode) {
+            case Opcode.INVERT_SIGN -> {
+                re = -x;
+                im = -y;
+            }
+            case Opcode.SQUARE -> {
+                re = x * x - y * y;
+                im = x * y + y * x;
+            }
+            default -> {
+                double c = constants[b];
+                double d = constants[b + 1];
+                switch (opcode) {
+                    case Opcode.SUM -> {
+                        re = x + c;
+                        im = y + d;
+                    }
+                    case Opcode.SUBTRACT -> {
+                        re = x - c;
+                        im = y - d;
+                    }
+                    case Opcode.MULTIPLY -> {
+                        re = x * c - y * d;
+                        im = x * d + y * c;
+                    }
+                    default -> {
+                        if (c == 0 && d == 0) {
+                            return false;
+                        }
+                        double div = c * c + d * d;
+                        re = (x * c + y * d) / div;
+                        im = (y * c - x * d) / div;
+                    }
+                }
+                size -= 2;
+            }
+        }
+        size -= 4;
+        append(Opcode.NUMBER, addConstant(re, im));
+        return true;
+    }
+
+    private boolean isNaN(int constant) {
+        return Double.isNaN(constants[constant]) || Double.isNaN(constants[constant + 1]);
+    }
+
+    private int opcode(int instruction) {
+        return code[instruction * 2];
+    }
+
+    private int operand(int instruction) {
+        return code[instruction * 2 + 1];
+    }
+
+    private void append(int opcode, int operand) {
+        if (size == code.length) {
+            code = Arrays.copyOf(code, size * 2);
+        }
+        code[size++] = opcode;
+        code[size++] = operand;
+    }
+
+    private int addConstant(double real, double imaginary) {
+        if (nConstants + 2 > constants.length) {
+            constants = Arrays.copyOf(constants, constants.length * 2);
+        }
+        constants[nConstants++] = real;
+        constants[nConstants++] = imaginary;
+        return nConstants - 2;
+    }
+}
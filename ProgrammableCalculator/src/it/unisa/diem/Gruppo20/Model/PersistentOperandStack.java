@@ -0,0 +1,211 @@
+package it.unisa.diem.Gruppo20.Model;
+
+import java.util.Objects;
+
+/**
+ * This class implements the OperandStack as a persistent list: the elements
+ * are immutable nodes linked from the top to the bottom, and a change creates
+ * new nodes only for the elements above the one modified. So a snapshot of
+ * the stack shares all its nodes with the stack and takes constant time and
+ * memory, while the operations on top of the stack still take constant time.
+ * The access to an element at depth d takes O(d) time, so the elements are
+ * read in sequence with the read method.
+ *
+ * @author Team 20
+ */
+public class PersistentOperandStack implements OperandStack {
+
+    private Node top;
+
+    /**
+     * Creates an empty stack.
+     */
+    public PersistentOperandStack() {
+    }
+
+    private PersistentOperandStack(Node top) {
+        this.top = top;
+    }
+
+    /**
+     * Returns a new PersistentOperandStack that contains the same elements of
+     * stack.
+     *
+     * @param stack The stack to copy.
+     * @return A new PersistentOperandStack.
+     */
+    public static PersistentOperandStack copyOf(OperandStack stack) {
+        if (stack instanceof PersistentOperandStack) {
+            return ((PersistentOperandStack) stack).snapshot();
+        }
+        PersistentOperandStack copy = new PersistentOperandStack();
+        for (int depth = stack.size() - 1; depth >= 0; depth--) {
+            copy.push(stack.re(depth), stack.im(depth));
+        }
+        return copy;
+    }
+
+    /**
+     * Returns a stack that contains the elements of this stack in this moment.
+     * The two stacks share their nodes but are independent: the changes of one
+     * of them aren't seen by the other one.
+     *
+     * @return A new PersistentOperandStack.
+     */
+    public PersistentOperandStack snapshot() {
+        return new PersistentOperandStack(top);
+    }
+
+    /**
+     * Replaces the elements of this stack with the ones of snapshot.
+     *
+     * @param snapshot The stack whose elements must be restored.
+     */
+    public void restore(PersistentOperandStack snapshot) {
+        top = snapshot.top;
+    }
+
+    /**
+     * Replaces the elements of target with the ones of this stack.
+     *
+     * @param target The stack to overwrite.
+     */
+    public void copyTo(OperandStack target) {
+        if (target instanceof PersistentOperandStack) {
+            ((PersistentOperandStack) target).restore(this);
+            return;
+        }
+        int n = size();
+        double[] re = new double[n];
+        double[] im = new double[n];
+        int i = n;
+        for (Node node = top; node != null; node = node.next) {
+            i--;
+            re[i] = node.re;
+            im[i] = node.im;
+        }
+        target.clear();
+        for (i = 0; i < n; i++) {
+            target.push(re[i], im[i]);
+        }
+    }
+
+    @Override
+    public int size() {
+        return top == null ? 0 : top.size;
+    }
+
+    @Override
+    public double re(int depth) {
+        return node(depth).re;
+    }
+
+    @Override
+    public double im(int depth) {
+        return node(depth).im;
+    }
+
+    /**
+     * Copies n elements, from the given depth downwards, in re and im,
+     * walking the nodes once: it takes O(depth + n) time.
+     */
+    @Override
+    public void read(int depth, int n, double[] re, double[] im) {
+        Objects.checkFromIndexSize(depth, n, size());
+        Objects.checkFromIndexSize(0, n, Math.min(re.length, im.length));
+        Node node = top;
+        for (int i = 0; i < depth; i++) {
+            node = node.next;
+        }
+        for (int i = 0; i < n; i++) {
+            re[i] = node.re;
+            im[i] = node.im;
+            node = node.next;
+        }
+    }
+
+    @Override
+    public void push(double re, double im) {
+        top = new Node(re, im, top);
+    }
+
+    @Override
+    public void set(int depth, double re, double im) {
+        Node node = node(depth);
+        top = rebuild(node, new Node(re, im, node.next));
+    }
+
+    @Override
+    public void drop(int n) {
+        Objects.checkFromIndexSize(0, n, size());
+        for (int i = 0; i < n; i++) {
+            top = top.next;
+        }
+    }
+
+    @Override
+    public void clear() {
+        top = null;
+    }
+
+    @Override
+    public void insert(int depth, double re, double im) {
+        Objects.checkIndex(depth, size() + 1);
+        Node below = top;
+        for (int i = 0; i < depth; i++) {
+            below = below.next;
+        }
+        top = rebuild(below, new Node(re, im, below));
+    }
+
+    @Override
+    public void remove(int depth) {
+        Node node = node(depth);
+        top = rebuild(node, node.next);
+    }
+
+    private Node node(int depth) {
+        Objects.checkIndex(depth, size());
+        Node node = top;
+        for (int i = 0; i < depth; i++) {
+            node = node.next;
+        }
+        return node;
+    }
+
+    /**
+     * Returns a copy of the list where the sublist that starts from old is
+     * replaced by replacement. Only the nodes above old are copied.
+     */
+    private Node rebuild(Node old, Node replacement) {
+        Node[] above = new Node[size() - (old == null ? 0 : old.size)];
+        Node node = top;
+        for (int i = 0; i < above.length; i++) {
+            above[i] = node;
+            node = node.next;
+        }
+        Node result = replacement;
+        for (int i = above.length - 1; i >= 0; i--) {
+            result = new Node(above[i].re, above[i].im, result);
+        }
+        return result;
+    }
+
+    /**
+     * Immutable node of the list.
+     */
+    private static final class Node {
+
+        private final double re;
+        private final double im;
+        private final Node next;
+        private final int size; // number of nodes from this one to the bottom
+
+        private Node(double re, double im, Node next) {
+            this.re = re;
+            this.im = im;
+            this.next = next;
+            this.size = next == null ? 1 : next.size + 1;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package it.unisa.diem.Gruppo20.Model;
+
+import java.util.Arrays;
+
+/**
+ * This class is the register form of the optimized code of a Program made of
+ * numbers, arithmetic operations and stack operations. The intermediate values
+ * are stored in virtual registers, each one assigned by a single instruction
+ * (static single assignment), and only the inputs and the outputs of the
+ * program touch the stack of the Calculator: the inputs are loaded when they
+ * are used, and at the end the elements consumed are replaced by the ones
+ * produced. The stack operations only rename the registers, so they don't
+ * generate instructions.
+ *
+ * The checks of the Calculator are explicit instructions, inserted only when
+ * a register wasn't checked yet. If a check fails, execute returns false
+ * before modifying the stack, so that the program can be executed by the
+ * Interpreter with its usual errors. The OperationCompiler generates the
+ * bytecode of a class from this form.
+ *
+ * @author Team 20
+ */
+final class RegisterCode {
+
+    /**
+     * Each instruction is (opcode, destination, first operand, second
+     * operand).
+     */
+    static final int WIDTH = 4;
+    /**
+     * d = the element of the stack at depth a.
+     */
+    static final int LOAD = 0;
+    /**
+     * d = the constant at index a.
+     */
+    static final int CONST = 1;
+    static final int ADD = 2;
+    static final int SUB = 3;
+    static final int MUL = 4;
+    static final int DIV = 5;
+    static final int NEG = 6;
+    static final int SQUARE = 7;
+    /**
+     * Fails if a isn't a complex number.
+     */
+    static final int CHECK = 8;
+    /**
+     * Fails if a is zero.
+     */
+    static final int NONZERO = 9;
+
+    final int[] code;
+    final double[] constants;
+    final int registers;
+    final int required; // minimum size of the stack
+    final int drop; // elements removed at the end
+    final int[] outputs; // registers pushed at the end
+
+    private RegisterCode(int[] code, double[] constants, int registers, int required, int drop, int[] outputs) {
+        this.code = code;
+        this.constants = constants;
+        this.registers = registers;
+        this.required = required;
+        this.drop = drop;
+        this.outputs = outputs;
+    }
+
+    /**
+     * Returns the register form of the optimized code of program.
+     *
+     * @param program A Program.
+     * @return The RegisterCode, or null if the program isn't verified or uses
+     * other operations.
+     */
+    static RegisterCode translate(UserCommand.Program program) {
+        if (!program.verified) {
+            return null;
+        }
+        int[] fast = program.fastCode;
+        for (int pc = 0; pc < fast.length; pc += 2) {
+            switch (fast[pc]) {
+                case Opcode.NUMBER, Opcode.SUM, Opcode.SUBTRACT, Opcode.MULTIPLY, Opcode.DIVISION,
+                        Opcode.INVERT_SIGN, Opcode.SQUARE, Opcode.CHECK_NUMBER,
+                        Opcode.DUP, Opcode.DROP, Opcode.SWAP, Opcode.OVER -> {
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+        return new Translator(program).translate();
+    }
+
+    /**
+     * Executes this code on stack.
+     *
+     * @param stack The stack of the Calculator.
+     * @param re The real parts of the registers, at least registers elements.
+     * @param im The imaginary parts of the registers.
+     * @return true if the code was executed, false if the stack has too few
+     * elements or a check failed: in this case the stack isn't modified.
+     */
+    boolean execute(OperandStack stack, double[] re, double[] im) {
+        if (stack.size() < required) {
+            return false;
+        }
+        int[] code = this.code;
+        for (int pc = 0; pc < code.length; pc += WIDTH) {
+            int d = code[pc + 1];
+            int a = code[pc + 2];
+            int b = code[pc + 3];
+            switch (code[pc]) {
+                case LOAD -> {
+                    re[d] = stack.re(a);
+                    im[d] = stack.im(a);
+                }
+                case CONST -> {
+                    re[d] = constants[a];
+                    im[d] = constants[a + 1];
+                }
+                case ADD -> {
+                    re[d] = re[a] + re[b];
+                    im[d] = im[a] + im[b];
+                }
+                case SUB -> {
+                    re[d] = re[a] - re[b];
+                    im[d] = im[a] - im[b];
+                }
+                case MUL -> {
+                    double x = re[a];
+                    double y = im[a];
+                    double c = re[b];
+                    double e = im[b];
+                    re[d] = x * c - y * e;
+                    im[d] = x * e + y * c;
+                }
+                case DIV -> {
+                    double x = re[a];
+                    double y = im[a];
+                    double c = re[b];
+                    double e = im[b];
+                    double div = c * c + e * e;
+                    re[d] = (x * c + y * e) / div;
+                    im[d] = (y * c - x * e) / div;
+                }
+                case NEG -> {
+                    re[d] = -re[a];
+                    im[d] = -im[a];
+                }
+                case SQUARE -> {
+                    double x = re[a];
+                    double y = im[a];
+                    re[d] = x * x - y * y;
+                    im[d] = x * y + y * x;
+                }
+                case CHECK -> {
+                    if (Double.isNaN(re[a]) || Double.isNaN(im[a])) {
+                        return false;
+                    }
+                }
+                case NONZERO -> {
+                    if (re[a] == 0 && im[a] == 0) {
+                        return false;
+                    }
+                }
+                default ->
+                    throw new IllegalStateException("Unknown instruction " + code[pc] + ".");
+            }
+        }
+        stack.drop(drop);
+        for (int r : outputs) {
+            stack.push(re[r], im[r]);
+        }
+        return true;
+    }
+
+    /**
+     * Translates the optimized code of a Program, keeping its stack as a list
+     * of registers. An element of the Calculator stack at depth d is stored as
+     * -(d + 1) until the end, so that the elements still in their original
+     * position aren't written back.
+     */
+    private static final class Translator {
+
+        private final UserCommand.Program program;
+        private int[] code = new int[64];
+        private int size;
+        private int[] stack = new int[16]; // the top is at the end
+        private int height;
+        private int inputs; // elements of the Calculator stack consumed
+        private int[] inputRegisters = new int[8]; // register of each input, or -1
+        private boolean[] checked = new boolean[16];
+        private int registers;
+
+        private Translator(UserCommand.Program program) {
+            this.program = program;
+            Arrays.fill(inputRegisters, -1);
+        }
+
+        private RegisterCode translate() {
+            int[] fast = program.fastCode;
+            for (int pc = 0; pc < fast.length; pc += 2) {
+                switch (fast[pc]) {
+                    case Opcode.NUMBER -> {
+                        int k = fast[pc + 1];
+                        int r = newRegister();
+                        emit(CONST, r, k, 0);
+                        checked[r] = !Double.isNaN(program.constants[k]) && !Double.isNaN(program.constants[k + 1]);
+                        push(r);
+                    }
+                    case Opcode.SUM ->
+                        binary(ADD);
+                    case Opcode.SUBTRACT ->
+                        binary(SUB);
+                    case Opcode.MULTIPLY ->
+                        binary(MUL);
+                    case Opcode.DIVISION ->
+                        binary(DIV);
+                    case Opcode.INVERT_SIGN ->
+                        unary(NEG);
+                    case Opcode.SQUARE ->
+                        unary(SQUARE);
+                    case Opcode.CHECK_NUMBER -> {
+                        int a = pop();
+                        check(register(a));
+                        push(a);
+                    }
+                    case Opcode.DUP -> {
+                        int a = pop();
+                        push(a);
+                        push(a);
+                    }
+                    case Opcode.DROP ->
+                        pop();
+                    case Opcode.SWAP -> {
+                        int b = pop();
+                        int a = pop();
+                        push(b);
+                        push(a);
+                    }
+                    case Opcode.OVER -> {
+                        int b = pop();
+                        int a = pop();
+                        push(a);
+                        push(b);
+                        push(a);
+                    }
+                    default ->
+                        throw new IllegalStateException("Opcode " + fast[pc] + " can't be translated.");
+                }
+            }
+            int keep = 0;
+            while (keep < height && keep < inputs && stack[keep] == -(inputs - keep)) {
+                keep++;
+            }
+            int[] outputs = new int[height - keep];
+            for (int i = keep; i < height; i++) {
+                outputs[i - keep] = register(stack[i]); // the inputs are loaded before the drop
+            }
+            return new RegisterCode(Arrays.copyOf(code, size), program.constants, registers,
+                    Math.max(inputs, program.required), inputs - keep, outputs);
+        }
+
+        private void binary(int opcode) {
+            int b = register(pop());
+            int a = register(pop());
+            check(a);
+            check(b);
+            if (opcode == DIV) {
+                emit(NONZERO, 0, b, 0);
+            }
+            int r = newRegister();
+            emit(opcode, r, a, b);
+            push(r);
+        }
+
+        private void unary(int opcode) {
+            int a = register(pop());
+            check(a);
+            int r = newRegister();
+            emit(opcode, r, a, 0);
+            push(r);
+        }
+
+        private void check(int r) {
+            if (!checked[r]) {
+                emit(CHECK, 0, r, 0);
+                checked[r] = true;
+            }
+        }
+
+        /**
+         * Returns the register of the stack element s, loading it if it's an
+         * input not loaded yet.
+         */
+        private int register(int s) {
+            if (s >= 0) {
+                return s;
+            }
+            int depth = -s - 1;
+            if (inputRegisters[depth] < 0) {
+                inputRegisters[depth] = newRegister();
+                emit(LOAD, inputRegisters[depth], depth, 0);
+            }
+            return inputRegisters[depth];
+        }
+
+        private int pop() {
+            if (height == 0) {
+                if (inputs == inputRegisters.length) {
+                    inputRegisters = Arrays.copyOf(inputRegisters, inputs * 2);
+                    Arrays.fill(inputRegisters, inputs, inputRegisters.length, -1);
+                }
+                inputs++;
+                return -inputs;
+            }
+            return stack[--height];
+        }
+
+        private void push(int s) {
+            if (height == stack.length) {
+                stack = Arrays.copyOf(stack, height * 2);
+            }
+            stack[height++] = s;
+        }
+
+        private int newRegister() {
+            if (registers == checked.length) {
+                checked = Arrays.copyOf(checked, registers * 2);
+            }
+            return registers++;
+        }
+
+        private void emit(int opcode, int d, int a, int b) {
+            if (size + WIDTH > code.length) {
+                code = Arrays.copyOf(code, code.length * 2);
+            }
+            code[size++] = opcode;
+            code[size++] = d;
+            code[size++] = a;
+            code[size++] = b;
+        }
+    }
+}
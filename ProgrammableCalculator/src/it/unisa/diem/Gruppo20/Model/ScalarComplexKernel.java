@@ -0,0 +1,79 @@
+package it.unisa.diem.Gruppo20.Model;
+
+/**
+ * Implementation of ComplexKernel with plain scalar loops. It's used when the
+ * Vector API isn't available and to process the tail of the arrays that
+ * doesn't fill a whole vector.
+ *
+ * @author Team 20
+ */
+final class ScalarComplexKernel implements ComplexKernel {
+
+    @Override
+    public void add(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] outRe, double[] outIm, int n) {
+        add(aRe, aIm, bRe, bIm, outRe, outIm, 0, n);
+    }
+
+    @Override
+    public void subtract(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] outRe, double[] outIm, int n) {
+        subtract(aRe, aIm, bRe, bIm, outRe, outIm, 0, n);
+    }
+
+    @Override
+    public void multiply(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] outRe, double[] outIm, int n) {
+        multiply(aRe, aIm, bRe, bIm, outRe, outIm, 0, n);
+    }
+
+    @Override
+    public void divide(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] outRe, double[] outIm, int n) {
+        divide(aRe, aIm, bRe, bIm, outRe, outIm, 0, n);
+    }
+
+    @Override
+    public void modulus(double[] aRe, double[] aIm, double[] out, int n) {
+        modulus(aRe, aIm, out, 0, n);
+    }
+
+    static void add(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] outRe, double[] outIm, int from, int to) {
+        for (int i = from; i < to; i++) {
+            outRe[i] = aRe[i] + bRe[i];
+            outIm[i] = aIm[i] + bIm[i];
+        }
+    }
+
+    static void subtract(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] outRe, double[] outIm, int from, int to) {
+        for (int i = from; i < to; i++) {
+            outRe[i] = aRe[i] - bRe[i];
+            outIm[i] = aIm[i] - bIm[i];
+        }
+    }
+
+    static void multiply(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] outRe, double[] outIm, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double a = aRe[i];
+            double b = aIm[i];
+            double c = bRe[i];
+            double d = bIm[i];
+            outRe[i] = a * c - b * d;
+            outIm[i] = a * d + b * c;
+        }
+    }
+
+    static void divide(double[] aRe, double[] aIm, double[] bRe, double[] bIm, double[] outRe, double[] outIm, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double a = aRe[i];
+            double b = aIm[i];
+            double c = bRe[i];
+            double d = bIm[i];
+            double div = c * c + d * d;
+            outRe[i] = (a * c + b * d) / div;
+            outIm[i] = (b * c - a * d) / div;
+        }
+    }
+
+    static void modulus(double[] aRe, double[] aIm, double[] out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            out[i] = Math.sqrt(aRe[i] * aRe[i] + aIm[i] * aIm[i]);
+        }
+    }
+}
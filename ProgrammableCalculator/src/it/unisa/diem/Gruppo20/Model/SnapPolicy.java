@@ -0,0 +1,46 @@
+package it.unisa.diem.Gruppo20.Model;
+
+/**
+ * This enum represents how the floating point residues of the trigonometric
+ * functions (for example Math.cos(pi/2) that is a very low number but not
+ * zero) are snapped to zero.
+ *
+ * @author Team 20
+ */
+public enum SnapPolicy {
+
+    /**
+     * Values are never snapped: results keep the exact floating point value,
+     * also when they are displayed.
+     */
+    OFF,
+    /**
+     * Values are kept exact on the stack, residues are hidden only when a
+     * number is formatted to be shown to the user.
+     */
+    DISPLAY,
+    /**
+     * Residues are snapped to zero while computing, so that for example
+     * tan(pi/2) is reported as undefined. This is the default policy.
+     */
+    COMPUTE;
+
+    /**
+     * Returns true if this policy snaps the results of the computations.
+     *
+     * @return A boolean.
+     */
+    public boolean snapsComputation() {
+        return this == COMPUTE;
+    }
+
+    /**
+     * Returns true if this policy hides the residues when a number is
+     * displayed.
+     *
+     * @return A boolean.
+     */
+    public boolean snapsDisplay() {
+        return this != OFF;
+    }
+}
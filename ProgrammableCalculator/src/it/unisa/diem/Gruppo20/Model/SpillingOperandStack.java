@@ -0,0 +1,276 @@
+package it.unisa.diem.Gruppo20.Model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * This class implements an OperandStack that keeps in memory at most a fixed
+ * number of elements, the ones on top of the stack. When the memory is full
+ * the bottom half is spilled to a temporary file mapped in memory, and it's
+ * paged back when the elements on top are dropped; so the depth of the stack
+ * is limited by the disk instead of the heap, while the operations on top of
+ * the stack still work on arrays.
+ *
+ * The temporary file is created at the first spill and it's deleted by
+ * close().
+ *
+ * @author Team 20
+ */
+public class SpillingOperandStack implements OperandStack, Closeable {
+
+    /**
+     * Number of elements of a mapped chunk of the file.
+     */
+    private static final int CHUNK = 1 << 16;
+    private static final long CHUNK_BYTES = 2L * CHUNK * Double.BYTES;
+
+    private final int capacity;
+    private final int segment;
+    private final double[] re; // elements [spilled, size) of the stack
+    private final double[] im;
+    private int size;
+    private int spilled; // elements [0, spilled) are in the file
+
+    private FileChannel channel;
+    private final List<DoubleBuffer> fileRe = new ArrayList<>();
+    private final List<DoubleBuffer> fileIm = new ArrayList<>();
+    private boolean closed;
+
+    /**
+     * Creates an empty stack that keeps in memory at most capacity elements.
+     *
+     * @param capacity The maximum number of elements in memory, at least 4.
+     * @throws IllegalArgumentException if capacity is less than 4.
+     */
+    public SpillingOperandStack(int capacity) {
+        if (capacity < 4) {
+            throw new IllegalArgumentException("The capacity must be at least 4.");
+        }
+        this.capacity = capacity;
+        this.segment = capacity / 2;
+        this.re = new double[capacity];
+        this.im = new double[capacity];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of elements that are currently stored in the file.
+     *
+     * @return An int.
+     */
+    public int getSpilledSize() {
+        return spilled;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public double re(int depth) {
+        int i = index(depth);
+        return i >= spilled ? re[i - spilled] : chunk(fileRe, i).get(i % CHUNK);
+    }
+
+    @Override
+    public double im(int depth) {
+        int i = index(depth);
+        return i >= spilled ? im[i - spilled] : chunk(fileIm, i).get(i % CHUNK);
+    }
+
+    @Override
+    public void push(double re, double im) {
+        if (size == Integer.MAX_VALUE) {
+            throw new IllegalStateException("The stack is full.");
+        }
+        if (size - spilled == capacity) {
+            spill();
+        }
+        this.re[size - spilled] = re;
+        this.im[size - spilled] = im;
+        size++;
+    }
+
+    @Override
+    public void set(int depth, double re, double im) {
+        int i = index(depth);
+        if (i >= spilled) {
+            this.re[i - spilled] = re;
+            this.im[i - spilled] = im;
+        } else {
+            chunk(fileRe, i).put(i % CHUNK, re);
+            chunk(fileIm, i).put(i % CHUNK, im);
+        }
+    }
+
+    @Override
+    public void drop(int n) {
+        Objects.checkFromIndexSize(0, n, size);
+        size -= n;
+        if (spilled > size) {
+            spilled = size;
+        }
+        if (size - spilled < segment / 2 && spilled > 0) {
+            pageIn();
+        }
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        spilled = 0;
+    }
+
+    @Override
+    public void insert(int depth, double re, double im) {
+        Objects.checkIndex(depth, size + 1);
+        if (size - spilled < capacity && depth <= size - spilled) {
+            int i = size - spilled - depth;
+            System.arraycopy(this.re, i, this.re, i + 1, depth);
+            System.arraycopy(this.im, i, this.im, i + 1, depth);
+            this.re[i] = re;
+            this.im[i] = im;
+            size++;
+            return;
+        }
+        if (depth == 0) {
+            push(re, im);
+            return;
+        }
+        // deep insert: moves up one position the elements above depth
+        push(this.re(0), this.im(0));
+        for (int d = 1; d < depth; d++) {
+            set(d, this.re(d + 1), this.im(d + 1));
+        }
+        set(depth, re, im);
+    }
+
+    @Override
+    public void remove(int depth) {
+        int i = index(depth);
+        if (i >= spilled) {
+            i -= spilled;
+            System.arraycopy(re, i + 1, re, i, depth);
+            System.arraycopy(im, i + 1, im, i, depth);
+            drop(1);
+            return;
+        }
+        // deep remove: moves down one position the elements above depth
+        for (int d = depth; d > 0; d--) {
+            set(d, re(d - 1), im(d - 1));
+        }
+        drop(1);
+    }
+
+    /**
+     * Closes and deletes the temporary file. The stack can't be used anymore
+     * if some elements were spilled.
+     *
+     * @throws IOException if the file can't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        fileRe.clear();
+        fileIm.clear();
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private int index(int depth) {
+        return size - 1 - Objects.checkIndex(depth, size);
+    }
+
+    /**
+     * Moves the bottom segment of the elements in memory to the file.
+     */
+    private void spill() {
+        ensureMapped(spilled + segment);
+        transfer(spilled, 0, segment, true);
+        System.arraycopy(re, segment, re, 0, capacity - segment);
+        System.arraycopy(im, segment, im, 0, capacity - segment);
+        spilled += segment;
+    }
+
+    /**
+     * Moves back in memory the top segment of the elements in the file.
+     */
+    private void pageIn() {
+        int n = Math.min(spilled, segment);
+        int inMemory = size - spilled;
+        System.arraycopy(re, 0, re, n, inMemory);
+        System.arraycopy(im, 0, im, n, inMemory);
+        spilled -= n;
+        transfer(spilled, 0, n, false);
+    }
+
+    /**
+     * Copies n elements between the file, starting from the element at
+     * position index, and the arrays in memory, starting from offset.
+     */
+    private void transfer(int index, int offset, int n, boolean toFile) {
+        while (n > 0) {
+            int position = index % CHUNK;
+            int length = Math.min(n, CHUNK - position);
+            DoubleBuffer chunkRe = chunk(fileRe, index);
+            DoubleBuffer chunkIm = chunk(fileIm, index);
+            if (toFile) {
+                chunkRe.put(position, re, offset, length);
+                chunkIm.put(position, im, offset, length);
+            } else {
+                chunkRe.get(position, re, offset, length);
+                chunkIm.get(position, im, offset, length);
+            }
+            index += length;
+            offset += length;
+            n -= length;
+        }
+    }
+
+    private static DoubleBuffer chunk(List<DoubleBuffer> chunks, int index) {
+        return chunks.get(index / CHUNK);
+    }
+
+    /**
+     * Maps the chunks of the file needed to store the first n elements.
+     */
+    private void ensureMapped(int n) {
+        if (closed) {
+            throw new IllegalStateException("The stack has been closed.");
+        }
+        try {
+            if (channel == null) {
+                Path file = Files.createTempFile("calculator-stack", ".bin");
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.DELETE_ON_CLOSE);
+            }
+            while ((long) fileRe.size() * CHUNK < n) {
+                // a chunk stores CHUNK real parts followed by CHUNK imaginary parts
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE,
+                        fileRe.size() * CHUNK_BYTES, CHUNK_BYTES);
+                int half = CHUNK * Double.BYTES;
+                fileRe.add(buffer.slice(0, half).order(ByteOrder.nativeOrder()).asDoubleBuffer());
+                fileIm.add(buffer.slice(half, half).order(ByteOrder.nativeOrder()).asDoubleBuffer());
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Can't spill the stack to disk.", ex);
+        }
+    }
+}
@@ -1,19 +1,68 @@
 package it.unisa.diem.Gruppo20.Model;
 
 import it.unisa.diem.Gruppo20.Model.Exception.ExecuteException;
+import it.unisa.diem.Gruppo20.Model.Exception.ParseException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Concrete class that implements Command. Represents a user-defined operation
  * perofomed by a sequence of Command.
  *
+ * The sequence is compiled to a Program, a flat array of instructions executed
+ * by the Interpreter. The sequence can contain the control operations: "if"
+ * and "while" remove the top of the stack and execute their body if it isn't
+ * 0, "repeat" removes the number of times its body is executed, and "end"
+ * closes them; "if" can also have an "else". They are compiled to jumps. The
+ * programs of the called UserCommand objects are inlined in the program of
+ * the caller, until it reaches MAX_INLINED_SIZE instructions; the other calls
+ * are resolved when they are executed. Each
+ * UserCommand knows its callers, so the operations and the callers are the
+ * forward and reverse edges of the dependency graph: when a sequence changes
+ * only the programs of the UserCommand objects that use it, directly or not,
+ * are compiled again, and a definition that would make the graph cyclic is
+ * rejected.
+ *
+ * The compilation also computes the stack effect of the program: the number
+ * of elements it needs and how it changes the size of the stack, also through
+ * the user-defined operations and the operations on variables. So the size of
+ * the stack is checked once before the execution, and the definitions that
+ * always have too few operands are rejected. The programs whose stack effect
+ * is known are also optimized by the Optimizer; the names of the operations
+ * aren't changed, so they still show the sequence defined by the user.
+ *
+ * When the optimized code only performs arithmetic and stack operations, it's
+ * also translated to a RegisterCode: the intermediate results are kept in
+ * registers and only the net inputs and outputs touch the stack.
+ *
+ * After HOT_THRESHOLD executions of the same program, it's also compiled to a
+ * class by the OperationCompiler, if it has a RegisterCode. A new program,
+ * after a change of the sequence, starts again from the interpreter.
+ *
  * @author Team 20
  */
 public class UserCommand implements Command {
 
+    /**
+     * Maximum number of instructions of a program after inlining its callees.
+     */
+    static final int MAX_INLINED_SIZE = 1024;
+    /**
+     * Number of executions of a program before it's compiled to a class.
+     */
+    static final int HOT_THRESHOLD = 1000;
+
     private final List<String> commandName;
     private final List<Command> commands;
+    private final Set<UserCommand> callers;
+    private Program program; // null if it must be compiled
+    private boolean compiling;
 
     /**
      * Creates a new UserCommand object.
@@ -21,6 +70,7 @@ public class UserCommand implements Command {
     public UserCommand() {
         this.commandName = new ArrayList<>();
         this.commands = new ArrayList<>();
+        this.callers = Collections.newSetFromMap(new IdentityHashMap<>());
     }
 
     /**
@@ -35,6 +85,10 @@ public class UserCommand implements Command {
         }
         commandName.add(name.toLowerCase());
         commands.add(c);
+        if (c instanceof UserCommand) {
+            ((UserCommand) c).callers.add(this);
+        }
+        invalidate();
     }
 
     /**
@@ -48,8 +102,110 @@ public class UserCommand implements Command {
         if (commands.isEmpty() || commandName.isEmpty()) {
             throw new ExecuteException("This user-defined operation is trying to use a deleted user-defined operation.");
         }
-        for (Command c : commands) {
-            c.execute();
+        Program p = getProgram();
+        if (p.compiled != null) {
+            if (p.compiled.execute(p.calculator.getStack())) {
+                return;
+            }
+        } else if (p.executions < HOT_THRESHOLD && ++p.executions == HOT_THRESHOLD) {
+            p.compiled = OperationCompiler.compile(p);
+        }
+        if (p.registers != null && Interpreter.run(p.registers, p.calculator.getStack())) {
+            return;
+        }
+        Interpreter.run(this);
+    }
+
+    /**
+     * Replaces the sequence of operations of this UserCommand and compiles it.
+     *
+     * @param names The names of the operations.
+     * @param commands The commands that perform the operations.
+     * @throws ParseException if the new sequence calls this UserCommand,
+     * directly or not, if its control operations aren't matched or if it
+     * never has enough operands for one of its operations; in this case the
+     * old sequence is kept.
+     */
+    void define(List<String> names, List<Command> commands) throws ParseException {
+        Set<UserCommand> dependents = dependents();
+        for (int i = 0; i < commands.size(); i++) {
+            if (dependents.contains(commands.get(i))) {
+                throw new ParseException("Impossible to insert user-operation: '" + names.get(i) + "' uses this operation, it can't be called by it.");
+            }
+        }
+        List<String> oldNames = new ArrayList<>(commandName);
+        List<Command> oldCommands = new ArrayList<>(this.commands);
+        reset();
+        for (int i = 0; i < names.size(); i++) {
+            add(names.get(i), commands.get(i));
+        }
+        Program p = getProgram();
+        if (p.unmatched >= 0 || p.underflow >= 0) {
+            String message;
+            if (p.unmatched >= 0) {
+                String name = commandName.get(p.unmatched);
+                message = switch (name) {
+                    case "else" -> "'else' must follow an 'if'.";
+                    case "end" -> "'end' must close an 'if', a 'repeat' or a 'while'.";
+                    default -> "'" + name + "' must be closed by 'end'.";
+                };
+            } else {
+                message = "there are never enough numbers to perform '" + commandName.get(p.underflow) + "'.";
+            }
+            reset();
+            for (int i = 0; i < oldNames.size(); i++) {
+                add(oldNames.get(i), oldCommands.get(i));
+            }
+            throw new ParseException("Impossible to insert user-operation: " + message);
+        }
+    }
+
+    /**
+     * Returns this UserCommand and all its callers, directly or not.
+     */
+    private Set<UserCommand> dependents() {
+        Set<UserCommand> dependents = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<UserCommand> pending = new ArrayDeque<>();
+        dependents.add(this);
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            for (UserCommand caller : pending.pop().callers) {
+                if (dependents.add(caller)) {
+                    pending.push(caller);
+                }
+            }
+        }
+        return dependents;
+    }
+
+    /**
+     * Returns the compiled sequence of operations.
+     *
+     * @return A Program.
+     */
+    Program getProgram() {
+        if (program == null) {
+            compiling = true;
+            try {
+                program = new Compiler(commands).compile();
+            } finally {
+                compiling = false;
+            }
+        }
+        return program;
+    }
+
+    /**
+     * Discards the program of this UserCommand and of its callers, directly or
+     * not. The callers without a program are skipped, so the recursive
+     * operations don't loop.
+     */
+    private void invalidate() {
+        program = null;
+        for (UserCommand caller : callers) {
+            if (caller.program != null) {
+                caller.invalidate();
+            }
         }
     }
 
@@ -66,8 +222,14 @@ public class UserCommand implements Command {
      * Resets this UserCommand's operations and commands.
      */
     public void reset() {
+        for (Command c : commands) {
+            if (c instanceof UserCommand) {
+                ((UserCommand) c).callers.remove(this);
+            }
+        }
         commands.clear();
         commandName.clear();
+        invalidate();
     }
 
     /**
@@ -79,4 +241,318 @@ public class UserCommand implements Command {
         return !(commands.isEmpty() || commandName.isEmpty());
     }
 
+    /**
+     * The compiled form of a sequence of Command. The code contains a pair
+     * (opcode, operand) for each instruction: the numbers are stored in the
+     * constants, while the UserCommand objects called and the Command objects
+     * that aren't standard operations are stored in the targets.
+     */
+    static final class Program {
+
+        final int[] code;
+        /**
+         * The optimized code, executed when the stack has at least required
+         * elements. It's the code if the stack effect isn't verified.
+         */
+        final int[] fastCode;
+        final double[] constants;
+        final Command[] targets;
+        final Calculator calculator; // the Calculator of the standard operations
+        /**
+         * True if the stack effect is known: the program needs required
+         * elements on the stack, and then it adds effect elements to the
+         * stack, or leaves effect elements if clears is true.
+         */
+        final boolean verified;
+        final int required;
+        final int effect;
+        final boolean clears;
+        /**
+         * The index of the first Command that never has enough operands, or -1.
+         */
+        final int underflow;
+        /**
+         * The index of the first control operation without its if or end, or
+         * -1.
+         */
+        final int unmatched;
+        /**
+         * The register form of the optimized code, or null.
+         */
+        final RegisterCode registers;
+        int executions;
+        CompiledOperation compiled; // null until the program is hot
+
+        private Program(int[] code, int[] fastCode, double[] constants, Command[] targets, Calculator calculator,
+                boolean verified, int required, int effect, boolean clears, int underflow, int unmatched) {
+            this.code = code;
+            this.fastCode = fastCode;
+            this.constants = constants;
+            this.targets = targets;
+            this.calculator = calculator;
+            this.verified = verified;
+            this.required = required;
+            this.effect = effect;
+            this.clears = clears;
+            this.underflow = underflow;
+            this.unmatched = unmatched;
+            this.registers = RegisterCode.translate(this);
+        }
+    }
+
+    /**
+     * Builds the Program of a sequence of Command. The programs of the
+     * UserCommand objects called are copied in the code, unless the callee
+     * isn't executable, is being compiled (a recursive call) or uses another
+     * Calculator, or the code would exceed MAX_INLINED_SIZE instructions.
+     *
+     * The stack effect is computed while the sequence is compiled. The size of
+     * the stack is relative to the beginning of the program until a clear,
+     * then it's known: from there an operation with too few operands always
+     * fails. The effect is unknown after a Command that isn't a standard
+     * operation or a verified UserCommand, or after a control operation.
+     *
+     * The control operations are compiled to jumps. if and while become a
+     * JUMP_IF_ZERO to the instruction after their end, else a JUMP to the end
+     * of the if, and the end of a while a JUMP back to it; repeat becomes a
+     * REPEAT, and its end a LOOP back to its body. An else or end without its
+     * if is ignored, and the constructs not closed end with the program.
+     */
+    private static final class Compiler {
+
+        private final List<Command> commands;
+        private int[] code;
+        private int size;
+        private double[] constants;
+        private int nConstants;
+        private Command[] targets;
+        private int nTargets;
+        private Calculator calculator;
+        private boolean known = true; // the stack effect is known until now
+        private int required;
+        private int height;
+        private boolean absolute; // height is the size of the stack, after a clear
+        private int underflow = -1;
+        private int[] open = new int[8]; // index of the Command of each construct not closed
+        private int[] openJumps = new int[8]; // its instruction that jumps
+        private int nOpen;
+        private int unmatched = -1;
+
+        private Compiler(List<Command> commands) {
+            this.commands = commands;
+            this.code = new int[commands.size() * 2];
+            this.constants = new double[0];
+            this.targets = new Command[0];
+        }
+
+        private Program compile() {
+            for (int i = 0; i < commands.size(); i++) {
+                Command c = commands.get(i);
+                if (c instanceof BuiltinCommand b && Opcode.isControl(b.getOpcode())) {
+                    useCalculator(b.getCalculator()); // the conditions are removed from its stack
+                    control(i, b.getOpcode());
+                    known = false;
+                } else if (c instanceof BuiltinCommand b && useCalculator(b.getCalculator())) {
+                    int opcode = b.getOpcode();
+                    if (opcode == Opcode.NUMBER) {
+                        emit(Opcode.NUMBER, addConstant(b.getReal(), b.getImaginary()));
+                    } else {
+                        emit(opcode, b.getOperand());
+                    }
+                    apply(i, Opcode.required(opcode), Opcode.effect(opcode), opcode == Opcode.CLEAR);
+                } else if (c instanceof UserCommand callee) {
+                    Program p = callee.isExecutable() && !callee.compiling ? callee.getProgram() : null;
+                    if (p == null || !inline(p)) {
+                        emit(Opcode.CALL, addTarget(callee));
+                    }
+                    if (p == null || !p.verified || !useCalculator(p.calculator)) {
+                        known = false;
+                    } else if (p.underflow >= 0) {
+                        fail(i);
+                    } else {
+                        apply(i, p.required, p.effect, p.clears);
+                    }
+                } else {
+                    emit(Opcode.EXTERNAL, addTarget(c));
+                    known = false;
+                }
+            }
+            while (nOpen > 0) {
+                unmatched(open[nOpen - 1]);
+                close();
+            }
+            int[] original = Arrays.copyOf(code, size);
+            int[] fast = original;
+            double[] values = Arrays.copyOf(constants, nConstants);
+            boolean verified = known && calculator != null;
+            if (verified) {
+                Optimizer optimizer = new Optimizer(values);
+                fast = optimizer.optimize(original);
+                values = optimizer.getConstants();
+            }
+            return new Program(original, fast, values, Arrays.copyOf(targets, nTargets), calculator,
+                    verified, required, height, absolute, underflow, unmatched);
+        }
+
+        /**
+         * Compiles the control operation opcode of the Command at index.
+         */
+        private void control(int index, int opcode) {
+            switch (opcode) {
+                case Opcode.IF, Opcode.WHILE -> {
+                    open(index);
+                    emit(Opcode.JUMP_IF_ZERO, 0);
+                }
+                case Opcode.REPEAT -> {
+                    open(index);
+                    emit(Opcode.REPEAT, 0);
+                }
+                case Opcode.ELSE -> {
+                    if (nOpen == 0 || opcodeAt(open[nOpen - 1]) != Opcode.IF) {
+                        unmatched(index);
+                        return;
+                    }
+                    emit(Opcode.JUMP, 0);
+                    code[openJumps[nOpen - 1] + 1] = size;
+                    open[nOpen - 1] = index;
+                    openJumps[nOpen - 1] = size - 2;
+                }
+                default -> {
+                    if (nOpen == 0) {
+                        unmatched(index);
+                        return;
+                    }
+                    close();
+                }
+            }
+        }
+
+        private void open(int index) {
+            if (nOpen == open.length) {
+                open = Arrays.copyOf(open, nOpen * 2);
+                openJumps = Arrays.copyOf(openJumps, nOpen * 2);
+            }
+            open[nOpen] = index;
+            openJumps[nOpen] = size;
+            nOpen++;
+        }
+
+        /**
+         * Compiles the end of the last construct not closed.
+         */
+        private void close() {
+            nOpen--;
+            int jump = openJumps[nOpen];
+            switch (opcodeAt(open[nOpen])) {
+                case Opcode.REPEAT ->
+                    emit(Opcode.LOOP, jump + 2);
+                case Opcode.WHILE ->
+                    emit(Opcode.JUMP, jump);
+                default -> {
+                }
+            }
+            code[jump + 1] = size;
+        }
+
+        private int opcodeAt(int index) {
+            return ((BuiltinCommand) commands.get(index)).getOpcode();
+        }
+
+        private void unmatched(int index) {
+            if (unmatched < 0 || index < unmatched) {
+                unmatched = index;
+            }
+        }
+
+        /**
+         * Updates the stack effect with the one of the Command at index.
+         */
+        private void apply(int index, int required, int effect, boolean clears) {
+            if (!known) {
+                return;
+            }
+            if (absolute && height < required) {
+                fail(index);
+                return;
+            }
+            this.required = Math.max(this.required, required - height);
+            height = clears ? effect : height + effect;
+            absolute |= clears;
+        }
+
+        /**
+         * Records that the Command at index always fails, if it's reached.
+         */
+        private void fail(int index) {
+            if (known) {
+                underflow = index;
+                known = false;
+            }
+        }
+
+        /**
+         * Copies the program p of a callee in the code, if it can be inlined.
+         */
+        private boolean inline(Program p) {
+            if ((size + p.code.length) / 2 > MAX_INLINED_SIZE || !useCalculator(p.calculator)) {
+                return false;
+            }
+            int offset = size;
+            for (int pc = 0; pc < p.code.length; pc += 2) {
+                int opcode = p.code[pc];
+                int operand = p.code[pc + 1];
+                switch (opcode) {
+                    case Opcode.NUMBER ->
+                        emit(opcode, addConstant(p.constants[operand], p.constants[operand + 1]));
+                    case Opcode.CALL, Opcode.EXTERNAL ->
+                        emit(opcode, addTarget(p.targets[operand]));
+                    case Opcode.JUMP, Opcode.JUMP_IF_ZERO, Opcode.REPEAT, Opcode.LOOP ->
+                        emit(opcode, operand + offset);
+                    default ->
+                        emit(opcode, operand);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns true if the standard operations on c can be compiled in
+         * this program, that executes them on a single Calculator.
+         */
+        private boolean useCalculator(Calculator c) {
+            if (c == null || calculator == c) {
+                return true;
+            }
+            if (calculator == null) {
+                calculator = c;
+                return true;
+            }
+            return false;
+        }
+
+        private void emit(int opcode, int operand) {
+            if (size == code.length) {
+                code = Arrays.copyOf(code, Math.max(8, size * 2));
+            }
+            code[size++] = opcode;
+            code[size++] = operand;
+        }
+
+        private int addConstant(double real, double imaginary) {
+            if (nConstants == constants.length) {
+                constants = Arrays.copyOf(constants, Math.max(4, nConstants * 2));
+            }
+            constants[nConstants++] = real;
+            constants[nConstants++] = imaginary;
+            return nConstants - 2;
+        }
+
+        private int addTarget(Command c) {
+            if (nTargets == targets.length) {
+                targets = Arrays.copyOf(targets, Math.max(2, nTargets * 2));
+            }
+            targets[nTargets] = c;
+            return nTargets++;
+        }
+    }
 }
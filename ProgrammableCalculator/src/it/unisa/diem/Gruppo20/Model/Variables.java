@@ -1,11 +1,18 @@
 package it.unisa.diem.Gruppo20.Model;
 
 import it.unisa.diem.Gruppo20.Model.Exception.VariableKeyException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * This class allows the Variable managment.
@@ -14,25 +21,65 @@ import java.util.NoSuchElementException;
  */
 public class Variables {
 
+    private static final int SIZE = 'z' - 'a' + 1;
+    /**
+     * Number of writes in the journal after which it's trimmed.
+     */
+    private static final long TRIM_THRESHOLD = 1024;
+    /**
+     * Maximum number of writes kept in the journal, about 5 MB of heap. When
+     * it's exceeded, also during a single operation, the older writes are
+     * discarded and can't be restored anymore.
+     */
+    static final long JOURNAL_LIMIT = 1 << 16;
+
+    private double[] re;
+    private double[] im;
+    private int defined; // bit i is set if the variable 'a' + i has a value
+    private MappedDataset[] datasets; // dataset bound to each variable, null if there aren't any
+    private long[] positions; // next element of each dataset
+    private boolean journaling; // the writes in the datasets are recorded
+    private Write journal; // last write in a dataset, null if there aren't any
+    private long journalRoot; // depth of the oldest write kept by trimJournal
+    private long trimLimit = TRIM_THRESHOLD;
+    private boolean journalCut; // JOURNAL_LIMIT was exceeded after the last trim
+    private boolean shared; // the arrays are referenced by a backup or a snapshot
+    private Backup backups;
     private final Map<Character, Complex> data;
-    private final Deque<Map<Character, Complex>> backupsStack;
 
     /**
-     * Creates an object of this class. An HashMap is used to save Complex
-     * numbers corresponding to a letter in the range [a-z]. Instead, an
-     * ArrayDeque is used to save and restore the map.
+     * Creates an object of this class. The values of the variables in the
+     * range [a-z] are stored in two arrays that are copied only when they are
+     * modified after a backup or a snapshot, while the backups are stored in a
+     * persistent list; so backup(), restore() and snapshot() take constant time.
      */
     public Variables() {
-        data = new HashMap<>();
-        backupsStack = new ArrayDeque<>();
+        re = new double[SIZE];
+        im = new double[SIZE];
+        data = new ValuesMap();
     }
 
+    /**
+     * Returns a live view of the variables that have a value.
+     *
+     * @return A Map from the name of the variable to its value.
+     */
     public Map<Character, Complex> getCurrentValues() {
         return data;
     }
 
+    /**
+     * Returns a copy of the stack of the backups, the first element is the
+     * latest backup. The maps can't be modified.
+     *
+     * @return A Deque of Map.
+     */
     public Deque<Map<Character, Complex>> getBackupsStack() {
-        return backupsStack;
+        Deque<Map<Character, Complex>> stack = new ArrayDeque<>();
+        for (Backup b = backups; b != null; b = b.next) {
+            stack.addLast(Collections.unmodifiableMap(new ValuesMap(b.re, b.im, b.defined)));
+        }
+        return stack;
     }
 
     /**
@@ -44,11 +91,16 @@ public class Variables {
      * inside the map.
      */
     public Complex getVariable(char c) throws VariableKeyException {
-        Complex value = data.get(checkKey(c));
-        if (value == null) {
+        int i = checkKey(c) - 'a';
+        if (datasets != null && datasets[i] != null) {
+            Complex value = datasets[i].get(next(i));
+            advance(i);
+            return value;
+        }
+        if ((defined & 1 << i) == 0) {
             throw new VariableKeyException("There isn't a Complex number associated to the the key '" + c + "'.");
         }
-        return value;
+        return Complex.of(re[i], im[i]);
     }
 
     /**
@@ -59,7 +111,15 @@ public class Variables {
      * variable c.
      */
     public void setVariable(char c, Complex number) {
-        data.put(checkKey(c), number);
+        int i = checkKey(c) - 'a';
+        if (datasets != null && datasets[i] != null) {
+            update(i, number.getReal(), number.getImaginary());
+            return;
+        }
+        write();
+        re[i] = number.getReal();
+        im[i] = number.getImaginary();
+        defined |= 1 << i;
     }
 
     /**
@@ -71,6 +131,12 @@ public class Variables {
      * c.
      */
     public void sumVariable(char c, Complex number) {
+        int i = checkKey(c) - 'a';
+        if (datasets != null && datasets[i] != null) {
+            long n = next(i);
+            update(i, datasets[i].re(n) + number.getReal(), datasets[i].im(n) + number.getImaginary());
+            return;
+        }
         Complex actual = getVariable(c);
         Complex result = actual.plus(number);
         setVariable(c, result);
@@ -85,23 +151,164 @@ public class Variables {
      * variable c.
      */
     public void subVariable(char c, Complex number) {
+        int i = checkKey(c) - 'a';
+        if (datasets != null && datasets[i] != null) {
+            long n = next(i);
+            update(i, datasets[i].re(n) - number.getReal(), datasets[i].im(n) - number.getImaginary());
+            return;
+        }
         Complex actual = getVariable(c);
         Complex result = actual.minus(number);
         setVariable(c, result);
     }
 
+    /**
+     * Binds the variable c to dataset, from its first element. While it's
+     * bound, each read of the variable returns the next element of the dataset
+     * and each write (set, sum or subtract) modifies the next element, so the
+     * operations on the variable stream through the dataset; the value of the
+     * variable, if any, is removed. The position of the variable is restored
+     * with the other values by restore() and restoreSnapshot(); the elements
+     * written in the dataset are restored only by restoreSnapshot(), and only
+     * when the Variables belongs to a Calculator, so an operation executed
+     * atomically or undone leaves the dataset as it was. The writes are
+     * recorded on the heap, so only the last JOURNAL_LIMIT writes are kept:
+     * after an operation that writes more elements, a rollback or an undo
+     * across it restores the positions but leaves the elements as they are.
+     *
+     * @param c The variable.
+     * @param dataset The dataset.
+     * @throws VariableKeyException if c isn't a valid variable.
+     * @throws NullPointerException if dataset is null.
+     */
+    public void bind(char c, MappedDataset dataset) {
+        int i = checkKey(c) - 'a';
+        if (dataset == null) {
+            throw new NullPointerException();
+        }
+        if (datasets == null) {
+            datasets = new MappedDataset[SIZE];
+            positions = new long[SIZE];
+        } else {
+            write();
+        }
+        datasets[i] = dataset;
+        positions[i] = 0;
+        defined &= ~(1 << i);
+    }
+
+    /**
+     * Removes the binding of the variable c, that is left without a value.
+     * The dataset isn't closed.
+     *
+     * @param c The variable.
+     * @throws VariableKeyException if c isn't a valid variable.
+     */
+    public void unbind(char c) {
+        int i = checkKey(c) - 'a';
+        if (datasets != null && datasets[i] != null) {
+            write();
+            datasets[i] = null;
+        }
+    }
+
+    /**
+     * Returns the dataset bound to the variable c.
+     *
+     * @param c The variable.
+     * @return A MappedDataset, or null if c isn't bound.
+     * @throws VariableKeyException if c isn't a valid variable.
+     */
+    public MappedDataset getDataset(char c) {
+        int i = checkKey(c) - 'a';
+        return datasets == null ? null : datasets[i];
+    }
+
+    /**
+     * Returns the index of the element of the dataset bound to c that will be
+     * read or written next.
+     *
+     * @param c A bound variable.
+     * @return An index, equal to the length of the dataset at its end.
+     * @throws VariableKeyException if c isn't bound to a dataset.
+     */
+    public long getPosition(char c) {
+        return positions[bound(c)];
+    }
+
+    /**
+     * Moves the variable c to the element at index position of its dataset.
+     *
+     * @param c A bound variable.
+     * @param position An index in [0, length of the dataset].
+     * @throws VariableKeyException if c isn't bound to a dataset.
+     * @throws IndexOutOfBoundsException if position is out of range.
+     */
+    public void setPosition(char c, long position) {
+        int i = bound(c);
+        write();
+        positions[i] = Objects.checkIndex(position, datasets[i].length() + 1);
+    }
+
+    /**
+     * Returns the index of the bound variable c.
+     */
+    private int bound(char c) {
+        int i = checkKey(c) - 'a';
+        if (datasets == null || datasets[i] == null) {
+            throw new VariableKeyException("There isn't a dataset bound to the variable '" + c + "'.");
+        }
+        return i;
+    }
+
+    /**
+     * Returns the index of the next element of the dataset of the variable i.
+     */
+    private long next(int i) {
+        long n = positions[i];
+        if (n == datasets[i].length()) {
+            throw new VariableKeyException("The dataset of the variable '" + (char) ('a' + i) + "' has no more elements.");
+        }
+        return n;
+    }
+
+    /**
+     * Writes re + im*j on the next element of the dataset of the variable i.
+     */
+    private void update(int i, double re, double im) {
+        long n = next(i);
+        if (!datasets[i].isWritable()) {
+            throw new VariableKeyException("The dataset of the variable '" + (char) ('a' + i) + "' is read-only.");
+        }
+        MappedDataset d = datasets[i];
+        if (journaling) {
+            journal = new Write(d, n, d.re(n), d.im(n), re, im, journal);
+            if (journal.depth - journalRoot > JOURNAL_LIMIT) {
+                journal.prev = null; // the older writes can't be restored anymore
+                journalRoot = journal.depth;
+                journalCut = true;
+            }
+        }
+        d.set(n, re, im);
+        advance(i);
+    }
+
+    private void advance(int i) {
+        write();
+        positions[i]++;
+    }
+
     /**
      * Backups the variables of current map into a backup stack.
      *
      * @throws NoSuchElementException if there aren't variables to be saved.
      */
     public void backup() throws NoSuchElementException {
-        if (data.isEmpty()) {
+        if (defined == 0 && !hasDatasets()) {
             throw new NoSuchElementException("There aren't elements to save.");
         }
-        Map<Character, Complex> map = new HashMap<>();
-        map.putAll(data);
-        backupsStack.push(map);
+        shared = true;
+        backups = new Backup(re, im, defined, datasets, positions, backups);
     }
 
     /**
@@ -112,11 +319,203 @@ public class Variables {
      * backup stack.
      */
     public void restore() throws NoSuchElementException {
-        if (backupsStack.isEmpty()) {
+        if (backups == null) {
             throw new NoSuchElementException("There aren't elements to restore.");
         }
-        data.clear();
-        data.putAll(backupsStack.pop());
+        re = backups.re;
+        im = backups.im;
+        defined = backups.defined;
+        datasets = backups.datasets;
+        positions = backups.positions;
+        shared = true;
+        backups = backups.next;
+    }
+
+    /**
+     * Returns an immutable copy of the state of the variables and of their
+     * backups, that can be restored with restoreSnapshot. The copy shares the
+     * data with this object, so it takes constant time and memory.
+     *
+     * @return A Snapshot.
+     */
+    public Snapshot snapshot() {
+        shared = true;
+        return new Snapshot(re, im, defined, datasets, positions, journal, backups);
+    }
+
+    /**
+     * Brings the variables and their backups back to the state of the
+     * snapshot passed as param. If the writes in the datasets are recorded,
+     * the elements written after the snapshot are restored and the ones
+     * written before it and undone later are written again.
+     *
+     * @param s A Snapshot returned by snapshot().
+     */
+    public void restoreSnapshot(Snapshot s) {
+        moveJournal(s.journal);
+        re = s.re;
+        im = s.im;
+        defined = s.defined;
+        datasets = s.datasets;
+        positions = s.positions;
+        backups = s.backups;
+        shared = true;
+    }
+
+    /**
+     * Copies the arrays of the values before a change, if they are shared.
+     */
+    private void write() {
+        if (shared) {
+            re = re.clone();
+            im = im.clone();
+            if (datasets != null) {
+                datasets = datasets.clone();
+                positions = positions.clone();
+            }
+            shared = false;
+        }
+    }
+
+    /**
+     * Starts recording the writes in the datasets, so that restoreSnapshot
+     * can restore them. The owner must call trimJournal, otherwise the
+     * journal keeps all the writes.
+     */
+    void enableJournal() {
+        journaling = true;
+    }
+
+    /**
+     * Returns true if the journal has grown enough to be trimmed.
+     *
+     * @return A boolean.
+     */
+    boolean needsJournalTrim() {
+        return journalCut || journal != null && journal.depth - journalRoot > trimLimit;
+    }
+
+    /**
+     * Discards the writes that aren't needed to restore the current state
+     * and the snapshots in states, that are all the snapshots that will be
+     * restored. The snapshots separated from the current write by a
+     * discarded write don't restore the elements anymore, so their writes are
+     * discarded too.
+     *
+     * @param states The snapshots still in use.
+     */
+    void trimJournal(Iterable<Snapshot> states) {
+        journalCut = false;
+        if (journal == null) {
+            return;
+        }
+        Write root = journal;
+        for (Snapshot s : states) {
+            if (!isRestorable(s.journal)) {
+                if (s.journal != null) {
+                    s.journal.prev = null;
+                }
+            } else if (root != null) {
+                root = commonWrite(root, s.journal);
+            }
+        }
+        if (root != null) {
+            root.prev = null; // the older writes can't be restored anymore
+            journalRoot = root.depth;
+        }
+        trimLimit = Math.max(TRIM_THRESHOLD, 2 * (journal.depth - journalRoot));
+    }
+
+    /**
+     * Returns true if the elements can be brought to the state they had when
+     * target was the last write, without crossing a discarded write.
+     */
+    private boolean isRestorable(Write target) {
+        Write a = journal;
+        Write b = target;
+        while (a != b) {
+            if (a != null && (b == null || a.depth >= b.depth)) {
+                if (a.isTrimmed()) {
+                    return false;
+                }
+                a = a.prev;
+            } else {
+                if (b.isTrimmed()) {
+                    return false;
+                }
+                b = b.prev;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Brings the elements of the datasets to the state they had when target
+     * was the last write: the writes after their last common write are undone
+     * from the current one, and written again up to target. If target is
+     * older than the trimmed journal the elements aren't changed.
+     */
+    private void moveJournal(Write target) {
+        if (journal == target) {
+            return;
+        }
+        List<Write> undo = new ArrayList<>();
+        List<Write> redo = new ArrayList<>();
+        Write a = journal;
+        Write b = target;
+        while (a != b) {
+            if (a != null && (b == null || a.depth >= b.depth)) {
+                if (a.isTrimmed()) {
+                    journal = target;
+                    return;
+                }
+                undo.add(a);
+                a = a.prev;
+            } else {
+                if (b.isTrimmed()) {
+                    journal = target;
+                    return;
+                }
+                redo.add(b);
+                b = b.prev;
+            }
+        }
+        for (Write w : undo) {
+            w.write(w.oldRe, w.oldIm);
+        }
+        for (int k = redo.size() - 1; k >= 0; k--) {
+            Write w = redo.get(k);
+            w.write(w.newRe, w.newIm);
+        }
+        journal = target;
+    }
+
+    /**
+     * Returns the last write that a and b have in common, or null.
+     */
+    private static Write commonWrite(Write a, Write b) {
+        while (a != b) {
+            if (a == null || b == null) {
+                return null;
+            }
+            if (a.depth >= b.depth) {
+                a = a.prev;
+            } else {
+                b = b.prev;
+            }
+        }
+        return a;
+    }
+
+    private boolean hasDatasets() {
+        if (datasets != null) {
+            for (MappedDataset d : datasets) {
+                if (d != null) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     /**
@@ -133,4 +532,212 @@ public class Variables {
         }
         return key;
     }
+
+    /**
+     * This class represents the state of the variables in a given moment.
+     */
+    public static final class Snapshot {
+
+        private final double[] re;
+        private final double[] im;
+        private final int defined;
+        private final MappedDataset[] datasets;
+        private final long[] positions;
+        private final Write journal;
+        private final Backup backups;
+
+        private Snapshot(double[] re, double[] im, int defined, MappedDataset[] datasets, long[] positions, Write journal, Backup backups) {
+            this.re = re;
+            this.im = im;
+            this.defined = defined;
+            this.datasets = datasets;
+            this.positions = positions;
+            this.journal = journal;
+            this.backups = backups;
+        }
+    }
+
+    /**
+     * Node of the persistent list of the backups.
+     */
+    private static final class Backup {
+
+        private final double[] re;
+        private final double[] im;
+        private final int defined;
+        private final MappedDataset[] datasets;
+        private final long[] positions;
+        private final Backup next;
+
+        private Backup(double[] re, double[] im, int defined, MappedDataset[] datasets, long[] positions, Backup next) {
+            this.re = re;
+            this.im = im;
+            this.defined = defined;
+            this.datasets = datasets;
+            this.positions = positions;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Node of the persistent tree of the writes in the datasets: each write
+     * points to the previous one, and the snapshots point to the last write
+     * they have seen.
+     */
+    private static final class Write {
+
+        private final MappedDataset dataset;
+        private final long index;
+        private final double oldRe;
+        private final double oldIm;
+        private final double newRe;
+        private final double newIm;
+        private final long depth; // number of writes up to this one
+        private Write prev; // set to null when the journal is trimmed
+
+        private Write(MappedDataset dataset, long index, double oldRe, double oldIm, double newRe, double newIm, Write prev) {
+            this.dataset = dataset;
+            this.index = index;
+            this.oldRe = oldRe;
+            this.oldIm = oldIm;
+            this.newRe = newRe;
+            this.newIm = newIm;
+            this.depth = prev == null ? 1 : prev.depth + 1;
+            this.prev = prev;
+        }
+
+        /**
+         * Returns true if the writes before this one have been discarded.
+         */
+        private boolean isTrimmed() {
+            return prev == null && depth > 1;
+        }
+
+        private void write(double re, double im) {
+            if (dataset.isOpen()) {
+                dataset.set(index, re, im);
+            }
+        }
+    }
+
+    /**
+     * Map view of a set of values. Without arguments it's the live view of the
+     * current values of this object, otherwise it reads the arrays passed to
+     * the constructor.
+     */
+    private class ValuesMap extends AbstractMap<Character, Complex> {
+
+        private final double[] fixedRe;
+        private final double[] fixedIm;
+        private final int fixedDefined;
+
+        ValuesMap() {
+            this(null, null, 0);
+        }
+
+        ValuesMap(double[] re, double[] im, int defined) {
+            this.fixedRe = re;
+            this.fixedIm = im;
+            this.fixedDefined = defined;
+        }
+
+        private int mask() {
+            return fixedRe == null ? defined : fixedDefined;
+        }
+
+        private Complex value(int i) {
+            return fixedRe == null ? Complex.of(re[i], im[i]) : Complex.of(fixedRe[i], fixedIm[i]);
+        }
+
+        private int index(Object key) {
+            if (key instanceof Character) {
+                int i = (Character) key - 'a';
+                if (i >= 0 && i < SIZE && (mask() & 1 << i) != 0) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int size() {
+            return Integer.bitCount(mask());
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return index(key) >= 0;
+        }
+
+        @Override
+        public Complex get(Object key) {
+            int i = index(key);
+            return i < 0 ? null : value(i);
+        }
+
+        @Override
+        public Complex put(Character key, Complex value) {
+            Complex old = get(key);
+            setVariable(key, value);
+            return old;
+        }
+
+        @Override
+        public Complex remove(Object key) {
+            int i = index(key);
+            if (i < 0) {
+                return null;
+            }
+            Complex old = value(i);
+            defined &= ~(1 << i);
+            return old;
+        }
+
+        @Override
+        public void clear() {
+            defined = 0;
+        }
+
+        @Override
+        public Set<Entry<Character, Complex>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return ValuesMap.this.size();
+                }
+
+                @Override
+                public Iterator<Entry<Character, Complex>> iterator() {
+                    return new Iterator<>() {
+                        private int remaining = mask();
+                        private int last = -1;
+
+                        @Override
+                        public boolean hasNext() {
+                            return remaining != 0;
+                        }
+
+                        @Override
+                        public Entry<Character, Complex> next() {
+                            if (remaining == 0) {
+                                throw new NoSuchElementException();
+                            }
+                            last = Integer.numberOfTrailingZeros(remaining);
+                            remaining &= remaining - 1;
+                            return new SimpleImmutableEntry<>((char) ('a' + last), value(last));
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (last < 0) {
+                                throw new IllegalStateException();
+                            }
+                            ValuesMap.this.remove((char) ('a' + last));
+                            last = -1;
+                        }
+                    };
+                }
+            };
+        }
+    }
 }
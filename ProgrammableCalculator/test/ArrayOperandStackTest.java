@@ -0,0 +1,109 @@
+
+import it.unisa.diem.Gruppo20.Model.ArrayOperandStack;
+import it.unisa.diem.Gruppo20.Model.Calculator;
+import it.unisa.diem.Gruppo20.Model.Complex;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Team 20
+ */
+public class ArrayOperandStackTest {
+
+    private ArrayOperandStack stack;
+
+    public ArrayOperandStackTest() {
+    }
+
+    @Before
+    public void setUp() {
+        stack = new ArrayOperandStack();
+        for (int i = 0; i < 40; i++) { // more than the initial capacity
+            stack.push(i, -i);
+        }
+    }
+
+    @Test
+    public void testPushAndDepth() {
+        assertEquals(40, stack.size());
+        assertEquals(39.0, stack.re(0), 0.0);
+        assertEquals(-39.0, stack.im(0), 0.0);
+        assertEquals(0.0, stack.re(39), 0.0);
+        assertEquals(new Complex(38.0, -38.0), stack.get(1));
+    }
+
+    @Test
+    public void testSetAndDrop() {
+        stack.set(1, 5.0, 6.0);
+        stack.drop(1);
+        assertEquals(39, stack.size());
+        assertEquals(new Complex(5.0, 6.0), stack.get(0));
+
+        stack.drop(39);
+        assertEquals(0, stack.size());
+    }
+
+    @Test
+    public void testInsertAndRemove() {
+        stack.insert(40, 100.0, 0.0);
+        stack.insert(0, 200.0, 0.0);
+        stack.insert(2, 300.0, 0.0);
+        assertEquals(43, stack.size());
+        assertEquals(200.0, stack.re(0), 0.0);
+        assertEquals(39.0, stack.re(1), 0.0);
+        assertEquals(300.0, stack.re(2), 0.0);
+        assertEquals(100.0, stack.re(42), 0.0);
+
+        stack.remove(2);
+        stack.remove(0);
+        stack.remove(40);
+        assertEquals(40, stack.size());
+        for (int depth = 0; depth < 40; depth++) {
+            assertEquals(39.0 - depth, stack.re(depth), 0.0);
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testDepthException() {
+        stack.re(40);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testDropException() {
+        stack.drop(41);
+    }
+
+    @Test
+    public void testDequeView() {
+        Calculator c = new Calculator();
+        Deque<Complex> data = c.getData();
+        data.push(new Complex(1.0, 1.0));
+        data.addLast(new Complex(2.0, 2.0));
+        data.push(new Complex(3.0, 3.0));
+        assertEquals(3, c.getStack().size());
+        assertEquals(new Complex(3.0, 3.0), data.peekFirst());
+        assertEquals(new Complex(2.0, 2.0), data.getLast());
+
+        Iterator<Complex> it = data.descendingIterator();
+        assertEquals(new Complex(2.0, 2.0), it.next());
+        it.remove();
+        assertEquals(new Complex(1.0, 1.0), it.next());
+
+        data.element().setReal(10.0); // the view returns copies
+        assertEquals(3.0, c.getStack().re(0), 0.0);
+        assertEquals(new Complex(3.0, 3.0), data.pop());
+        assertEquals(new Complex(1.0, 1.0), data.pop());
+        assertNull(data.peek());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testDequeViewException() {
+        new Calculator().getData().pop();
+    }
+
+}
@@ -1,6 +1,8 @@
 
 import it.unisa.diem.Gruppo20.Model.Calculator;
 import it.unisa.diem.Gruppo20.Model.Complex;
+import it.unisa.diem.Gruppo20.Model.SnapPolicy;
+import it.unisa.diem.Gruppo20.Model.SpillingOperandStack;
 import java.util.NoSuchElementException;
 
 import org.junit.*;
@@ -323,6 +325,121 @@ public class CalculatorTest {
         c.division();
     }
 
+    @Test
+    public void testFailedOperationKeepsStack() {
+        c.insertNumber(operand1);
+        c.insertNumber(zero);
+        try {
+            c.division();
+            fail("Division by 0 should fail");
+        } catch (ArithmeticException ex) {
+            assertEquals(2, c.getData().size());
+            assertComplexEquals(zero, c.getData().pop());
+            assertComplexEquals(operand1, c.getData().pop());
+        }
+    }
+
+    @Test
+    public void testExecuteAtomically() {
+        Calculator deep = new Calculator(new SpillingOperandStack(8));
+        for (int i = 0; i < 100; i++) {
+            deep.insertNumber(new Complex(i, -i));
+        }
+        try {
+            deep.executeAtomically(() -> {
+                for (int i = 0; i < 60; i++) {
+                    deep.sum();
+                }
+                deep.swap();
+                deep.invertSign();
+                deep.insertNumber(operand1);
+                deep.getStack().clear();
+                deep.drop();
+            });
+            fail("drop on an empty stack should fail");
+        } catch (NoSuchElementException ex) {
+            assertEquals(100, deep.getData().size());
+            for (int i = 99; i >= 0; i--) {
+                assertComplexEquals(new Complex(i, -i), deep.getData().pop());
+            }
+        }
+    }
+
+    @Test
+    public void testUndoRedo() {
+        assertFalse(c.canUndo());
+        c.checkpoint();
+        c.insertNumber(operand1);
+        c.checkpoint();
+        c.insertNumber(operand2);
+        c.pushVariable('x');
+        c.checkpoint();
+        c.clear();
+
+        c.undo();
+        assertEquals(1, c.getData().size());
+        assertComplexEquals(operand2, c.getVariables().getVariable('x'));
+        c.undo();
+        assertEquals(1, c.getData().size());
+        assertTrue(c.getVariables().getCurrentValues().isEmpty());
+        c.undo();
+        assertTrue(c.getData().isEmpty());
+        assertFalse(c.canUndo());
+
+        c.redo();
+        c.redo();
+        assertComplexEquals(operand1, c.getData().element());
+        assertComplexEquals(operand2, c.getVariables().getVariable('x'));
+        assertTrue(c.canRedo());
+
+        c.checkpoint(); // a new operation discards the redo history
+        assertFalse(c.canRedo());
+    }
+
+    @Test
+    public void testExecuteUndoable() {
+        c.executeUndoable(() -> c.insertNumber(operand1));
+        c.undo();
+        assertTrue(c.canRedo());
+        try {
+            c.executeUndoable(() -> {
+                c.insertNumber(operand2);
+                c.sum();
+            });
+            fail("sum needs two operands");
+        } catch (RuntimeException ex) {
+            assertTrue(c.getData().isEmpty());
+            assertFalse(c.canUndo()); // a failed operation doesn't change the history
+            assertTrue(c.canRedo());
+        }
+        c.redo();
+        assertComplexEquals(operand1, c.getData().element());
+    }
+
+    @Test
+    public void testHistoryLimit() {
+        c.setHistoryLimit(2);
+        for (int i = 0; i < 5; i++) {
+            c.checkpoint();
+            c.insertNumber(operand1);
+        }
+        c.undo();
+        c.undo();
+        assertFalse(c.canUndo());
+        assertEquals(3, c.getData().size());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testUndoException() {
+        c.undo();
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testRedoException() {
+        c.checkpoint();
+        c.redo();
+    }
+
     @Test
     public void testClear() throws Exception {
         c.insertNumber(operand1);
@@ -1061,6 +1178,71 @@ public class CalculatorTest {
         assertComplexEquals(expected, c.getData().pop());
     }
 
+    @Test
+    public void testSnapPolicy() {
+        assertEquals(SnapPolicy.COMPUTE, c.getSnapPolicy());
+        c.insertNumber(new Complex(Math.PI / 2, 0d));
+        c.cos();
+        assertEquals(0.0, c.getData().pop().getReal(), 0.0);
+
+        c.setSnapPolicy(SnapPolicy.OFF);
+        c.insertNumber(new Complex(Math.PI / 2, 0d));
+        c.cos();
+        assertNotEquals(0.0, c.getData().pop().getReal(), 0.0);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testSetSnapPolicyException() {
+        c.setSnapPolicy(null);
+    }
+
+    @Test
+    public void testCompare() {
+        c.insertNumber(operand1);
+        c.insertNumber(operand1);
+        c.equal();
+        assertComplexEquals(new Complex(1.0, 0.0), c.getData().pop());
+
+        c.insertNumber(operand1);
+        c.insertNumber(operand2);
+        c.notEqual();
+        assertComplexEquals(new Complex(1.0, 0.0), c.getData().pop());
+
+        c.insertNumber(operand2Real);
+        c.insertNumber(operand1Real);
+        c.lessThan();
+        assertComplexEquals(new Complex(1.0, 0.0), c.getData().pop());
+
+        c.insertNumber(operand2Real);
+        c.insertNumber(operand1Real);
+        c.greaterThan();
+        assertComplexEquals(zero, c.getData().pop());
+
+        c.insertNumber(operand1Real);
+        c.insertNumber(operand1Real);
+        c.lessOrEqual();
+        assertComplexEquals(new Complex(1.0, 0.0), c.getData().pop());
+
+        c.insertNumber(operand2Real);
+        c.insertNumber(operand1Real);
+        c.greaterOrEqual();
+        assertComplexEquals(zero, c.getData().pop());
+        assertTrue(c.getData().isEmpty());
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testCompareException() {
+        c.insertNumber(operand1Real);
+        c.insertNumber(operand1Imaginary);
+        c.lessThan();
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void testCompareExceptionStack() {
+        c.insertNumber(operand1Real);
+        c.equal();
+    }
+
     private void assertComplexEquals(Complex expected, Complex actual) {
         assertEquals(expected.getReal(), actual.getReal(), 0.00000001);
         assertEquals(expected.getImaginary(), actual.getImaginary(), 0.00000001);
@@ -0,0 +1,140 @@
+
+import it.unisa.diem.Gruppo20.Model.Calculator;
+import it.unisa.diem.Gruppo20.Model.Complex;
+import it.unisa.diem.Gruppo20.Model.ComplexArray;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Team 20
+ */
+public class ComplexArrayTest {
+
+    private ComplexArray a;
+    private ComplexArray b;
+    private List<Complex> first;
+    private List<Complex> second;
+
+    public ComplexArrayTest() {
+    }
+
+    @Before
+    public void setUp() {
+        first = List.of(new Complex(3.0, 4.0), new Complex(-10.0, 0.0), new Complex(0.0, -50.0), new Complex(0.5, 2.5));
+        second = List.of(new Complex(3.0, 0.1), new Complex(6.0, 0.0), new Complex(0.0, 60.0), new Complex(2.0, -3.5));
+        a = ComplexArray.from(first);
+        b = ComplexArray.from(second);
+    }
+
+    @Test
+    public void testFromAndToDeque() {
+        Calculator c = new Calculator();
+        for (Complex number : first) {
+            c.insertNumber(number);
+        }
+        ComplexArray array = ComplexArray.from(c.getData());
+        assertEquals(first.size(), array.length());
+        assertComplexEquals(first.get(first.size() - 1), array.get(0));
+
+        Deque<Complex> deque = array.toDeque();
+        Iterator<Complex> it = c.getData().iterator();
+        for (Complex number : deque) {
+            assertComplexEquals(it.next(), number);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorException() {
+        new ComplexArray(new double[2], new double[3]);
+    }
+
+    @Test
+    public void testPlus() {
+        ComplexArray result = a.plus(b);
+        for (int i = 0; i < first.size(); i++) {
+            assertComplexEquals(first.get(i).plus(second.get(i)), result.get(i));
+        }
+    }
+
+    @Test
+    public void testMinus() {
+        ComplexArray result = a.minus(b);
+        for (int i = 0; i < first.size(); i++) {
+            assertComplexEquals(first.get(i).minus(second.get(i)), result.get(i));
+        }
+    }
+
+    @Test
+    public void testMultiply() {
+        ComplexArray result = a.multiply(b);
+        for (int i = 0; i < first.size(); i++) {
+            assertComplexEquals(first.get(i).multiply(second.get(i)), result.get(i));
+        }
+    }
+
+    @Test
+    public void testDivision() {
+        ComplexArray result = a.division(b);
+        for (int i = 0; i < first.size(); i++) {
+            assertComplexEquals(first.get(i).division(second.get(i)), result.get(i));
+        }
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testDivisionException() {
+        a.division(new ComplexArray(a.length()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLengthException() {
+        a.plus(new ComplexArray(1));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testNaNException() {
+        b.set(1, new Complex(Double.NaN, 0.0));
+        a.plus(b);
+    }
+
+    @Test
+    public void testModAndArg() {
+        double[] mod = a.mod();
+        double[] arg = a.arg();
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).mod(), mod[i], 0.00000001);
+            assertEquals(first.get(i).arg(), arg[i], 0.00000001);
+        }
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testArgException() {
+        new ComplexArray(3).arg();
+    }
+
+    @Test
+    public void testExp() {
+        ComplexArray result = a.exp();
+        for (int i = 0; i < first.size(); i++) {
+            assertComplexEquals(first.get(i).exp(), result.get(i));
+        }
+    }
+
+    @Test
+    public void testLog() {
+        ComplexArray result = a.log();
+        for (int i = 0; i < first.size(); i++) {
+            assertComplexEquals(first.get(i).log(), result.get(i));
+        }
+    }
+
+    private void assertComplexEquals(Complex expected, Complex actual) {
+        assertEquals(expected.getReal(), actual.getReal(), 0.00000001);
+        assertEquals(expected.getImaginary(), actual.getImaginary(), 0.00000001);
+    }
+
+}
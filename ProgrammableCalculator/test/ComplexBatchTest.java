@@ -0,0 +1,119 @@
+
+import it.unisa.diem.Gruppo20.Model.Complex;
+import it.unisa.diem.Gruppo20.Model.ComplexBatch;
+import java.util.Random;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Team 20
+ */
+public class ComplexBatchTest {
+
+    /**
+     * Not a multiple of any vector length, so the scalar tail is tested too.
+     */
+    private static final int N = 37;
+    private double[] aRe;
+    private double[] aIm;
+    private double[] bRe;
+    private double[] bIm;
+    private double[] outRe;
+    private double[] outIm;
+
+    public ComplexBatchTest() {
+    }
+
+    @Before
+    public void setUp() {
+        Random random = new Random(20);
+        aRe = new double[N];
+        aIm = new double[N];
+        bRe = new double[N];
+        bIm = new double[N];
+        outRe = new double[N];
+        outIm = new double[N];
+        for (int i = 0; i < N; i++) {
+            aRe[i] = random.nextDouble() * 200 - 100;
+            aIm[i] = random.nextDouble() * 200 - 100;
+            bRe[i] = random.nextDouble() * 200 - 100;
+            bIm[i] = random.nextDouble() * 200 - 100;
+        }
+    }
+
+    @Test
+    public void testAdd() {
+        ComplexBatch.add(aRe, aIm, bRe, bIm, outRe, outIm, N);
+        for (int i = 0; i < N; i++) {
+            assertComplexEquals(a(i).plus(b(i)), i);
+        }
+    }
+
+    @Test
+    public void testSubtract() {
+        ComplexBatch.subtract(aRe, aIm, bRe, bIm, outRe, outIm, N);
+        for (int i = 0; i < N; i++) {
+            assertComplexEquals(a(i).minus(b(i)), i);
+        }
+    }
+
+    @Test
+    public void testMultiply() {
+        ComplexBatch.multiply(aRe, aIm, bRe, bIm, outRe, outIm, N);
+        for (int i = 0; i < N; i++) {
+            assertComplexEquals(a(i).multiply(b(i)), i);
+        }
+    }
+
+    @Test
+    public void testMultiplyInPlace() {
+        Complex[] expected = new Complex[N];
+        for (int i = 0; i < N; i++) {
+            expected[i] = a(i).multiply(b(i));
+        }
+        outRe = aRe;
+        outIm = aIm;
+        ComplexBatch.multiply(aRe, aIm, bRe, bIm, aRe, aIm, N);
+        for (int i = 0; i < N; i++) {
+            assertComplexEquals(expected[i], i);
+        }
+    }
+
+    @Test
+    public void testDivide() {
+        ComplexBatch.divide(aRe, aIm, bRe, bIm, outRe, outIm, N);
+        for (int i = 0; i < N; i++) {
+            assertComplexEquals(a(i).division(b(i)), i);
+        }
+    }
+
+    @Test
+    public void testModulus() {
+        double[] out = new double[N];
+        ComplexBatch.modulus(aRe, aIm, out, N);
+        for (int i = 0; i < N; i++) {
+            assertEquals(a(i).mod(), out[i], 0.00000001);
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testLengthException() {
+        ComplexBatch.add(aRe, aIm, bRe, new double[N - 1], outRe, outIm, N);
+    }
+
+    private Complex a(int i) {
+        return new Complex(aRe[i], aIm[i]);
+    }
+
+    private Complex b(int i) {
+        return new Complex(bRe[i], bIm[i]);
+    }
+
+    private void assertComplexEquals(Complex expected, int i) {
+        assertEquals(expected.getReal(), outRe[i], 0.00000001);
+        assertEquals(expected.getImaginary(), outIm[i], 0.00000001);
+    }
+
+}
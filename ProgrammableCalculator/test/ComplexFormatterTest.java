@@ -0,0 +1,132 @@
+
+import it.unisa.diem.Gruppo20.Model.Complex;
+import it.unisa.diem.Gruppo20.Model.ComplexFormatter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Team 20
+ */
+public class ComplexFormatterTest {
+
+    private ComplexFormatter formatter;
+
+    public ComplexFormatterTest() {
+    }
+
+    @Before
+    public void setUp() {
+        formatter = ComplexFormatter.getDefault();
+    }
+
+    @Test
+    public void testFormat() {
+        assertEquals("0", formatter.format(new Complex(0.0, 0.0)));
+        assertEquals("3", formatter.format(new Complex(3.0, 0.0)));
+        assertEquals("- 3.5", formatter.format(new Complex(-3.5, 0.0)));
+        assertEquals("+ 2j", formatter.format(new Complex(0.0, 2.0)));
+        assertEquals("- 2j", formatter.format(new Complex(0.0, -2.0)));
+        assertEquals("1.25 + 0.005j", formatter.format(new Complex(1.25, 0.005)));
+        assertEquals("- 1 - 0.33333333j", formatter.format(new Complex(-1.0, -1.0 / 3)));
+        assertEquals("Not A Number", formatter.format(new Complex(Double.NaN, Double.NaN)));
+    }
+
+    @Test
+    public void testFormatRounding() {
+        assertEquals("0.12345679", formatter.format(new Complex(0.123456789, 0.0)));
+        assertEquals("1", formatter.format(new Complex(0.999999999, 0.0)));
+        assertEquals("0.00000001", formatter.format(new Complex(0.00000001, 0.0)));
+        assertEquals("123456789012345680000", formatter.format(new Complex(1.2345678901234568E20, 0.0)));
+        assertEquals("- 0.00038103", formatter.format(new Complex(-3.81035E-4, 0.0))); // just below the tie
+        assertEquals("0.12", new ComplexFormatter(2, false).format(new Complex(0.125, 0.0)));
+        assertEquals("0.38", new ComplexFormatter(2, false).format(new Complex(0.375, 0.0)));
+    }
+
+    @Test
+    public void testFormatLikeDecimalFormat() {
+        DecimalFormat expected = new DecimalFormat("0.########", DecimalFormatSymbols.getInstance(Locale.US));
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            double value = (random.nextInt(2000000) + 0.5) / Math.pow(10, 2 + random.nextInt(12)) + random.nextInt(3) * Math.ulp(1e-3);
+            assertEquals("value " + value, expected.format(value), formatter.format(new Complex(value, 0.0)));
+        }
+    }
+
+    @Test
+    public void testToString() {
+        double[] values = {0.0, -0.0, 1.0, -7.0, 0.1, -0.1, 2.0 / 3, -2.0 / 3, 1e-9, -1e-9, -3.81035E-4,
+            12345.678901234, -12345.678901234, 68929627.8511653, 1e300, -1e300};
+        for (double re : values) {
+            for (double im : values) {
+                Complex c = new Complex(re, im);
+                assertEquals(re + ", " + im, decimalFormatString(re, im), c.toString());
+            }
+        }
+    }
+
+    @Test
+    public void testAppend() throws IOException {
+        StringBuilder sb = new StringBuilder("x = ");
+        formatter.format(1.0, -2.0, sb);
+        assertEquals("x = 1 - 2j", sb.toString());
+
+        StringWriter out = new StringWriter();
+        formatter.format(0.5, 0.5, out);
+        assertEquals("0.5 + 0.5j", out.toString());
+    }
+
+    @Test
+    public void testPrecision() {
+        ComplexFormatter f = new ComplexFormatter(2, false);
+        assertEquals(2, f.getPrecision());
+        assertEquals("3.14 + 0.01j", f.format(new Complex(Math.PI, 0.01)));
+        assertEquals("3.14 + 0j", f.format(new Complex(Math.PI, 0.001)));
+        assertEquals("3", new ComplexFormatter(0, false).format(new Complex(3.4, 0.0)));
+    }
+
+    @Test
+    public void testHideResidues() {
+        ComplexFormatter f = new ComplexFormatter(ComplexFormatter.DEFAULT_PRECISION, true);
+        assertTrue(f.isHidingResidues());
+        assertEquals("1", f.format(new Complex(1.0, 6.123233995736766E-17)));
+        assertEquals("- 1j", f.format(new Complex(-1e-12, -1.0)));
+        assertEquals("0", f.format(new Complex(1e-12, -1e-12)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPrecisionException() {
+        new ComplexFormatter(ComplexFormatter.MAX_PRECISION + 1, false);
+    }
+
+    /**
+     * Returns the string of re + im*j made with DecimalFormat, as Complex did
+     * before ComplexFormatter.
+     */
+    private static String decimalFormatString(double re, double im) {
+        DecimalFormat format = new DecimalFormat("0.########", DecimalFormatSymbols.getInstance(Locale.US));
+        if (re == 0 && im == 0) {
+            return "0";
+        }
+        String s = "";
+        if (re != 0) {
+            s = format.format(re);
+        }
+        if (im != 0) {
+            if (im > 0) {
+                s += "+";
+            }
+            s = s + format.format(im) + "j";
+        }
+        s = s.replace("+", " + ").replace("-", " - ");
+        return s.charAt(0) == ' ' ? s.substring(1) : s;
+    }
+
+}
@@ -0,0 +1,99 @@
+
+import it.unisa.diem.Gruppo20.Model.ComplexScanner;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Team 20
+ */
+public class ComplexScannerTest {
+
+    private ComplexScanner scanner;
+
+    public ComplexScannerTest() {
+    }
+
+    @Before
+    public void setUp() {
+        scanner = new ComplexScanner();
+    }
+
+    @Test
+    public void testScanReal() {
+        assertScan(0.0, 0.0, "0");
+        assertScan(-100.0, 0.0, "-100");
+        assertScan(3.05, 0.0, "+3.05");
+        assertScan(0.5, 0.0, ".5");
+        assertScan(2.0, 0.0, "2.");
+        assertScan(1.5e-3, 0.0, "1.5e-3");
+        assertScan(-2.5E10, 0.0, "-2.5E+10");
+    }
+
+    @Test
+    public void testScanImaginary() {
+        assertScan(0.0, 1.0, "j");
+        assertScan(0.0, 1.0, "+j");
+        assertScan(0.0, -1.0, "-j");
+        assertScan(0.0, 54.0, "54j");
+        assertScan(0.0, -1.0, "-1j");
+        assertScan(0.0, -4.0, "-j4.0");
+        assertScan(0.0, 0.25, "J.25");
+    }
+
+    @Test
+    public void testScanComplex() {
+        assertScan(0.1, 2.5, "0.1+2.5j");
+        assertScan(0.1, -2.5, "0.1-j2.50");
+        assertScan(0.1, 2.5, "2.5j+0.1");
+        assertScan(0.1, -2.5, "-j2.5+0.1");
+        assertScan(3.0, 1.0, "3+j");
+        assertScan(-3.0, -1.0, "-j-3");
+        assertScan(1e-5, -2.0, "1e-5-2j");
+        assertScan(-1.0, 4.0, "  - 1 +  4j ");
+    }
+
+    @Test
+    public void testScanRange() {
+        scanner.scan("push 1+2j now", 5, 9);
+        assertEquals(1.0, scanner.getReal(), 0.0);
+        assertEquals(2.0, scanner.getImaginary(), 0.0);
+    }
+
+    @Test
+    public void testScanRounding() {
+        String[] literals = {"0.1", "0.3", "123456789.123456789", "1e22", "1e23", "4.9e-324",
+            "1.7976931348623157e308", "2.2250738585072011e-308", "9007199254740993", "0.000000000000000000001"};
+        for (String literal : literals) {
+            scanner.scan(literal);
+            assertEquals(literal, Double.parseDouble(literal), scanner.getReal(), 0.0);
+        }
+    }
+
+    @Test
+    public void testScanExceptions() {
+        String[] invalid = {"", " ", "+", "-", ".", "e5", "1e", "1e+", "clears", "-2.j5+0.1",
+            "3+4", "3j+4j", "j4j", "1 2", "1+", "1++2j", "2j3", "1.2.3"};
+        for (String literal : invalid) {
+            try {
+                scanner.scan(literal);
+                fail("\"" + literal + "\" should not be parsed");
+            } catch (NumberFormatException ex) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testScanRangeException() {
+        scanner.scan("1+2j", 2, 5);
+    }
+
+    private void assertScan(double real, double imaginary, String literal) {
+        scanner.scan(literal);
+        assertEquals(literal, real, scanner.getReal(), 0.0);
+        assertEquals(literal, imaginary, scanner.getImaginary(), 0.0);
+    }
+
+}
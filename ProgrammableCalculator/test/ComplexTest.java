@@ -1,5 +1,6 @@
 
 import it.unisa.diem.Gruppo20.Model.Complex;
+import it.unisa.diem.Gruppo20.Model.SnapPolicy;
 
 import org.junit.*;
 import static org.junit.Assert.*;
@@ -55,6 +56,14 @@ public class ComplexTest {
         operand2 = new Complex(3.0, 0.1);
     }
 
+    @Test
+    public void testOf() {
+        assertComplexEquals(operand1, Complex.of(3.0, 4.0));
+        assertComplexEquals(operand1Real, Complex.ofReal(-10.0));
+        assertEquals(operand2, Complex.of(3.0, 0.1));
+        assertNotEquals(zero, Complex.of(-0.0, 0.0));
+    }
+
     @Test
     public void testPlus() {
         assertComplexEquals(expected, zero.plus(zero)); //test 0+0 = 0
@@ -297,6 +306,14 @@ public class ComplexTest {
         assertComplexEquals(expected, operand1.sin());
     }
 
+    @Test
+    public void testSinCosSmallImaginary() {
+        Complex z = new Complex(0d, 1e-12);
+        assertEquals(1e-12, z.sin().getImaginary(), 1e-27);
+        assertEquals(1d, z.cos().getReal(), 0.0);
+        assertEquals(-1e-12, z.invert().sin().getImaginary(), 1e-27);
+    }
+
     @Test
     public void testAsin() {
         assertComplexEquals(expected, zero.asin());
@@ -337,6 +354,25 @@ public class ComplexTest {
         assertComplexEquals(expected, operand1.tan());
     }
 
+    @Test
+    public void testSnapPolicy() {
+        Complex halfPi = new Complex(Math.PI / 2, 0d);
+        assertEquals(0.0, halfPi.cos(SnapPolicy.COMPUTE).getReal(), 0.0);
+        assertNotEquals(0.0, halfPi.cos(SnapPolicy.OFF).getReal(), 0.0);
+        assertNotEquals(0.0, halfPi.cos(SnapPolicy.DISPLAY).getReal(), 0.0);
+        assertEquals(0.0, new Complex(Math.PI, 0d).sin().getReal(), 0.0);
+        assertEquals(1e-20, new Complex(1e-20, 0d).sin(SnapPolicy.OFF).getReal(), 0.0);
+
+        expected.setReal(-1d);
+        assertComplexEquals(expected, Complex.ImaginaryUnit.pow(2, SnapPolicy.OFF));
+        assertEquals(0.0, Complex.ImaginaryUnit.pow(2).getImaginary(), 0.0);
+    }
+
+    @Test
+    public void testTanSnapPolicyOff() {
+        assertTrue(new Complex(Math.PI / 2, 0d).tan(SnapPolicy.OFF).getReal() > 1e15);
+    }
+
     @Test
     public void testAtan() {
         Complex halfImg = new Complex(0d, -0.5);
@@ -0,0 +1,123 @@
+
+import it.unisa.diem.Gruppo20.CLI.CsvMapper;
+import it.unisa.diem.Gruppo20.Model.Calculator;
+import it.unisa.diem.Gruppo20.Model.Exception.ExecuteException;
+import it.unisa.diem.Gruppo20.Model.Operations;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Team 20
+ */
+public class CsvMapperTest {
+
+    private Operations operations;
+    private StringWriter out;
+    private ForkJoinPool pool;
+
+    public CsvMapperTest() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        operations = new Operations(new Calculator());
+        operations.parseOperations("sq: dup *");
+        operations.parseOperations("hyp: sq swap sq + sqrt");
+        out = new StringWriter();
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void testMap() throws IOException {
+        map("hyp", "3,4\n\n6, 8\n5+0j,12\n");
+        assertEquals("5\n10\n13\n", out.toString());
+    }
+
+    @Test
+    public void testMapOutputRows() throws IOException {
+        operations.parseOperations("split: dup 2 / swap >x <x");
+        map("split", "4\n2j\n");
+        assertEquals("2,4\n+ 1j,+ 2j\n", out.toString());
+    }
+
+    @Test
+    public void testMapVariablesPerRow() throws IOException {
+        operations.parseOperations("pick: if 7 >x else <x end");
+        try {
+            map("pick", "1\n0\n");
+            fail("x is defined only in the first row");
+        } catch (ExecuteException ex) {
+            assertTrue(ex.getMessage().startsWith("Line 2: "));
+        }
+    }
+
+    @Test
+    public void testMapOrder() throws IOException {
+        StringBuilder in = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            in.append(i).append('\n');
+            expected.append(i * i).append('\n');
+        }
+        CsvMapper mapper = new CsvMapper(operations, "sq");
+        mapper.setChunkSize(7);
+        mapper.map(new BufferedReader(new StringReader(in.toString())), out, pool);
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    @Test
+    public void testMapRedefined() throws IOException {
+        CsvMapper mapper = new CsvMapper(operations, "sq");
+        mapper.setChunkSize(1);
+        mapper.map(new BufferedReader(new StringReader("1\n2\n3\n4\n")), out, pool);
+        operations.parseOperations("sq: dup * 1 +");
+        out.getBuffer().setLength(0);
+        mapper.map(new BufferedReader(new StringReader("1\n2\n3\n4\n")), out, pool);
+        assertEquals("2\n5\n10\n17\n", out.toString());
+    }
+
+    @Test
+    public void testMapException() throws IOException {
+        CsvMapper mapper = new CsvMapper(operations, "hyp");
+        mapper.setChunkSize(2);
+        try {
+            mapper.map(new BufferedReader(new StringReader("3,4\n6,8\n1,2\n5\n1,1\n")), out, pool);
+            fail("the fourth row has one operand");
+        } catch (ExecuteException ex) {
+            assertTrue(ex.getMessage().startsWith("Line 4: "));
+            assertEquals("5\n10\n", out.toString());
+        }
+    }
+
+    @Test
+    public void testMapNotANumber() throws IOException {
+        try {
+            map("hyp", "3,4\n3,four\n");
+            fail("four isn't a number");
+        } catch (ExecuteException ex) {
+            assertEquals("Line 2: 'four' isn't a number.", ex.getMessage());
+            assertTrue(ex.getCause() instanceof NumberFormatException);
+        }
+    }
+
+    @Test(expected = ExecuteException.class)
+    public void testMapUnknownOperation() {
+        new CsvMapper(operations, "cube");
+    }
+
+    private void map(String name, String csv) throws IOException {
+        new CsvMapper(operations, name).map(new BufferedReader(new StringReader(csv)), out, pool);
+    }
+}
@@ -0,0 +1,99 @@
+
+import it.unisa.diem.Gruppo20.Model.Complex;
+import it.unisa.diem.Gruppo20.Model.MappedDataset;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Team 20
+ */
+public class MappedDatasetTest {
+
+    private Path file;
+
+    public MappedDatasetTest() {
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("dataset", ".bin");
+        file.toFile().deleteOnExit();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testOpen() throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(3 * 16).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putDouble(1).putDouble(2).putDouble(-3).putDouble(0.5).putDouble(0).putDouble(-1);
+        Files.write(file, bytes.array());
+        try (MappedDataset d = MappedDataset.open(file, false)) {
+            assertEquals(3, d.length());
+            assertFalse(d.isWritable());
+            assertComplexEquals(new Complex(1.0, 2.0), d.get(0));
+            assertEquals(-3.0, d.re(1), 0);
+            assertEquals(0.5, d.im(1), 0);
+            assertComplexEquals(new Complex(-2.0, 1.5), d.sum());
+        }
+    }
+
+    @Test
+    public void testCreate() throws IOException {
+        try (MappedDataset d = MappedDataset.create(file, 1000)) {
+            assertTrue(d.isWritable());
+            assertComplexEquals(new Complex(0.0, 0.0), d.get(999));
+            for (int i = 0; i < 1000; i++) {
+                d.set(i, i, -i);
+            }
+            d.force();
+        }
+        assertEquals(16000, Files.size(file));
+        try (MappedDataset d = MappedDataset.open(file, false)) {
+            assertComplexEquals(new Complex(499500.0, -499500.0), d.sum());
+        }
+    }
+
+    @Test(expected = ReadOnlyBufferException.class)
+    public void testSetReadOnly() throws IOException {
+        MappedDataset.create(file, 2).close();
+        try (MappedDataset d = MappedDataset.open(file, false)) {
+            d.set(0, 1, 1);
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfRange() throws IOException {
+        try (MappedDataset d = MappedDataset.create(file, 2)) {
+            d.get(2);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenInvalidSize() throws IOException {
+        Files.write(file, new byte[20]);
+        MappedDataset.open(file, false);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosed() throws IOException {
+        MappedDataset d = MappedDataset.create(file, 2);
+        d.close();
+        d.get(0);
+    }
+
+    private void assertComplexEquals(Complex expected, Complex actual) {
+        assertEquals(expected.getReal(), actual.getReal(), 0.00000001);
+        assertEquals(expected.getImaginary(), actual.getImaginary(), 0.00000001);
+    }
+}
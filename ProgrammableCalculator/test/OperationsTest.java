@@ -1,6 +1,14 @@
 
 import it.unisa.diem.Gruppo20.Model.Calculator;
+import it.unisa.diem.Gruppo20.Model.CancellationToken;
 import it.unisa.diem.Gruppo20.Model.Complex;
+import it.unisa.diem.Gruppo20.Model.ExecutionBudget;
+import it.unisa.diem.Gruppo20.Model.Exception.ExecuteException;
+import it.unisa.diem.Gruppo20.Model.Exception.ExecutionAbortedException;
+import it.unisa.diem.Gruppo20.Model.Exception.LineExecutionException;
+import it.unisa.diem.Gruppo20.Model.Exception.ParseException;
+import it.unisa.diem.Gruppo20.Model.Exception.VariableKeyException;
+import it.unisa.diem.Gruppo20.Model.MappedDataset;
 import it.unisa.diem.Gruppo20.Model.UserCommand;
 import it.unisa.diem.Gruppo20.Model.Operations;
 import java.io.BufferedReader;
@@ -11,8 +19,12 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Locale;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
 import java.util.Set;
 
@@ -88,6 +100,179 @@ public class OperationsTest {
         assertNotNull(operations.getOperationsNames("test")); //check if user operation named test exist
     }
 
+    @Test
+    public void testParseOperationsTokens() {
+        operations.parseOperations("Hyp:\tDUP *\n SWAP  dup * +   >A <a  1+1J +");
+        assertEquals(List.of("dup", "*", "swap", "dup", "*", "+", ">a", "<a", "1+1j", "+"), operations.getOperationsNames("hyp"));
+        c.insertNumber("3");
+        c.insertNumber("4");
+        operations.executeOperation("hyp");
+        assertComplexEquals(new Complex(26.0, 1.0), c.getData().pop());
+    }
+
+    @Test
+    public void testParseOperationsUnderflow() {
+        operations.parseOperations("test: 1 2 +");
+        operations.parseOperations("empty: clear");
+        try {
+            operations.parseOperations("test: 1 empty 2 +");
+            fail("+ has never two operands");
+        } catch (ParseException ex) {
+            assertEquals("1 2 +", operations.operationToString("test").substring("test: ".length()));
+        }
+        try {
+            operations.parseOperations("test2: clear 1 dup * swap");
+            fail("swap has never two operands");
+        } catch (ParseException ex) {
+            assertNull(operations.getOperationsCommand("test2"));
+        }
+        operations.parseOperations("test: empty 1 2 + 3 *");
+        c.insertNumber("5");
+        operations.executeOperation("test");
+        assertEquals(1, c.getData().size());
+        assertComplexEquals(new Complex(9.0, 0.0), c.getData().pop());
+    }
+
+    @Test
+    public void testExecuteOperationStackEffect() {
+        operations.parseOperations("sq: dup *");
+        operations.parseOperations("hyp: sq swap sq + >h <h <h");
+        c.insertNumber("3");
+        try {
+            operations.executeOperation("hyp");
+            fail("hyp needs two operands");
+        } catch (NoSuchElementException ex) {
+            assertEquals(1, c.getData().size());
+        }
+        c.insertNumber("4");
+        operations.executeOperation("hyp");
+        assertEquals(2, c.getData().size());
+        assertComplexEquals(new Complex(25.0, 0.0), c.getData().pop());
+        assertComplexEquals(new Complex(25.0, 0.0), c.getData().pop());
+    }
+
+    @Test
+    public void testExecuteOptimizedOperation() {
+        operations.parseOperations("f: 2 3 * swap swap dup drop +");
+        assertEquals("f: 2 3 * swap swap dup drop +", operations.operationToString("f"));
+        assertEquals(List.of("2", "3", "*", "swap", "swap", "dup", "drop", "+"), operations.getOperationsNames("f"));
+        c.insertNumber("1+1j");
+        operations.executeOperation("f");
+        assertComplexEquals(new Complex(7.0, 1.0), c.getData().pop());
+
+        operations.parseOperations("g: 1 0 / dup *");
+        c.insertNumber("4");
+        try {
+            operations.executeOperation("g");
+            fail("Division by zero");
+        } catch (ArithmeticException ex) {
+            assertEquals(1, c.getData().size());
+        }
+        operations.parseOperations("g: dup * 1+1j dup * +");
+        operations.executeOperation("g");
+        assertComplexEquals(new Complex(16.0, 2.0), c.getData().pop());
+    }
+
+    @Test
+    public void testExecuteOptimizedOperationErrors() {
+        operations.parseOperations("f: +- +- dup drop");
+        try {
+            operations.executeOperation("f");
+            fail("f needs an operand");
+        } catch (NoSuchElementException ex) {
+            assertTrue(c.getData().isEmpty());
+        }
+        c.insertNumber(new Complex(Double.NaN, 0.0));
+        try {
+            operations.executeOperation("f");
+            fail("NaN isn't a complex number");
+        } catch (ArithmeticException ex) {
+            assertEquals(1, c.getData().size());
+        }
+    }
+
+    @Test
+    public void testExecuteRegisterOperation() {
+        operations.parseOperations("f: over over * + 2 / swap +- swap");
+        c.insertNumber("1");
+        c.insertNumber("2+1j");
+        c.insertNumber("3");
+        operations.executeOperation("f");
+        assertEquals(3, c.getData().size());
+        assertComplexEquals(new Complex(4.5, 1.5), c.getData().pop());
+        assertComplexEquals(new Complex(-2.0, -1.0), c.getData().pop());
+        assertComplexEquals(new Complex(1.0, 0.0), c.getData().pop());
+
+        operations.parseOperations("g: dup / +");
+        c.insertNumber("4");
+        c.insertNumber("0");
+        try {
+            operations.executeOperation("g");
+            fail("Division by zero");
+        } catch (ArithmeticException ex) {
+            assertEquals(2, c.getData().size());
+        }
+        c.getData().clear();
+        c.insertNumber(new Complex(2.0, 0.0));
+        c.insertNumber(new Complex(Double.NaN, 0.0));
+        try {
+            operations.executeOperation("g");
+            fail("NaN isn't a complex number");
+        } catch (ArithmeticException ex) {
+            assertEquals(2, c.getData().size());
+        }
+    }
+
+    @Test
+    public void testExecuteLine() {
+        operations.parseOperations("sq: dup *");
+        operations.executeLine("  1 2 + 3\t* SQ  >a <a 1+1j ");
+        assertEquals(2, c.getData().size());
+        assertComplexEquals(new Complex(1.0, 1.0), c.getData().pop());
+        assertComplexEquals(new Complex(81.0, 0.0), c.getData().peek());
+        operations.executeLine("   ");
+        assertEquals(1, c.getData().size());
+    }
+
+    @Test
+    public void testExecuteLineError() {
+        c.insertNumber("5");
+        try {
+            operations.executeLine("1 2 + + + 4");
+            fail("the third + has one operand");
+        } catch (LineExecutionException ex) {
+            assertEquals(4, ex.getIndex());
+            assertEquals(8, ex.getPosition());
+            assertEquals("+", ex.getToken());
+            assertTrue(ex.getCause() instanceof NoSuchElementException);
+            assertEquals(1, c.getData().size());
+            assertComplexEquals(new Complex(5.0, 0.0), c.getData().peek());
+        }
+        try {
+            operations.executeLine("1 foo");
+            fail("foo isn't a number or an operation");
+        } catch (LineExecutionException ex) {
+            assertEquals(1, ex.getIndex());
+            assertEquals("foo", ex.getToken());
+            assertTrue(ex.getCause() instanceof NumberFormatException);
+            assertEquals(1, c.getData().size());
+        }
+    }
+
+    @Test
+    public void testExecuteLineAborted() {
+        operations.parseOperations("spin: 1 while 1 end");
+        operations.setBudget(new ExecutionBudget(10000, Integer.MAX_VALUE, null));
+        try {
+            operations.executeLine("1 2 spin");
+            fail("spin never ends");
+        } catch (LineExecutionException ex) {
+            fail("the abort must not be wrapped");
+        } catch (ExecutionAbortedException ex) {
+            assertEquals(0, c.getData().size());
+        }
+    }
+
     @Test
     public void testExecuteOperation() {
         operations.parseOperations("   test :  clear  4 8 + ");
@@ -105,6 +290,268 @@ public class OperationsTest {
         assertComplexEquals(new Complex(5.0, 6.0), c.getData().pop());
     }
 
+    @Test
+    public void testExecuteOperationRollback() {
+        c.insertNumber("1");
+        c.insertNumber("2+2j");
+        c.insertNumber("3");
+        c.getVariables().setVariable('y', new Complex(7.0, 0.0));
+        operations.parseOperations("bad: swap drop dup * >x +y 5 <q");
+        try {
+            operations.executeOperation("bad");
+            fail("The variable q is undefined");
+        } catch (VariableKeyException ex) {
+            assertEquals(3, c.getData().size());
+            assertComplexEquals(new Complex(3.0, 0.0), c.getData().pop());
+            assertComplexEquals(new Complex(2.0, 2.0), c.getData().pop());
+            assertComplexEquals(new Complex(1.0, 0.0), c.getData().pop());
+            assertFalse(c.getVariables().getCurrentValues().containsKey('x'));
+            assertComplexEquals(new Complex(7.0, 0.0), c.getVariables().getVariable('y'));
+        }
+    }
+
+    @Test
+    public void testExecuteOperationRollbackNested() {
+        c.insertNumber("4");
+        operations.parseOperations("inner: 1 + drop drop");
+        operations.parseOperations("outer: 2 * inner");
+        try {
+            operations.executeOperation("outer");
+            fail("inner drops too many operands");
+        } catch (NoSuchElementException ex) {
+            assertEquals(1, c.getData().size());
+            assertComplexEquals(new Complex(4.0, 0.0), c.getData().pop());
+        }
+    }
+
+    @Test
+    public void testExecuteOperationRedefined() {
+        operations.parseOperations("inner: 1 2 +");
+        operations.parseOperations("middle: inner inner *");
+        operations.parseOperations("outer: middle 1 +");
+        operations.executeOperation("outer");
+        assertComplexEquals(new Complex(10.0, 0.0), c.getData().pop());
+
+        operations.parseOperations("inner: 2j");
+        operations.executeOperation("outer");
+        assertComplexEquals(new Complex(-3.0, 0.0), c.getData().pop());
+    }
+
+    @Test(expected = ExecuteException.class)
+    public void testExecuteOperationRemovedCallee() {
+        operations.parseOperations("inner: 1 2 +");
+        operations.parseOperations("outer: inner 1 +");
+        operations.executeOperation("outer");
+        operations.removeOperations("inner");
+        operations.executeOperation("outer");
+    }
+
+    @Test
+    public void testParseOperationsCycle() {
+        operations.parseOperations("loop: 1");
+        try {
+            operations.parseOperations("loop: 1 loop");
+            fail("loop can't call itself");
+        } catch (ParseException ex) {
+            assertEquals("loop: 1", operations.operationToString("loop"));
+        }
+        operations.parseOperations("inner: 2 *");
+        operations.parseOperations("outer: inner 1 +");
+        try {
+            operations.parseOperations("inner: outer");
+            fail("inner can't call outer, that calls inner");
+        } catch (ParseException ex) {
+            assertEquals("inner: 2 *", operations.operationToString("inner"));
+        }
+        c.insertNumber("3");
+        operations.executeOperation("outer");
+        assertComplexEquals(new Complex(7.0, 0.0), c.getData().pop());
+    }
+
+    @Test
+    public void testExecuteOperationIfElse() {
+        operations.parseOperations("sign: dup 0 < if drop -1 else 0 > end");
+        c.insertNumber("-5");
+        operations.executeOperation("sign");
+        assertComplexEquals(new Complex(-1.0, 0.0), c.getData().pop());
+        c.insertNumber("5");
+        operations.executeOperation("sign");
+        assertComplexEquals(new Complex(1.0, 0.0), c.getData().pop());
+        c.insertNumber("0");
+        operations.executeOperation("sign");
+        assertComplexEquals(new Complex(0.0, 0.0), c.getData().pop());
+
+        operations.parseOperations("abs: dup 0 < if +- end");
+        c.insertNumber("-3");
+        operations.executeOperation("abs");
+        assertComplexEquals(new Complex(3.0, 0.0), c.getData().pop());
+        assertTrue(c.getData().isEmpty());
+    }
+
+    @Test
+    public void testExecuteOperationRepeat() {
+        operations.parseOperations("count: 0 swap repeat 1 + end");
+        c.insertNumber("100000");
+        operations.executeOperation("count");
+        assertComplexEquals(new Complex(100000.0, 0.0), c.getData().pop());
+        c.insertNumber("0");
+        operations.executeOperation("count");
+        assertComplexEquals(new Complex(0.0, 0.0), c.getData().pop());
+
+        operations.parseOperations("table: 0 3 repeat 4 repeat 1 + end end");
+        operations.executeOperation("table");
+        assertComplexEquals(new Complex(12.0, 0.0), c.getData().pop());
+
+        c.insertNumber("1.5");
+        try {
+            operations.executeOperation("count");
+            fail("1.5 isn't a number of repetitions");
+        } catch (ArithmeticException ex) {
+            assertEquals(1, c.getData().size());
+        }
+    }
+
+    @Test
+    public void testExecuteOperationWhile() {
+        operations.parseOperations("halve: dup 1 > while 2 / dup 1 > end");
+        c.insertNumber("100");
+        operations.executeOperation("halve");
+        assertComplexEquals(new Complex(0.78125, 0.0), c.getData().pop());
+
+        operations.parseOperations("outer: 1 drop 5 halve 1 + halve");
+        operations.executeOperation("outer");
+        assertComplexEquals(new Complex(0.8125, 0.0), c.getData().pop());
+        assertTrue(c.getData().isEmpty());
+    }
+
+    @Test
+    public void testParseOperationsControl() {
+        for (String definition : List.of("f: 1 if 2", "f: 1 2 end", "f: 1 else 2 end", "f: 1 if 2 else 3 else 4 end", "f: repeat")) {
+            try {
+                operations.parseOperations(definition);
+                fail(definition + " isn't matched");
+            } catch (ParseException ex) {
+                assertNull(operations.getOperationsCommand("f"));
+            }
+        }
+        try {
+            operations.executeOperation("if");
+            fail("if can be used only in a user-defined operation");
+        } catch (ExecuteException ex) {
+            assertTrue(c.getData().isEmpty());
+        }
+    }
+
+    @Test
+    public void testExecuteOperationBudget() {
+        operations.parseOperations("spin: 1 while 1 end");
+        operations.parseOperations("grow: 1 while 1 1 end");
+        c.insertNumber("7");
+        operations.setBudget(new ExecutionBudget(10000, Integer.MAX_VALUE, null));
+        try {
+            operations.executeOperation("spin");
+            fail("spin never ends");
+        } catch (ExecutionAbortedException ex) {
+            assertEquals(1, c.getData().size());
+        }
+        operations.setBudget(new ExecutionBudget(Long.MAX_VALUE, 100, null));
+        try {
+            operations.executeOperation("grow");
+            fail("grow fills the stack");
+        } catch (ExecutionAbortedException ex) {
+            assertEquals(1, c.getData().size());
+        }
+        operations.setBudget(new ExecutionBudget(Long.MAX_VALUE, Integer.MAX_VALUE, Duration.ofMillis(50)));
+        try {
+            operations.executeOperation("spin");
+            fail("spin never ends");
+        } catch (ExecutionAbortedException ex) {
+            assertComplexEquals(new Complex(7.0, 0.0), c.getData().pop());
+        }
+    }
+
+    @Test
+    public void testExecuteOperationCancelled() throws InterruptedException {
+        operations.parseOperations("spin: 1 while 1 end");
+        operations.setBudget(new ExecutionBudget(Long.MAX_VALUE, Integer.MAX_VALUE, Duration.ofSeconds(30)));
+        CancellationToken token = new CancellationToken();
+        Thread canceller = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                // cancel anyway
+            }
+            token.cancel();
+        });
+        canceller.start();
+        try {
+            operations.executeOperation("spin", token);
+            fail("spin never ends");
+        } catch (ExecutionAbortedException ex) {
+            assertEquals("The operation was cancelled.", ex.getMessage());
+            assertTrue(c.getData().isEmpty());
+        }
+        canceller.join();
+
+        operations.parseOperations("one: 1");
+        try {
+            operations.executeOperation("one", token);
+            fail("token is already cancelled");
+        } catch (ExecutionAbortedException ex) {
+            assertTrue(c.getData().isEmpty());
+        }
+    }
+
+    @Test
+    public void testExecuteHotOperation() {
+        operations.parseOperations("hyp: dup * swap dup * + 2 /");
+        for (int i = 0; i < 5000; i++) {
+            c.insertNumber(new Complex(i, 1.0));
+            c.insertNumber(new Complex(2.0, -i));
+            operations.executeOperation("hyp");
+            Complex expected = new Complex(i, 1.0).multiply(new Complex(i, 1.0))
+                    .plus(new Complex(2.0, -i).multiply(new Complex(2.0, -i))).division(new Complex(2.0, 0.0));
+            assertComplexEquals(expected, c.getData().pop());
+        }
+
+        c.insertNumber(new Complex(3.0, 0.0));
+        try {
+            operations.executeOperation("hyp");
+            fail("hyp needs two operands");
+        } catch (NoSuchElementException ex) {
+            assertEquals(1, c.getData().size());
+        }
+        c.insertNumber(new Complex(Double.NaN, 0.0));
+        try {
+            operations.executeOperation("hyp");
+            fail("NaN isn't a complex number");
+        } catch (ArithmeticException ex) {
+            assertEquals(2, c.getData().size());
+        }
+
+        operations.parseOperations("hyp: drop 1 +");
+        operations.executeOperation("hyp");
+        assertComplexEquals(new Complex(4.0, 0.0), c.getData().pop());
+    }
+
+    @Test
+    public void testExecuteHotOperationDivisionByZero() {
+        operations.parseOperations("inv: 1 swap /");
+        for (int i = 1; i < 5000; i++) {
+            c.insertNumber(new Complex(i, 0.0));
+            operations.executeOperation("inv");
+            assertComplexEquals(new Complex(1.0 / i, 0.0), c.getData().pop());
+        }
+        c.insertNumber(new Complex(0.0, 0.0));
+        try {
+            operations.executeOperation("inv");
+            fail("Division by zero");
+        } catch (ArithmeticException ex) {
+            assertEquals(1, c.getData().size());
+            assertComplexEquals(new Complex(0.0, 0.0), c.getData().pop());
+        }
+    }
+
     @Test
     public void testUserOperationsNames() {
         operations.parseOperations("   test :  clear  4 8 + ");
@@ -133,9 +580,9 @@ public class OperationsTest {
     @Test
     public void testSaveOnFile() throws IOException {
         String expected_1 = "test_1: + - * / +- sqrt";
-        String expected_2 = "test: clear drop dup swap over + - * / +- sqrt";
+        String expected_2 = "test: clear 1 2 3 4 drop dup swap over + - * / +- sqrt";
         operations.parseOperations("    test_1 :       + -  * / +- sqrt   ");
-        operations.parseOperations("    test :   clear   drop  dup swap over     + -  * / +- sqrt   ");
+        operations.parseOperations("    test :   clear 1 2 3 4  drop  dup swap over     + -  * / +- sqrt   ");
 
         testFile.setWritable(true);
         operations.saveOnFile(testFile);
@@ -155,12 +602,12 @@ public class OperationsTest {
     @Test
     public void testLoadFromFile() throws IOException {
         String expected_1 = "test_1: + - * / +- sqrt";
-        String expected_2 = "test: clear drop dup swap over + - * / +- sqrt";
+        String expected_2 = "test: clear 1 2 3 4 drop dup swap over + - * / +- sqrt";
         String expected_3 = "test_3: 1+1j sqrt +- >a test_1 <a";
         String expected = expected_1 + "\n" + expected_2 + "\n" + expected_3 + "\n";
 
         operations.parseOperations("    test_1 :       + -  * / +- sqrt   ");
-        operations.parseOperations("    test :   clear   drop  dup swap over     + -  * / +- sqrt   ");
+        operations.parseOperations("    test :   clear 1 2 3 4  drop  dup swap over     + -  * / +- sqrt   ");
         operations.parseOperations("test_3:  1+1j   sqrt +-  >a   test_1  <a   ");
 
         write(testFile);
@@ -173,6 +620,202 @@ public class OperationsTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void testLoadFromFileIncremental() throws IOException {
+        operations.parseOperations("sq: dup *");
+        operations.parseOperations("hyp: sq swap sq +");
+        operations.parseOperations("half: 2 /");
+        write(testFile);
+        UserCommand sq = (UserCommand) operations.getOperationsCommand("sq");
+        UserCommand hyp = (UserCommand) operations.getOperationsCommand("hyp");
+
+        operations.parseOperations("sq: 1 +");
+        operations.parseOperations("extra: 1");
+        operations.removeOperations("half");
+        operations.loadFromFile(testFile);
+
+        assertSame(sq, operations.getOperationsCommand("sq"));
+        assertSame(hyp, operations.getOperationsCommand("hyp"));
+        assertNull(operations.getOperationsCommand("extra"));
+        assertEquals(List.of("sq", "hyp", "half"), List.copyOf(operations.userOperationsNames()));
+        c.insertNumber("3");
+        c.insertNumber("4");
+        operations.executeOperation("hyp");
+        operations.executeOperation("half");
+        assertComplexEquals(new Complex(12.5, 0.0), c.getData().pop());
+    }
+
+    @Test
+    public void testExecuteOperationDataset() throws IOException {
+        Path file = Files.createTempFile("dataset", ".bin");
+        file.toFile().deleteOnExit();
+        try (MappedDataset d = MappedDataset.create(file, 1000)) {
+            for (int i = 0; i < 1000; i++) {
+                d.set(i, i, 1);
+            }
+            c.getVariables().bind('x', d);
+            operations.parseOperations("total: 0 1000 repeat <x + end");
+            operations.executeOperation("total");
+            assertComplexEquals(new Complex(499500.0, 1000.0), c.getData().pop());
+
+            c.getVariables().setPosition('x', 999);
+            operations.parseOperations("two: <x <x");
+            try {
+                operations.executeOperation("two");
+                fail("only one element is left");
+            } catch (VariableKeyException ex) {
+                assertEquals(999, c.getVariables().getPosition('x')); // restored
+            }
+        }
+    }
+
+    @Test
+    public void testExecuteOperationDatasetAtomic() throws IOException {
+        Path file = Files.createTempFile("dataset", ".bin");
+        file.toFile().deleteOnExit();
+        try (MappedDataset d = MappedDataset.create(file, 2)) {
+            d.set(0, 5, 0);
+            c.getVariables().bind('x', d);
+            operations.parseOperations("bad: +x 0 0 /");
+            c.insertNumber("2");
+            try {
+                operations.executeOperation("bad");
+                fail("0 / 0");
+            } catch (ArithmeticException ex) {
+                assertComplexEquals(new Complex(5.0, 0.0), d.get(0));
+                assertEquals(0, c.getVariables().getPosition('x'));
+            }
+
+            operations.parseOperations("add: +x");
+            c.checkpoint();
+            operations.executeOperation("add");
+            assertComplexEquals(new Complex(7.0, 0.0), d.get(0));
+            c.undo();
+            assertComplexEquals(new Complex(5.0, 0.0), d.get(0));
+            assertEquals(0, c.getVariables().getPosition('x'));
+            c.redo();
+            assertComplexEquals(new Complex(7.0, 0.0), d.get(0));
+            assertEquals(1, c.getVariables().getPosition('x'));
+        }
+    }
+
+    @Test
+    public void testExecuteOperationDatasetTrim() throws IOException {
+        Path file = Files.createTempFile("dataset", ".bin");
+        file.toFile().deleteOnExit();
+        try (MappedDataset d = MappedDataset.create(file, 100)) {
+            c.getVariables().bind('x', d);
+            c.setHistoryLimit(3);
+            operations.parseOperations("fill: 100 repeat 1 +x end");
+            for (int i = 0; i < 100; i++) {
+                c.checkpoint();
+                c.getVariables().setPosition('x', 0);
+                operations.executeOperation("fill"); // 100 writes for each state
+            }
+            assertComplexEquals(new Complex(10000.0, 0.0), d.sum());
+            c.undo();
+            c.undo();
+            assertComplexEquals(new Complex(9800.0, 0.0), d.sum());
+            c.redo();
+            assertComplexEquals(new Complex(9900.0, 0.0), d.sum());
+        }
+    }
+
+    @Test
+    public void testExecuteOperationDatasetLimit() throws IOException {
+        Path file = Files.createTempFile("dataset", ".bin");
+        file.toFile().deleteOnExit();
+        int n = 100000; // more writes than the journal keeps
+        try (MappedDataset d = MappedDataset.create(file, n)) {
+            c.getVariables().bind('x', d);
+            operations.parseOperations("bad: " + n + " repeat 1 +x end 0 0 /");
+            try {
+                operations.executeOperation("bad");
+                fail("0 / 0");
+            } catch (ArithmeticException ex) {
+                assertEquals(0, c.getVariables().getPosition('x'));
+                assertComplexEquals(new Complex(n, 0.0), d.sum()); // the elements are left as they are
+            }
+
+            operations.parseOperations("add: +x");
+            c.insertNumber("2");
+            c.checkpoint();
+            operations.executeOperation("add"); // the small writes are restored again
+            c.undo();
+            assertComplexEquals(new Complex(1.0, 0.0), d.get(0));
+            assertEquals(0, c.getVariables().getPosition('x'));
+        }
+    }
+
+    @Test
+    public void testExecuteOperationDatasetHeap() throws IOException, InterruptedException {
+        Path file = Files.createTempFile("dataset", ".bin");
+        file.toFile().deleteOnExit();
+        Process p = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx32m", "-cp", System.getProperty("java.class.path"), StreamDataset.class.getName(), file.toString())
+                .redirectErrorStream(true).start();
+        String output = new String(p.getInputStream().readAllBytes());
+        assertEquals(output, 0, p.waitFor());
+        try (MappedDataset d = MappedDataset.open(file, false)) {
+            assertComplexEquals(new Complex(StreamDataset.LENGTH, 0.0), d.sum());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testMapDataset() throws IOException {
+        Path file = Files.createTempFile("dataset", ".bin");
+        file.toFile().deleteOnExit();
+        try (MappedDataset d = MappedDataset.create(file, 100)) {
+            for (int i = 0; i < 100; i++) {
+                d.set(i, i, 0);
+            }
+            c.insertNumber("7");
+            operations.parseOperations("sq: dup *");
+            operations.mapDataset("sq", d, d);
+            assertComplexEquals(new Complex(81.0, 0.0), d.get(9));
+            operations.mapDataset("+-", d, d);
+            assertComplexEquals(new Complex(-328350.0, 0.0), d.sum());
+            assertEquals(1, c.getData().size());
+
+            d.set(0, 1, 0);
+            d.set(50, 0, 0);
+            operations.parseOperations("inv: 1 swap /");
+            try {
+                operations.mapDataset("inv", d, d);
+                fail("the element 50 has no inverse");
+            } catch (ExecuteException ex) {
+                assertTrue(ex.getMessage().startsWith("Element 50: "));
+                assertComplexEquals(new Complex(-1.0 / 2401, 0.0), d.get(49));
+                assertEquals(1, c.getData().size());
+            }
+        }
+    }
+
+    @Test
+    public void testCopy() {
+        operations.parseOperations("sq: 1 +");
+        operations.parseOperations("hyp: sq swap sq + sqrt");
+        operations.parseOperations("sq: dup *"); // hyp is defined before its new callee
+        operations.parseOperations("half: 2 /");
+        operations.removeOperations("half");
+        operations.setBudget(new ExecutionBudget(100, 10, null));
+        Calculator other = new Calculator();
+        Operations copy = operations.copy(other);
+
+        assertEquals(List.copyOf(operations.userOperationsNames()), List.copyOf(copy.userOperationsNames()));
+        assertSame(operations.getBudget(), copy.getBudget());
+        assertEquals(operations.getOperationsNames("hyp"), copy.getOperationsNames("hyp"));
+        assertNotSame(operations.getOperationsCommand("hyp"), copy.getOperationsCommand("hyp"));
+        assertFalse(((UserCommand) copy.getOperationsCommand("half")).isExecutable());
+        other.insertNumber("3");
+        other.insertNumber("4");
+        copy.executeOperation("hyp");
+        assertComplexEquals(new Complex(5.0, 0.0), other.getData().pop());
+        assertEquals(0, c.getData().size());
+    }
+
     @Test(expected = IOException.class)
     public void testLoadFromFileException() throws IOException {
         testFile.delete();
@@ -208,4 +851,25 @@ public class OperationsTest {
         assertEquals(expected.getImaginary(), actual.getImaginary(), 0.00000001);
     }
 
+    /**
+     * Streams through a dataset larger than the heap given to the JVM by
+     * testExecuteOperationDatasetHeap, in a single atomic operation.
+     */
+    public static class StreamDataset {
+
+        static final int LENGTH = 3000000;
+
+        public static void main(String[] args) throws IOException {
+            Calculator c = new Calculator();
+            Operations operations = new Operations(c);
+            try (MappedDataset d = MappedDataset.create(Path.of(args[0]), LENGTH)) {
+                c.getVariables().bind('x', d);
+                operations.parseOperations("fill: " + LENGTH + " repeat 1 +x end");
+                c.checkpoint();
+                operations.executeOperation("fill");
+                d.force();
+            }
+        }
+    }
+
 }
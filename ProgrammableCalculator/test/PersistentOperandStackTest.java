@@ -0,0 +1,161 @@
+
+import it.unisa.diem.Gruppo20.Model.ArrayOperandStack;
+import it.unisa.diem.Gruppo20.Model.Calculator;
+import it.unisa.diem.Gruppo20.Model.Complex;
+import it.unisa.diem.Gruppo20.Model.PersistentOperandStack;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Team 20
+ */
+public class PersistentOperandStackTest {
+
+    private PersistentOperandStack stack;
+
+    public PersistentOperandStackTest() {
+    }
+
+    @Before
+    public void setUp() {
+        stack = new PersistentOperandStack();
+        for (int i = 0; i < 10; i++) {
+            stack.push(i, -i);
+        }
+    }
+
+    @Test
+    public void testSnapshot() {
+        PersistentOperandStack snapshot = stack.snapshot();
+        stack.set(0, 100.0, 100.0);
+        stack.set(5, 200.0, 200.0);
+        stack.drop(2);
+        stack.push(300.0, 300.0);
+        stack.remove(3);
+        stack.insert(1, 400.0, 400.0);
+
+        assertEquals(10, snapshot.size());
+        for (int depth = 0; depth < 10; depth++) {
+            assertEquals(9.0 - depth, snapshot.re(depth), 0.0);
+            assertEquals(depth - 9.0, snapshot.im(depth), 0.0);
+        }
+
+        stack.restore(snapshot);
+        assertEquals(9.0, stack.re(0), 0.0);
+        assertEquals(10, stack.size());
+    }
+
+    @Test
+    public void testCopy() {
+        ArrayOperandStack array = new ArrayOperandStack();
+        stack.copyTo(array);
+        assertEquals(10, array.size());
+        assertEquals(9.0, array.re(0), 0.0);
+        assertEquals(0.0, array.re(9), 0.0);
+
+        PersistentOperandStack copy = PersistentOperandStack.copyOf(array);
+        for (int depth = 0; depth < 10; depth++) {
+            assertEquals(stack.re(depth), copy.re(depth), 0.0);
+            assertEquals(stack.im(depth), copy.im(depth), 0.0);
+        }
+    }
+
+    @Test
+    public void testSameAsArrayStack() {
+        ArrayOperandStack expected = new ArrayOperandStack();
+        stack.clear();
+        Random random = new Random(10);
+        for (int step = 0; step < 5000; step++) {
+            int size = expected.size();
+            int op = random.nextInt(10);
+            if (op < 5 || size < 2) {
+                stack.push(step, -step);
+                expected.push(step, -step);
+            } else if (op < 7) {
+                stack.drop(1);
+                expected.drop(1);
+            } else if (op == 7) {
+                int depth = random.nextInt(size);
+                stack.set(depth, step, step);
+                expected.set(depth, step, step);
+            } else if (op == 8) {
+                int depth = random.nextInt(size + 1);
+                stack.insert(depth, -step, 0.5);
+                expected.insert(depth, -step, 0.5);
+            } else {
+                int depth = random.nextInt(size);
+                stack.remove(depth);
+                expected.remove(depth);
+            }
+        }
+        assertEquals(expected.size(), stack.size());
+        for (int depth = 0; depth < expected.size(); depth++) {
+            assertEquals(expected.re(depth), stack.re(depth), 0.0);
+            assertEquals(expected.im(depth), stack.im(depth), 0.0);
+        }
+    }
+
+    @Test
+    public void testRead() {
+        double[] re = new double[4];
+        double[] im = new double[4];
+        stack.read(3, 4, re, im);
+        assertArrayEquals(new double[]{6.0, 5.0, 4.0, 3.0}, re, 0.0);
+        assertArrayEquals(new double[]{-6.0, -5.0, -4.0, -3.0}, im, 0.0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testReadException() {
+        stack.read(8, 3, new double[3], new double[3]);
+    }
+
+    @Test
+    public void testIterator() {
+        Calculator c = new Calculator(stack);
+        Deque<Complex> data = c.getData();
+        int expected = 9;
+        for (Complex number : data) {
+            assertEquals(expected--, number.getReal(), 0.0);
+        }
+        Iterator<Complex> descending = data.descendingIterator();
+        for (int i = 0; i < 10; i++) {
+            Complex number = descending.next();
+            assertEquals(i, number.getReal(), 0.0);
+            if (i % 2 == 0) {
+                descending.remove();
+            }
+        }
+        assertFalse(descending.hasNext());
+        assertEquals(5, data.size());
+        assertTrue(data.removeFirstOccurrence(new Complex(5.0, -5.0)));
+        Complex[] left = data.toArray(new Complex[0]);
+        assertEquals(4, left.length);
+        assertEquals(9.0, left[0].getReal(), 0.0);
+        assertEquals(1.0, left[3].getReal(), 0.0);
+    }
+
+    @Test(timeout = 10000)
+    public void testIteratorLinear() {
+        stack.clear();
+        int n = 200000; // reading each element from the top would walk 2E10 nodes
+        for (int i = 0; i < n; i++) {
+            stack.push(i, 0.0);
+        }
+        Complex[] data = new Calculator(stack).getData().toArray(new Complex[0]);
+        assertEquals(n, data.length);
+        for (int i = 0; i < n; i++) {
+            assertEquals(n - 1 - i, data[i].getReal(), 0.0);
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testDepthException() {
+        stack.re(10);
+    }
+
+}
@@ -0,0 +1,64 @@
+
+import it.unisa.diem.Gruppo20.CLI.ScriptRunner;
+import it.unisa.diem.Gruppo20.Model.Exception.ExecuteException;
+import it.unisa.diem.Gruppo20.Model.Exception.LineExecutionException;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Team 20
+ */
+public class ScriptRunnerTest {
+
+    private ScriptRunner runner;
+    private StringWriter out;
+
+    public ScriptRunnerTest() {
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        runner = new ScriptRunner();
+        out = new StringWriter();
+    }
+
+    @Test
+    public void testRun() throws IOException {
+        run("# hypotenuse\n"
+                + "hyp: dup * swap dup * + sqrt\n"
+                + "\n"
+                + "3 4 hyp\n"
+                + "1 2+2j +\n");
+        assertEquals("3 + 2j\n5\n", out.toString());
+    }
+
+    @Test
+    public void testRunPerLine() throws IOException {
+        runner.setPerLine(true);
+        run("1 2 +\nsq: dup *\nsq\ndrop\n");
+        assertEquals("3\n9\n\n", out.toString());
+    }
+
+    @Test
+    public void testRunException() throws IOException {
+        try {
+            run("1 2\n+ +\n3");
+            fail("the second + has one operand");
+        } catch (ExecuteException ex) {
+            assertTrue(ex.getMessage().startsWith("Line 2: "));
+            assertTrue(ex.getCause() instanceof LineExecutionException);
+            assertEquals(2, runner.getCalculator().getStack().size());
+            assertEquals("", out.toString());
+        }
+    }
+
+    private void run(String script) throws IOException {
+        runner.run(new BufferedReader(new StringReader(script)), out);
+    }
+}
@@ -0,0 +1,106 @@
+
+import it.unisa.diem.Gruppo20.Model.ArrayOperandStack;
+import it.unisa.diem.Gruppo20.Model.Calculator;
+import it.unisa.diem.Gruppo20.Model.SpillingOperandStack;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.*;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Team 20
+ */
+public class SpillingOperandStackTest {
+
+    private SpillingOperandStack stack;
+
+    public SpillingOperandStackTest() {
+    }
+
+    @Before
+    public void setUp() {
+        stack = new SpillingOperandStack(8);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        stack.close();
+    }
+
+    @Test
+    public void testSpillAndPageIn() {
+        int n = 200000; // more than a mapped chunk
+        for (int i = 0; i < n; i++) {
+            stack.push(i, -i);
+        }
+        assertEquals(n, stack.size());
+        assertTrue(stack.getSpilledSize() > 0);
+        assertEquals(0.0, stack.re(n - 1), 0.0);
+        assertEquals(-1.0, stack.im(n - 2), 0.0);
+
+        stack.set(n - 1, 7.0, 7.0); // in the file
+        for (int i = n - 1; i > 0; i--) {
+            assertEquals(i, stack.re(0), 0.0);
+            assertEquals(-i, stack.im(0), 0.0);
+            stack.drop(1);
+        }
+        assertEquals(0, stack.getSpilledSize());
+        assertEquals(7.0, stack.re(0), 0.0);
+    }
+
+    @Test
+    public void testSameAsArrayStack() {
+        ArrayOperandStack expected = new ArrayOperandStack();
+        Random random = new Random(20);
+        for (int step = 0; step < 20000; step++) {
+            int size = expected.size();
+            int op = random.nextInt(10);
+            if (op < 5 || size < 2) {
+                stack.push(step, step * 0.5);
+                expected.push(step, step * 0.5);
+            } else if (op < 7) {
+                int n = random.nextInt(Math.min(size, 6)) + 1;
+                stack.drop(n);
+                expected.drop(n);
+            } else if (op == 7) {
+                int depth = random.nextInt(size);
+                stack.set(depth, -step, step);
+                expected.set(depth, -step, step);
+            } else if (op == 8) {
+                int depth = random.nextInt(size + 1);
+                stack.insert(depth, step, -step);
+                expected.insert(depth, step, -step);
+            } else {
+                int depth = random.nextInt(size);
+                stack.remove(depth);
+                expected.remove(depth);
+            }
+            assertEquals(expected.size(), stack.size());
+        }
+        for (int depth = 0; depth < expected.size(); depth++) {
+            assertEquals(expected.re(depth), stack.re(depth), 0.0);
+            assertEquals(expected.im(depth), stack.im(depth), 0.0);
+        }
+    }
+
+    @Test
+    public void testCalculator() {
+        Calculator c = new Calculator(stack);
+        for (int i = 1; i <= 1000; i++) {
+            c.insertNumber(i + "+1j");
+        }
+        for (int i = 1; i < 1000; i++) {
+            c.sum();
+        }
+        assertEquals(500500.0, c.getData().element().getReal(), 0.0);
+        assertEquals(1000.0, c.getData().element().getImaginary(), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityException() {
+        new SpillingOperandStack(3);
+    }
+
+}
@@ -78,6 +78,12 @@ public class StandardOperationsTest {
         assertFalse(standardOp.isAStandardOperation(">" + String.valueOf(ch)));
         assertFalse(standardOp.isAStandardOperation("+" + String.valueOf(ch)));
         assertFalse(standardOp.isAStandardOperation("-" + String.valueOf(ch)));
+        assertTrue(standardOp.isAStandardOperation("=="));
+        assertTrue(standardOp.isAStandardOperation("<="));
+        assertTrue(standardOp.isAStandardOperation("if"));
+        assertTrue(standardOp.isAStandardOperation("while"));
+        assertFalse(standardOp.isAStandardOperation("ia"));
+        assertFalse(standardOp.isAStandardOperation("<<"));
         assertFalse(standardOp.isAStandardOperation("test"));
         assertFalse(standardOp.isAStandardOperation("hyp"));
         assertFalse(standardOp.isAStandardOperation("prova"));
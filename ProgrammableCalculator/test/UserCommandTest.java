@@ -3,6 +3,7 @@ import it.unisa.diem.Gruppo20.Model.Calculator;
 import it.unisa.diem.Gruppo20.Model.Command;
 import it.unisa.diem.Gruppo20.Model.Complex;
 import it.unisa.diem.Gruppo20.Model.Exception.ExecuteException;
+import it.unisa.diem.Gruppo20.Model.StandardOperations;
 import it.unisa.diem.Gruppo20.Model.UserCommand;
 import java.util.List;
 
@@ -83,6 +84,62 @@ public class UserCommandTest {
         userCom.execute();
     }
 
+    @Test
+    public void testExecuteStandardOperations() {
+        StandardOperations standardOp = new StandardOperations(c);
+        UserCommand square = new UserCommand();
+        square.add("dup", standardOp.getCommand("dup"));
+        square.add("*", standardOp.getCommand("*"));
+        userCom.add("3+4j", standardOp.insertNumberCommand("3+4j"));
+        userCom.add("square", square);
+        userCom.add(">a", standardOp.getCommand(">a"));
+        userCom.add("<a", standardOp.getCommand("<a"));
+        userCom.add("2", standardOp.insertNumberCommand("2"));
+        userCom.add("+", sum);
+
+        userCom.execute();
+
+        assertEquals(1, c.getData().size());
+        assertComplexEquals(new Complex(-7.0, 24.0), c.getVariables().getVariable('a'));
+        assertComplexEquals(new Complex(-5.0, 24.0), c.getData().peekFirst());
+    }
+
+    @Test
+    public void testExecuteRedefinedCallee() {
+        StandardOperations standardOp = new StandardOperations(c);
+        UserCommand callee = new UserCommand();
+        callee.add("+", standardOp.getCommand("+"));
+        userCom.add("callee", callee);
+        userCom.add("+-", standardOp.getCommand("+-"));
+        c.insertNumber(num1);
+        c.insertNumber(num2);
+        userCom.execute();
+        assertComplexEquals(new Complex(-35.0, -55.0), c.getData().peekFirst());
+
+        callee.reset();
+        callee.add("sqrt", standardOp.getCommand("sqrt"));
+        c.insertNumber(new Complex(-4.0, 0.0));
+        userCom.execute();
+        assertComplexEquals(new Complex(0.0, -2.0), c.getData().peekFirst());
+    }
+
+    @Test(expected = ExecuteException.class)
+    public void testExecuteDeletedCallee() {
+        UserCommand callee = new UserCommand();
+        callee.add("+", sum);
+        userCom.add("callee", callee);
+        callee.reset();
+        userCom.execute();
+    }
+
+    @Test(expected = ExecuteException.class)
+    public void testExecuteRecursive() {
+        userCom.add("dup", new StandardOperations(c).getCommand("dup"));
+        userCom.add("test", userCom);
+        c.insertNumber(num1);
+        userCom.execute();
+    }
+
     private void assertComplexEquals(Complex expected, Complex actual) {
         assertEquals(expected.getReal(), actual.getReal(), 0.00000001);
         assertEquals(expected.getImaginary(), actual.getImaginary(), 0.00000001);
@@ -3,6 +3,10 @@ import it.unisa.diem.Gruppo20.Model.Variables;
 
 import it.unisa.diem.Gruppo20.Model.Complex;
 import it.unisa.diem.Gruppo20.Model.Exception.VariableKeyException;
+import it.unisa.diem.Gruppo20.Model.MappedDataset;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.NoSuchElementException;
 
 import org.junit.*;
@@ -143,6 +147,92 @@ public class VariablesTest {
         v.restore();
     }
 
+    @Test
+    public void testSnapshot() {
+        Variables.Snapshot snapshot = v.snapshot();
+        v.setVariable('j', new Complex(5.0, 5.0));
+        v.backup();
+        v.getCurrentValues().remove('m');
+
+        v.restoreSnapshot(snapshot);
+        assertComplexEquals(number, v.getVariable('j'));
+        assertComplexEquals(number.multiply(number), v.getVariable('m'));
+        assertTrue(v.getBackupsStack().isEmpty());
+    }
+
+    @Test
+    public void testCurrentValues() {
+        assertEquals(3, v.getCurrentValues().size());
+        assertComplexEquals(number, v.getCurrentValues().get('j'));
+        assertNull(v.getCurrentValues().get('a'));
+        v.getCurrentValues().put('a', number);
+        assertComplexEquals(number, v.getVariable('a'));
+    }
+
+    @Test
+    public void testBind() throws IOException {
+        Path file = Files.createTempFile("dataset", ".bin");
+        file.toFile().deleteOnExit();
+        try (MappedDataset d = MappedDataset.create(file, 3)) {
+            v.bind('j', d);
+            assertSame(d, v.getDataset('j'));
+            assertNull(v.getCurrentValues().get('j'));
+            v.setVariable('j', number);
+            v.setVariable('j', number.plus(number));
+            assertEquals(2, v.getPosition('j'));
+            v.setPosition('j', 0);
+            v.sumVariable('j', number);
+            v.subVariable('j', number);
+            v.setPosition('j', 0);
+            assertComplexEquals(number.plus(number), v.getVariable('j'));
+            assertComplexEquals(number, v.getVariable('j'));
+            assertComplexEquals(new Complex(0.0, 0.0), v.getVariable('j'));
+            try {
+                v.getVariable('j');
+                fail("the dataset has 3 elements");
+            } catch (VariableKeyException ex) {
+                assertEquals(3, v.getPosition('j'));
+            }
+
+            v.unbind('j');
+            assertNull(v.getDataset('j'));
+            assertEquals(1, d.re(1), 0);
+        }
+    }
+
+    @Test
+    public void testBindSnapshot() throws IOException {
+        Path file = Files.createTempFile("dataset", ".bin");
+        file.toFile().deleteOnExit();
+        try (MappedDataset d = MappedDataset.create(file, 4)) {
+            v.bind('a', d);
+            v.getVariable('a');
+            Variables.Snapshot snapshot = v.snapshot();
+            v.getVariable('a');
+            v.backup();
+            v.getVariable('a');
+            assertEquals(3, v.getPosition('a'));
+            v.restore();
+            assertEquals(2, v.getPosition('a'));
+            v.restoreSnapshot(snapshot);
+            assertEquals(1, v.getPosition('a'));
+            v.unbind('a');
+            v.restoreSnapshot(snapshot);
+            assertSame(d, v.getDataset('a'));
+        }
+    }
+
+    @Test(expected = VariableKeyException.class)
+    public void testBindReadOnly() throws IOException {
+        Path file = Files.createTempFile("dataset", ".bin");
+        file.toFile().deleteOnExit();
+        MappedDataset.create(file, 1).close();
+        try (MappedDataset d = MappedDataset.open(file, false)) {
+            v.bind('a', d);
+            v.setVariable('a', number);
+        }
+    }
+
     private void assertComplexEquals(Complex expected, Complex actual) {
         assertEquals(expected.getReal(), actual.getReal(), 0.00000001);
         assertEquals(expected.getImaginary(), actual.getImaginary(), 0.00000001);